@@ -0,0 +1,10 @@
+package ru.chechkin.internal;
+
+/**
+ * The bounds of a match: {@code text.subSequence(start, end)}.
+ */
+public record MatchSpan(int start, int end) {
+	public int length() {
+		return end - start;
+	}
+}
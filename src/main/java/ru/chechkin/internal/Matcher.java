@@ -2,4 +2,12 @@ package ru.chechkin.internal;
 
 public interface Matcher {
 	boolean match(String text);
+
+	/**
+	 * Tells a prefix that cannot lead to a match from one that merely has not matched yet, so
+	 * input read incrementally can be rejected as early as possible.
+	 *
+	 * @return whether some continuation of {@code prefix}, possibly empty, matches
+	 */
+	boolean canMatchPrefix(String prefix);
 }
@@ -1,21 +1,265 @@
 package ru.chechkin.internal;
 
+import ru.chechkin.internal.automaton.AutomatonSearcher;
+import ru.chechkin.internal.automaton.CompiledAutomaton;
+import ru.chechkin.internal.automaton.FuzzyMatcher;
+import ru.chechkin.internal.automaton.IncrementalMatcher;
+import ru.chechkin.internal.automaton.NfaBuilder;
+import ru.chechkin.internal.automaton.PrefixMatcher;
+import ru.chechkin.internal.automaton.SearchAutomaton;
+import ru.chechkin.internal.automaton.TieredAutomaton;
+import ru.chechkin.internal.automaton.TieredMatcher;
+import ru.chechkin.internal.derivative.DerivativeMatcher;
+import ru.chechkin.internal.index.TrigramQuery;
+import ru.chechkin.internal.index.TrigramQueryPlanner;
+import ru.chechkin.internal.ir.CompactRegexp;
+import ru.chechkin.internal.ir.MemoryFootprint;
+import ru.chechkin.internal.metrics.CompileEvent;
+import ru.chechkin.internal.metrics.InstrumentedMatcher;
+import ru.chechkin.internal.metrics.PatternMetrics;
 import ru.chechkin.internal.parser.RegexpParser;
 import ru.chechkin.internal.parser.node.Node;
-import ru.chechkin.internal.scanner.RegexpScanner;
+import ru.chechkin.internal.parser.visitor.CaseFolder;
+import ru.chechkin.internal.parser.visitor.NodeCounter;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
 
-public class Pattern {
-    private final Node root;
+import java.util.List;
 
-    private Pattern(String pattern) {
-        this.root = new RegexpParser(new RegexpScanner(pattern).getTokens()).parse();
+public class Pattern implements AutoCloseable {
+    /**
+     * Matches letters regardless of case, by the simple Unicode case mappings. The folding is
+     * compiled into the pattern, so matching costs the same as without the flag.
+     */
+    public static final int CASE_INSENSITIVE = 0x02;
+
+    /**
+     * Keeps the DFA transition tables in direct buffers instead of the Java heap. They are released
+     * by {@link #close()}, or by the collector if the pattern is dropped without closing.
+     */
+    public static final int OFF_HEAP_TABLES = 0x10000;
+
+    private static final int ALL_FLAGS = CASE_INSENSITIVE | OFF_HEAP_TABLES;
+
+    private final String pattern;
+    private final int flags;
+    private final CompactRegexp ir;
+    private final PatternMetrics metrics;
+    private volatile TieredAutomaton automaton;
+    private volatile SearchAutomaton searchAutomaton;
+    private volatile boolean closed;
+
+    private Pattern(String pattern, int flags) {
+        CompileEvent event = new CompileEvent();
+        event.begin();
+
+        long parseStart = System.nanoTime();
+        Node root = new RegexpParser(new RegexpTokenizer(pattern)).parse();
+        if ((flags & CASE_INSENSITIVE) != 0) {
+            root = CaseFolder.fold(root);
+        }
+        long buildStart = System.nanoTime();
+        this.ir = CompactRegexp.from(root);
+        // the NFA itself is built on first use, but an oversized one should fail here
+        NfaBuilder.checkSize(ir);
+        this.pattern = pattern;
+        this.flags = flags;
+        this.metrics = PatternMetrics.create();
+        long buildEnd = System.nanoTime();
+
+        event.end();
+
+        metrics.recordCompile(buildEnd - parseStart);
+
+        if (event.shouldCommit()) {
+            event.pattern = pattern;
+            event.parseDuration = buildStart - parseStart;
+            event.buildDuration = buildEnd - buildStart;
+            event.astSize = NodeCounter.count(root);
+            event.commit();
+        }
     }
 
     public static Pattern compile(String pattern) {
-        return new Pattern(pattern);
+        return new Pattern(pattern, 0);
+    }
+
+    public static Pattern compile(String pattern, int flags) {
+        if ((flags & ~ALL_FLAGS) != 0) {
+            throw new IllegalArgumentException("Unknown flags: 0x" + Integer.toHexString(flags & ~ALL_FLAGS));
+        }
+        return new Pattern(pattern, flags);
+    }
+
+    public int flags() {
+        return flags;
     }
 
+    /**
+     * @return a matcher that simulates the NFA until the pattern gets hot and the DFA, built in the
+     * background, afterwards
+     */
     public Matcher matcher() {
-        return new RegexpMatcher(root);
+        return new InstrumentedMatcher(new TieredMatcher(tieredAutomaton(), metrics), pattern, metrics);
+    }
+
+    /**
+     * @return a matcher fed input piece by piece, which reports as soon as no match is possible; it
+     * runs on the NFA until the pattern is promoted
+     */
+    public PrefixMatcher prefixMatcher() {
+        return new PrefixMatcher(tieredAutomaton(), metrics);
+    }
+
+    /**
+     * Promotes a cold pattern now: the checkpoints that keep edits cheap are DFA states, and on
+     * the NFA every edit would rescan the whole document.
+     *
+     * @return a matcher over {@code text} that re‑matches edits without rescanning the whole document
+     */
+    public IncrementalMatcher incrementalMatcher(CharSequence text) {
+        return new IncrementalMatcher(automaton(), metrics, text);
+    }
+
+    /**
+     * @return a matcher that builds its DFA lazily from derivatives of the pattern, for patterns
+     * matched too rarely to pay for the automata; it is not thread‑safe
+     */
+    public Matcher derivativeMatcher() {
+        ensureOpen();
+        return new InstrumentedMatcher(new DerivativeMatcher(ir.toNode(), DerivativeMatcher.DEFAULT_MAX_STATES, metrics), pattern, metrics);
+    }
+
+    /**
+     * @return a matcher accepting inputs within {@code maxErrors} edits of the pattern, which also
+     * reports the best distance; it is not thread‑safe
+     */
+    public FuzzyMatcher fuzzyMatcher(int maxErrors) {
+        return new FuzzyMatcher(tieredAutomaton().current().getNfa(), maxErrors, metrics);
+    }
+
+    /**
+     * @return the automata with the DFA tier built, promoting the pattern now if it is still cold
+     */
+    CompiledAutomaton automaton() {
+        return tieredAutomaton().compiled();
+    }
+
+    /**
+     * Builds the NFA on first use, so patterns that are compiled but never matched stay cheap.
+     */
+    TieredAutomaton tieredAutomaton() {
+        ensureOpen();
+        TieredAutomaton result = automaton;
+        if (result == null) {
+            synchronized (this) {
+                ensureOpen();
+                result = automaton;
+                if (result == null) {
+                    result = new TieredAutomaton(ir, metrics, (flags & OFF_HEAP_TABLES) != 0);
+                    automaton = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return a searcher for leftmost‑longest matches anywhere in the input; it is not
+     * thread‑safe
+     */
+    public Searcher searcher() {
+        return new AutomatonSearcher(searchAutomaton(), metrics);
+    }
+
+    /**
+     * @see Searcher#split(CharSequence)
+     */
+    public List<CharSequence> split(CharSequence input) {
+        return searcher().split(input);
+    }
+
+    /**
+     * @see Searcher#replaceAll(CharSequence, CharSequence, Appendable)
+     */
+    public <A extends Appendable> A replaceAll(CharSequence input, CharSequence replacement, A out) {
+        return searcher().replaceAll(input, replacement, out);
+    }
+
+    /**
+     * @see Searcher#replaceFirst(CharSequence, CharSequence, Appendable)
+     */
+    public <A extends Appendable> A replaceFirst(CharSequence input, CharSequence replacement, A out) {
+        return searcher().replaceFirst(input, replacement, out);
+    }
+
+    /**
+     * @return the trigrams any text containing a match must have, for candidate selection
+     */
+    public TrigramQuery trigramQuery() {
+        return TrigramQueryPlanner.plan(ir.toNode());
+    }
+
+    SearchAutomaton searchAutomaton() {
+        ensureOpen();
+        SearchAutomaton result = searchAutomaton;
+        if (result == null) {
+            synchronized (this) {
+                ensureOpen();
+                result = searchAutomaton;
+                if (result == null) {
+                    result = SearchAutomaton.compile(ir);
+                    if ((flags & OFF_HEAP_TABLES) != 0) {
+                        result = result.toOffHeap();
+                    }
+                    searchAutomaton = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compares the retained size of this pattern's compact encoding with the object tree it replaces.
+     */
+    public MemoryFootprint memoryFootprint() {
+        return MemoryFootprint.of(ir);
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Pattern is closed: " + pattern);
+        }
+    }
+
+    /**
+     * Frees the pattern's off‑heap tables once the matches in progress are done. Matchers and
+     * searchers obtained earlier throw {@link IllegalStateException} from then on, and no new ones
+     * can be created. Closing twice has no effect.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (automaton != null) {
+            automaton.free();
+        }
+        if (searchAutomaton != null) {
+            searchAutomaton.free();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public PatternMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
     }
 }
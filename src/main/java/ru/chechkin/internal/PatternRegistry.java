@@ -0,0 +1,119 @@
+package ru.chechkin.internal;
+
+import ru.chechkin.internal.automaton.Dfa;
+import ru.chechkin.internal.automaton.DfaBuilder;
+import ru.chechkin.internal.automaton.DfaMinimizer;
+import ru.chechkin.internal.automaton.NfaBuilder;
+import ru.chechkin.internal.parser.RegexpParser;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.visitor.CaseFolder;
+import ru.chechkin.internal.parser.visitor.NodeCanonicalizer;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shares one compiled {@link Pattern} between all registered patterns that are equivalent, so a
+ * large rule set with many syntactic variants of the same rule compiles and stores each rule once.
+ *
+ * <p>The registry owns the patterns it hands out: callers must not close them, and
+ * {@link #close()} closes them all.
+ */
+public class PatternRegistry implements AutoCloseable {
+	public enum Equivalence {
+		/**
+		 * Patterns are shared when their {@linkplain NodeCanonicalizer canonical syntax trees} are
+		 * equal. Cheap, and catches reordered or regrouped alternatives and redundant quantifiers.
+		 */
+		SYNTAX,
+		/**
+		 * Patterns are shared when their minimal DFAs are equal, which catches every pair matching
+		 * the same strings. Costs a DFA construction per registration; patterns over the DFA budget
+		 * fall back to {@link #SYNTAX}.
+		 */
+		LANGUAGE
+	}
+
+	private final Equivalence equivalence;
+	private final ConcurrentMap<String, Pattern> patterns = new ConcurrentHashMap<>();
+	private final LongAdder registrations = new LongAdder();
+
+	public PatternRegistry() {
+		this(Equivalence.SYNTAX);
+	}
+
+	public PatternRegistry(Equivalence equivalence) {
+		this.equivalence = equivalence;
+	}
+
+	public Pattern register(String pattern) {
+		return register(pattern, 0);
+	}
+
+	/**
+	 * Patterns are only shared between registrations with the same flags, so the returned
+	 * pattern's {@link Pattern#flags()} are always {@code flags}.
+	 *
+	 * @return the shared pattern for {@code pattern}, compiled now if nothing equivalent was
+	 * registered with the same flags
+	 */
+	public Pattern register(String pattern, int flags) {
+		registrations.increment();
+		return patterns.computeIfAbsent(key(pattern, flags), key -> Pattern.compile(pattern, flags));
+	}
+
+	private String key(String pattern, int flags) {
+		Node root = new RegexpParser(new RegexpTokenizer(pattern)).parse();
+		if ((flags & Pattern.CASE_INSENSITIVE) != 0) {
+			root = CaseFolder.fold(root);
+		}
+		String prefix = Integer.toHexString(flags) + ':';
+
+		if (equivalence == Equivalence.LANGUAGE) {
+			Dfa dfa = DfaBuilder.build(NfaBuilder.build(root));
+			if (dfa != null) {
+				return prefix + "L" + DfaMinimizer.signature(dfa);
+			}
+		}
+		return prefix + "S" + NodeCanonicalizer.key(root);
+	}
+
+	public Equivalence equivalence() {
+		return equivalence;
+	}
+
+	public long getRegistrations() {
+		return registrations.sum();
+	}
+
+	/**
+	 * @return the number of distinct compiled patterns
+	 */
+	public int getCompiled() {
+		return patterns.size();
+	}
+
+	/**
+	 * @return the share of registrations that reused an already compiled pattern
+	 */
+	public double getDedupRatio() {
+		long total = getRegistrations();
+		return total == 0 ? 0 : (double) (total - getCompiled()) / total;
+	}
+
+	@Override
+	public void close() {
+		patterns.values().forEach(Pattern::close);
+		patterns.clear();
+	}
+
+	@Override
+	public String toString() {
+		return "PatternRegistry{equivalence=" + equivalence
+				+ ", registrations=" + getRegistrations()
+				+ ", compiled=" + getCompiled()
+				+ ", dedupRatio=" + getDedupRatio() + "}";
+	}
+}
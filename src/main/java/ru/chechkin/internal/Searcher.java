@@ -0,0 +1,103 @@
+package ru.chechkin.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leftmost‑longest search, and the split and replace operations built on it.
+ *
+ * <p>Like {@link java.util.regex.Matcher#find()}, iteration resumes where the previous match
+ * ended, and one character past an empty match so that it cannot repeat. Replacement streams the
+ * output straight into the caller's {@link Appendable} ({@link StringBuilder}, {@link java.nio.CharBuffer},
+ * a {@link java.io.Writer}), and split returns {@link TextSlice} views over the input, so neither
+ * builds intermediate strings.
+ */
+public interface Searcher {
+	/**
+	 * Finds the leftmost‑longest match starting at or after {@code from}.
+	 *
+	 * @return the match, or {@code null} if there is none
+	 */
+	MatchSpan find(CharSequence text, int from);
+
+	/**
+	 * Writes {@code input} to {@code out} with every match replaced by {@code replacement}.
+	 *
+	 * @throws UncheckedIOException if {@code out} fails
+	 */
+	default <A extends Appendable> A replaceAll(CharSequence input, CharSequence replacement, A out) {
+		return replace(input, replacement, out, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Writes {@code input} to {@code out} with the first match replaced by {@code replacement}.
+	 *
+	 * @throws UncheckedIOException if {@code out} fails
+	 */
+	default <A extends Appendable> A replaceFirst(CharSequence input, CharSequence replacement, A out) {
+		return replace(input, replacement, out, 1);
+	}
+
+	private <A extends Appendable> A replace(CharSequence input, CharSequence replacement, A out, int limit) {
+		try {
+			int copied = 0;
+			int from = 0;
+			for (int replaced = 0; replaced < limit && from <= input.length(); replaced++) {
+				MatchSpan match = find(input, from);
+				if (match == null) {
+					break;
+				}
+				out.append(input, copied, match.start()).append(replacement);
+				copied = match.end();
+				from = match.end();
+				if (match.length() == 0) {
+					if (match.end() == input.length()) {
+						break;
+					}
+					out.append(input.charAt(match.end()));
+					copied++;
+					from++;
+				}
+			}
+			out.append(input, copied, input.length());
+			return out;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Splits {@code input} around matches with the rules of {@link String#split(String)}: no
+	 * leading empty part for an empty match at the start, and no trailing empty parts.
+	 */
+	default List<CharSequence> split(CharSequence input) {
+		List<CharSequence> parts = new ArrayList<>();
+		int partStart = 0;
+		int from = 0;
+		while (from <= input.length()) {
+			MatchSpan match = find(input, from);
+			if (match == null) {
+				break;
+			}
+			from = match.length() == 0 ? match.end() + 1 : match.end();
+			if (match.end() == 0) {
+				continue;
+			}
+			parts.add(new TextSlice(input, partStart, match.start()));
+			partStart = match.end();
+		}
+
+		if (parts.isEmpty()) {
+			return List.of(input);
+		}
+		parts.add(new TextSlice(input, partStart, input.length()));
+
+		int size = parts.size();
+		while (size > 0 && parts.get(size - 1).length() == 0) {
+			size--;
+		}
+		return parts.subList(0, size);
+	}
+}
@@ -0,0 +1,54 @@
+package ru.chechkin.internal;
+
+/**
+ * A window onto {@code text[start, end)} that copies nothing until {@link #toString()}.
+ * The slice reflects the underlying text, so it must not outlive changes to a mutable source.
+ */
+public final class TextSlice implements CharSequence {
+	private final CharSequence text;
+	private final int start;
+	private final int end;
+
+	public TextSlice(CharSequence text, int start, int end) {
+		if (start < 0 || start > end || end > text.length()) {
+			throw new IndexOutOfBoundsException("Slice [" + start + ", " + end + ") outside [0, " + text.length() + "]");
+		}
+		this.text = text;
+		this.start = start;
+		this.end = end;
+	}
+
+	public int start() {
+		return start;
+	}
+
+	public int end() {
+		return end;
+	}
+
+	@Override
+	public int length() {
+		return end - start;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= length()) {
+			throw new IndexOutOfBoundsException("Index " + index + " outside [0, " + length() + ")");
+		}
+		return text.charAt(start + index);
+	}
+
+	@Override
+	public CharSequence subSequence(int from, int to) {
+		if (from < 0 || from > to || to > length()) {
+			throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") outside [0, " + length() + "]");
+		}
+		return new TextSlice(text, start + from, start + to);
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder(length()).append(text, start, end).toString();
+	}
+}
@@ -0,0 +1,39 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.Matcher;
+import ru.chechkin.internal.metrics.PatternMetrics;
+
+/**
+ * Whole‑input matching on the DFA, falling back to NFA simulation for patterns whose DFA was
+ * too large to build. Every fallback is reported to {@link PatternMetrics#recordFallback()}.
+ */
+public class AutomatonMatcher implements Matcher {
+	private final CompiledAutomaton automaton;
+	private final PatternMetrics metrics;
+
+	public AutomatonMatcher(CompiledAutomaton automaton, PatternMetrics metrics) {
+		this.automaton = automaton;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public boolean match(String text) {
+		if (text == null) {
+			return false;
+		}
+
+		automaton.ensureNotFreed();
+		Dfa dfa = automaton.getDfa();
+		if (dfa != null) {
+			return dfa.matches(text, metrics);
+		}
+
+		metrics.recordFallback();
+		return new NfaSimulator(automaton.getNfa()).matches(text, metrics);
+	}
+
+	@Override
+	public boolean canMatchPrefix(String prefix) {
+		return new PrefixMatcher(automaton, metrics).append(prefix);
+	}
+}
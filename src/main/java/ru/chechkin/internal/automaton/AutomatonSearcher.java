@@ -0,0 +1,35 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.MatchSpan;
+import ru.chechkin.internal.Searcher;
+import ru.chechkin.internal.metrics.PatternMetrics;
+
+/**
+ * Searches with {@link DfaSearcher}, falling back to {@link NfaSearcher} for patterns without
+ * search DFAs. Every fallback is reported to {@link PatternMetrics#recordFallback()}.
+ */
+public class AutomatonSearcher implements Searcher {
+	private final SearchAutomaton automaton;
+	private final Searcher delegate;
+	private final PatternMetrics metrics;
+
+	public AutomatonSearcher(SearchAutomaton automaton, PatternMetrics metrics) {
+		this.automaton = automaton;
+		this.delegate = automaton.hasDfa()
+				? new DfaSearcher(automaton.getForwardDfa(), automaton.getReverseDfa())
+				: new NfaSearcher(automaton.getNfa());
+		this.metrics = metrics;
+	}
+
+	@Override
+	public MatchSpan find(CharSequence text, int from) {
+		if (from < 0 || from > text.length()) {
+			throw new IndexOutOfBoundsException("from " + from + " outside [0, " + text.length() + "]");
+		}
+		automaton.ensureNotFreed();
+		if (!automaton.hasDfa()) {
+			metrics.recordFallback();
+		}
+		return delegate.find(text, from);
+	}
+}
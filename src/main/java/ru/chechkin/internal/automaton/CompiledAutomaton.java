@@ -0,0 +1,85 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.ir.CompactRegexp;
+import ru.chechkin.internal.parser.node.Node;
+
+/**
+ * The automata compiled for one pattern: always an {@link Nfa}, and a {@link Dfa} when subset
+ * construction stays within its state budget.
+ */
+public final class CompiledAutomaton {
+	private final Nfa nfa;
+	private final Dfa dfa;
+	private volatile boolean freed;
+
+	private CompiledAutomaton(Nfa nfa, Dfa dfa) {
+		this.nfa = nfa;
+		this.dfa = dfa;
+	}
+
+	public static CompiledAutomaton compile(Node node) {
+		return compile(node, DfaBuilder.DEFAULT_MAX_STATES);
+	}
+
+	public static CompiledAutomaton compile(Node node, int maxDfaStates) {
+		Nfa nfa = NfaBuilder.build(node);
+		return new CompiledAutomaton(nfa, DfaBuilder.build(nfa, maxDfaStates));
+	}
+
+	/**
+	 * @return an automaton with only the NFA, which is cheap to build; see {@link #withDfa(int)}
+	 */
+	public static CompiledAutomaton interpreted(CompactRegexp ir) {
+		return new CompiledAutomaton(NfaBuilder.build(ir), null);
+	}
+
+	/**
+	 * @return a copy with the DFA built from this automaton's NFA, or {@code null} in its place if
+	 * subset construction exceeds {@code maxDfaStates}
+	 */
+	public CompiledAutomaton withDfa(int maxDfaStates) {
+		return new CompiledAutomaton(nfa, DfaBuilder.build(nfa, maxDfaStates));
+	}
+
+	public Nfa getNfa() {
+		return nfa;
+	}
+
+	/**
+	 * @return the DFA, or {@code null} if the pattern exceeded the DFA state budget
+	 */
+	public Dfa getDfa() {
+		return dfa;
+	}
+
+	/**
+	 * @throws IllegalStateException if the automaton has been {@linkplain #free() freed}
+	 */
+	public void ensureNotFreed() {
+		if (freed) {
+			throw new IllegalStateException("Automaton has been freed");
+		}
+	}
+
+	public boolean hasDfa() {
+		return dfa != null;
+	}
+
+	/**
+	 * @return a copy with the DFA table {@linkplain Dfa#toOffHeap() off‑heap}
+	 */
+	public CompiledAutomaton toOffHeap() {
+		return dfa == null ? this : new CompiledAutomaton(nfa, dfa.toOffHeap());
+	}
+
+	/**
+	 * Releases off‑heap tables once the matches in progress are done; matches started afterwards
+	 * throw {@link IllegalStateException}.
+	 */
+	public void free() {
+		freed = true;
+		if (dfa != null) {
+			dfa.free();
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package ru.chechkin.internal.automaton;
+
+import java.util.Arrays;
+
+/**
+ * The counts of all threads inside one {@link Nfa#COUNTER} state, stored as the text positions
+ * at which those threads entered it, oldest first. Every thread in a counter consumes the same
+ * characters, so a count is just {@code position - entry}: advancing all threads costs nothing,
+ * and dropping threads that went past the maximum only ever touches the oldest entries.
+ *
+ * <p>For searching, each entry also carries the earliest position where a thread behind it
+ * started. Two monotone queues keep the least start over all entries and over those old enough
+ * to exit, so both are O(1) amortized per step.
+ */
+final class CountingSet {
+	private int[] entries = new int[4];
+	private int[] starts = new int[4];
+	private int mask = 3;
+	/**
+	 * Sequence numbers of the oldest and one past the newest entry; slot is {@code seq & mask}.
+	 */
+	private int first;
+	private int end;
+
+	/**
+	 * Entries with the least start among all younger ones, oldest first.
+	 */
+	private int[] lows = new int[4];
+	private int lowsHead;
+	private int lowsTail;
+
+	/**
+	 * The same over the entries old enough to exit, up to {@code eligible}; bounded counters only.
+	 */
+	private int[] exits = new int[4];
+	private int exitsHead;
+	private int exitsTail;
+	private int eligible;
+
+	void clear() {
+		first = end = 0;
+		lowsHead = lowsTail = 0;
+		exitsHead = exitsTail = 0;
+		eligible = 0;
+	}
+
+	boolean isEmpty() {
+		return first == end;
+	}
+
+	/**
+	 * @return whether a thread entering at {@code position} was new
+	 */
+	boolean enter(int position) {
+		return enter(position, 0);
+	}
+
+	/**
+	 * @return whether a thread entering at {@code position} from {@code start} was new, or lowered
+	 * the start of one that entered at the same position
+	 */
+	boolean enter(int position, int start) {
+		if (!isEmpty() && entries[(end - 1) & mask] == position) {
+			int last = end - 1;
+			if (start >= starts[last & mask]) {
+				return false;
+			}
+			// the newest entry is always the last one queued, so re-queuing keeps both queues monotone
+			starts[last & mask] = start;
+			lowsTail = push(lows, lowsHead, lowsTail - 1, last);
+			if (last < eligible) {
+				exitsTail = push(exits, exitsHead, exitsTail - 1, last);
+			}
+			return true;
+		}
+		if (end - first == entries.length) {
+			grow();
+		}
+		entries[end & mask] = position;
+		starts[end & mask] = start;
+		lowsTail = push(lows, lowsHead, lowsTail, end);
+		end++;
+		return true;
+	}
+
+	/**
+	 * Drops the threads whose count at {@code position} exceeds {@code max}. For an unbounded
+	 * counter ({@code max < 0}) threads that reached {@code min} are interchangeable, so only the
+	 * youngest of them is kept, with the earliest start among them.
+	 */
+	void expire(int position, int min, int max) {
+		if (max >= 0) {
+			while (!isEmpty() && position - entries[first & mask] > max) {
+				removeOldest();
+			}
+		} else {
+			while (end - first > 1 && position - entries[(first + 1) & mask] >= min) {
+				int start = starts[first & mask];
+				removeOldest();
+				mergeStart(start);
+			}
+		}
+	}
+
+	/**
+	 * Drops every thread that entered before {@code position}.
+	 */
+	void retainFrom(int position) {
+		while (!isEmpty() && entries[first & mask] < position) {
+			removeOldest();
+		}
+	}
+
+	/**
+	 * @return the largest count at {@code position}, or {@code -1} if the set is empty
+	 */
+	int maxCount(int position) {
+		return isEmpty() ? -1 : position - entries[first & mask];
+	}
+
+	/**
+	 * @return the earliest start of any thread in the set, or {@link Integer#MAX_VALUE} if it is
+	 * empty
+	 */
+	int minStart() {
+		return lowsHead == lowsTail ? Integer.MAX_VALUE : starts[lows[lowsHead & mask] & mask];
+	}
+
+	/**
+	 * @return the earliest start of the threads whose count at {@code position} is at least
+	 * {@code min}, after {@link #expire} has dropped those past {@code max}; {@code -1} if there
+	 * are none
+	 */
+	int exitStart(int position, int min, int max) {
+		if (max < 0) {
+			return maxCount(position) >= min ? starts[first & mask] : -1;
+		}
+		eligible = Math.max(eligible, first);
+		while (eligible < end && position - entries[eligible & mask] >= min) {
+			exitsTail = push(exits, exitsHead, exitsTail, eligible++);
+		}
+		return exitsHead == exitsTail ? -1 : starts[exits[exitsHead & mask] & mask];
+	}
+
+	/**
+	 * Appends {@code seq} at {@code tail}, first dropping the entries before it whose start is not
+	 * lower.
+	 *
+	 * @return the new tail
+	 */
+	private int push(int[] queue, int head, int tail, int seq) {
+		int start = starts[seq & mask];
+		while (tail > head && starts[queue[(tail - 1) & mask] & mask] >= start) {
+			tail--;
+		}
+		queue[tail & mask] = seq;
+		return tail + 1;
+	}
+
+	/**
+	 * Folds the start of a dropped oldest entry into the new oldest one. Being the oldest, it can
+	 * only be queued at the head of {@link #lows}, and is queued there once its start is the least.
+	 */
+	private void mergeStart(int start) {
+		if (start >= starts[first & mask]) {
+			return;
+		}
+		starts[first & mask] = start;
+		boolean queued = lowsHead != lowsTail && lows[lowsHead & mask] == first;
+		if (!queued && (lowsHead == lowsTail || start < starts[lows[lowsHead & mask] & mask])) {
+			lows[--lowsHead & mask] = first;
+		}
+	}
+
+	private void removeOldest() {
+		if (lowsHead != lowsTail && lows[lowsHead & mask] == first) {
+			lowsHead++;
+		}
+		if (exitsHead != exitsTail && exits[exitsHead & mask] == first) {
+			exitsHead++;
+		}
+		first++;
+	}
+
+	private void grow() {
+		int capacity = entries.length * 2;
+		int[] grownEntries = new int[capacity];
+		int[] grownStarts = new int[capacity];
+		int[] grownLows = new int[capacity];
+		int[] grownExits = new int[capacity];
+		int grownMask = capacity - 1;
+		for (int seq = first; seq < end; seq++) {
+			grownEntries[seq & grownMask] = entries[seq & mask];
+			grownStarts[seq & grownMask] = starts[seq & mask];
+		}
+		for (int idx = lowsHead; idx < lowsTail; idx++) {
+			grownLows[idx & grownMask] = lows[idx & mask];
+		}
+		for (int idx = exitsHead; idx < exitsTail; idx++) {
+			grownExits[idx & grownMask] = exits[idx & mask];
+		}
+		entries = grownEntries;
+		starts = grownStarts;
+		lows = grownLows;
+		exits = grownExits;
+		mask = grownMask;
+	}
+
+	@Override
+	public String toString() {
+		int[] snapshot = new int[end - first];
+		for (int seq = first; seq < end; seq++) {
+			snapshot[seq - first] = entries[seq & mask];
+		}
+		return "CountingSet" + Arrays.toString(snapshot);
+	}
+}
@@ -0,0 +1,346 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.charset.AlphabetPartition;
+import ru.chechkin.internal.metrics.PatternMetrics;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable DFA whose transition table is indexed by alphabet class id rather than by character:
+ * row {@code s} occupies {@code table[s * classCount, (s + 1) * classCount)}.
+ * State {@link #DEAD} has no way to accept and loops on itself.
+ *
+ * <p>{@link #canAccept(int)} and {@link #acceptsEverything(int)} classify states by what inputs
+ * can still do from them; both come from one backward reachability pass, run on first use.
+ *
+ * <p>The table is an {@code int[]} on the heap, or after {@link #toOffHeap()} a direct buffer read
+ * in place, which keeps large rule sets out of the collector's way. Transitions are read through a
+ * {@link Reader}, opened once per run, which holds a use count on an off‑heap table: {@link #free()}
+ * releases the memory once the runs in progress are done, and readers opened after it throw
+ * {@link IllegalStateException} instead of touching freed memory. Single transitions cost no
+ * atomics.
+ */
+public final class Dfa {
+	public static final int DEAD = 0;
+	public static final int NO_RULE = -1;
+
+	private static final int FREED = Integer.MIN_VALUE;
+
+	private final AlphabetPartition partition;
+	private final int classCount;
+	private final int[] table;
+	private final ByteBuffer offHeapMemory;
+	private final IntBuffer offHeapTable;
+	/**
+	 * Reads in progress on the off‑heap table, with {@link #FREED} set once it has been freed.
+	 */
+	private final AtomicInteger offHeapUsers;
+	private final int[] acceptRules;
+	private final int start;
+	private volatile Reachability reachability;
+
+	/**
+	 * @param live whether some input leads from the state to acceptance
+	 * @param universal whether every input, including the empty one, leads to acceptance
+	 */
+	private record Reachability(boolean[] live, boolean[] universal) {
+	}
+
+	Dfa(AlphabetPartition partition, int[] table, boolean[] accepting, int start) {
+		this(partition, table, null, acceptRules(accepting), start);
+	}
+
+	Dfa(AlphabetPartition partition, int[] table, int[] acceptRules, int start) {
+		this(partition, table, null, acceptRules, start);
+	}
+
+	private Dfa(AlphabetPartition partition, int[] table, ByteBuffer offHeapMemory, int[] acceptRules, int start) {
+		this.partition = partition;
+		this.classCount = partition.classCount();
+		this.table = table;
+		this.offHeapMemory = offHeapMemory;
+		this.offHeapTable = offHeapMemory == null ? null : offHeapMemory.asIntBuffer();
+		this.offHeapUsers = offHeapMemory == null ? null : new AtomicInteger();
+		this.acceptRules = acceptRules;
+		this.start = start;
+	}
+
+	private static int[] acceptRules(boolean[] accepting) {
+		int[] rules = new int[accepting.length];
+		for (int state = 0; state < accepting.length; state++) {
+			rules[state] = accepting[state] ? 0 : NO_RULE;
+		}
+		return rules;
+	}
+
+	/**
+	 * @return a copy whose transition table lives in a direct buffer; {@link #free()} releases it
+	 */
+	public Dfa toOffHeap() {
+		if (table == null) {
+			return this;
+		}
+		ByteBuffer memory = OffHeapMemory.allocate(tableBytes());
+		memory.asIntBuffer().put(table);
+		return new Dfa(partition, null, memory, acceptRules, start);
+	}
+
+	public boolean isOffHeap() {
+		return table == null;
+	}
+
+	/**
+	 * Releases an off‑heap table as soon as no read is in progress; reads started afterwards throw
+	 * {@link IllegalStateException}. On‑heap DFAs are unaffected. Freeing twice has no effect.
+	 */
+	public void free() {
+		if (offHeapUsers == null) {
+			return;
+		}
+		int users = offHeapUsers.getAndUpdate(current -> current | FREED);
+		if (users == 0) {
+			OffHeapMemory.free(offHeapMemory);
+		}
+	}
+
+	public boolean isFreed() {
+		return offHeapUsers != null && offHeapUsers.get() < 0;
+	}
+
+	private void acquire() {
+		while (true) {
+			int users = offHeapUsers.get();
+			if (users < 0) {
+				throw new IllegalStateException("Off-heap DFA table has been freed");
+			}
+			if (offHeapUsers.compareAndSet(users, users + 1)) {
+				return;
+			}
+		}
+	}
+
+	private void release() {
+		if (offHeapUsers.decrementAndGet() == FREED) {
+			OffHeapMemory.free(offHeapMemory);
+		}
+	}
+
+	public int start() {
+		return start;
+	}
+
+	/**
+	 * Opens a run over the transition table; close it when the run is done.
+	 *
+	 * @throws IllegalStateException if the off‑heap table has been {@linkplain #free() freed}
+	 */
+	public Reader reader() {
+		if (table == null) {
+			acquire();
+		}
+		return new Reader();
+	}
+
+	/**
+	 * Reads transitions for one run. For an off‑heap table it keeps the memory from being freed
+	 * until {@link #close()}. Not thread‑safe.
+	 */
+	public final class Reader implements AutoCloseable {
+		private boolean closed;
+
+		private Reader() {
+		}
+
+		public int next(int state, char c) {
+			return target(state, partition.classOf(c));
+		}
+
+		public int target(int state, int classId) {
+			return Dfa.this.target(state, classId);
+		}
+
+		/**
+		 * Ends the run; closing twice has no effect.
+		 */
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				if (table == null) {
+					release();
+				}
+			}
+		}
+	}
+
+	public boolean isAccepting(int state) {
+		return acceptRules[state] != NO_RULE;
+	}
+
+	/**
+	 * @return the index of the earliest rule {@code state} accepts, or {@link #NO_RULE}
+	 */
+	public int acceptRule(int state) {
+		return acceptRules[state];
+	}
+
+	/**
+	 * @return whether some continuation, possibly empty, is accepted from {@code state}; when
+	 * {@code false} the state is dead in effect even if it is not {@link #DEAD}
+	 */
+	public boolean canAccept(int state) {
+		return reachability().live()[state];
+	}
+
+	/**
+	 * @return whether every continuation is accepted from {@code state}, so more input cannot
+	 * change the outcome
+	 */
+	public boolean acceptsEverything(int state) {
+		return reachability().universal()[state];
+	}
+
+	private Reachability reachability() {
+		Reachability result = reachability;
+		if (result == null) {
+			try (Reader reader = reader()) {
+				result = computeReachability(reader);
+			}
+			reachability = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Walks the reversed transition graph from the accepting states (live) and from the rejecting
+	 * ones (not universal).
+	 */
+	private Reachability computeReachability(Reader reader) {
+		int states = stateCount();
+		int[] predecessorStart = new int[states + 1];
+		for (int state = 0; state < states; state++) {
+			for (int classId = 0; classId < classCount; classId++) {
+				predecessorStart[reader.target(state, classId) + 1]++;
+			}
+		}
+		for (int state = 0; state < states; state++) {
+			predecessorStart[state + 1] += predecessorStart[state];
+		}
+		int[] predecessors = new int[states * classCount];
+		int[] fill = Arrays.copyOf(predecessorStart, states);
+		for (int state = 0; state < states; state++) {
+			for (int classId = 0; classId < classCount; classId++) {
+				predecessors[fill[reader.target(state, classId)]++] = state;
+			}
+		}
+
+		boolean[] live = new boolean[states];
+		boolean[] rejecting = new boolean[states];
+		for (int state = 0; state < states; state++) {
+			live[state] = isAccepting(state);
+			rejecting[state] = !isAccepting(state);
+		}
+		propagate(live, predecessorStart, predecessors);
+		propagate(rejecting, predecessorStart, predecessors);
+
+		boolean[] universal = new boolean[states];
+		for (int state = 0; state < states; state++) {
+			universal[state] = !rejecting[state];
+		}
+		return new Reachability(live, universal);
+	}
+
+	private static void propagate(boolean[] marked, int[] predecessorStart, int[] predecessors) {
+		int[] queue = new int[marked.length];
+		int tail = 0;
+		for (int state = 0; state < marked.length; state++) {
+			if (marked[state]) {
+				queue[tail++] = state;
+			}
+		}
+		for (int head = 0; head < tail; head++) {
+			int state = queue[head];
+			for (int idx = predecessorStart[state]; idx < predecessorStart[state + 1]; idx++) {
+				int predecessor = predecessors[idx];
+				if (!marked[predecessor]) {
+					marked[predecessor] = true;
+					queue[tail++] = predecessor;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Callers of an off‑heap table must hold a {@link Reader}.
+	 */
+	private int target(int state, int classId) {
+		int index = state * classCount + classId;
+		return table != null ? table[index] : offHeapTable.get(index);
+	}
+
+	public int stateCount() {
+		return acceptRules.length;
+	}
+
+	public AlphabetPartition partition() {
+		return partition;
+	}
+
+	public boolean matches(CharSequence text) {
+		return matches(text, PatternMetrics.DISABLED);
+	}
+
+	/**
+	 * Records to {@code metrics} the characters read, which stop at the first one leading to the
+	 * dead state.
+	 */
+	public boolean matches(CharSequence text, PatternMetrics metrics) {
+		if (table == null) {
+			return matchesOffHeap(text, metrics);
+		}
+		int state = start;
+		for (int idx = 0; idx < text.length(); idx++) {
+			state = table[state * classCount + partition.classOf(text.charAt(idx))];
+			if (state == DEAD) {
+				metrics.recordScanned(idx + 1);
+				return false;
+			}
+		}
+		metrics.recordScanned(text.length());
+		return acceptRules[state] != NO_RULE;
+	}
+
+	private boolean matchesOffHeap(CharSequence text, PatternMetrics metrics) {
+		acquire();
+		try {
+			IntBuffer offHeap = offHeapTable;
+			int state = start;
+			for (int idx = 0; idx < text.length(); idx++) {
+				state = offHeap.get(state * classCount + partition.classOf(text.charAt(idx)));
+				if (state == DEAD) {
+					metrics.recordScanned(idx + 1);
+					return false;
+				}
+			}
+			metrics.recordScanned(text.length());
+			return acceptRules[state] != NO_RULE;
+		} finally {
+			release();
+		}
+	}
+
+	/**
+	 * @return the size of the transition table in bytes
+	 */
+	public long tableBytes() {
+		return 4L * stateCount() * classCount;
+	}
+
+	@Override
+	public String toString() {
+		return "Dfa{states=" + stateCount() + ", classes=" + classCount + (isOffHeap() ? ", off-heap" : "") + "}";
+	}
+}
@@ -0,0 +1,179 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.charset.AlphabetPartition;
+import ru.chechkin.internal.charset.CharClass;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Subset construction of a {@link Dfa} from an {@link Nfa}, one row per alphabet class.
+ *
+ * <p>A DFA state is identified by the sorted set of CHAR and MATCH states in its ε‑closure; the
+ * ε states themselves never influence what happens next. Construction gives up and returns
+ * {@code null} once {@code maxStates} is exceeded, leaving the caller to simulate the NFA. An NFA
+ * with {@link Nfa#COUNTER} states is {@linkplain Nfa#withoutCounters(int) unrolled} first, so
+ * small bounds such as {@code [ab]{17}} still get a DFA while large ones give up before any
+ * subset is built.
+ *
+ * <p>A state reaching MATCH states of several rules accepts the earliest of them, which makes the
+ * DFA of {@link NfaBuilder#buildRules(List)} resolve ties the way a lexer does.
+ */
+public class DfaBuilder {
+	public static final int DEFAULT_MAX_STATES = 10_000;
+
+	private final Nfa nfa;
+	private final AlphabetPartition partition;
+	private final int classCount;
+	private final int maxStates;
+
+	private final Map<CharClass, int[]> classesByLabel = new IdentityHashMap<>();
+	private final Map<StateSet, Integer> ids = new HashMap<>();
+	private final List<int[]> sets = new ArrayList<>();
+	private final List<Integer> acceptRules = new ArrayList<>();
+
+	private final SparseSet closure;
+	private final int[] stack;
+	private final int[][] targets;
+	private final int[] targetCounts;
+
+	private DfaBuilder(Nfa nfa, int maxStates) {
+		this.nfa = nfa;
+		this.partition = nfa.partition();
+		this.classCount = partition.classCount();
+		this.maxStates = maxStates;
+		this.closure = new SparseSet(nfa.stateCount());
+		this.stack = new int[nfa.stateCount()];
+		this.targets = new int[classCount][];
+		this.targetCounts = new int[classCount];
+	}
+
+	public static Dfa build(Nfa nfa) {
+		return build(nfa, DEFAULT_MAX_STATES);
+	}
+
+	/**
+	 * @return the DFA, or {@code null} if it would have more than {@code maxStates} states
+	 */
+	public static Dfa build(Nfa nfa, int maxStates) {
+		Nfa unrolled = nfa.withoutCounters(maxStates);
+		if (unrolled == null) {
+			return null;
+		}
+		return new DfaBuilder(unrolled, maxStates).build();
+	}
+
+	private Dfa build() {
+		intern(new int[0]);
+
+		closure.clear();
+		nfa.addClosure(closure, nfa.start(), stack);
+		int start = intern(important(closure));
+
+		int[] table = new int[classCount * 16];
+		for (int state = 0; state < sets.size(); state++) {
+			if (sets.size() > maxStates) {
+				return null;
+			}
+			if ((state + 1) * classCount > table.length) {
+				table = Arrays.copyOf(table, table.length * 2);
+			}
+			step(state, table);
+		}
+
+		int[] acceptRuleArray = new int[sets.size()];
+		for (int idx = 0; idx < acceptRuleArray.length; idx++) {
+			acceptRuleArray[idx] = acceptRules.get(idx);
+		}
+		return new Dfa(partition, Arrays.copyOf(table, sets.size() * classCount), acceptRuleArray, start);
+	}
+
+	/**
+	 * Fills the row of {@code state}: every CHAR state contributes its target to the buckets of the
+	 * classes its label covers, then each bucket is closed and interned.
+	 */
+	private void step(int state, int[] table) {
+		for (int nfaState : sets.get(state)) {
+			if (nfa.kind(nfaState) != Nfa.CHAR) {
+				continue;
+			}
+			for (int classId : classesOf(nfa.label(nfaState))) {
+				if (targets[classId] == null) {
+					targets[classId] = new int[4];
+				} else if (targetCounts[classId] == targets[classId].length) {
+					targets[classId] = Arrays.copyOf(targets[classId], targetCounts[classId] * 2);
+				}
+				targets[classId][targetCounts[classId]++] = nfa.out(nfaState);
+			}
+		}
+
+		int row = state * classCount;
+		for (int classId = 0; classId < classCount; classId++) {
+			int count = targetCounts[classId];
+			if (count == 0) {
+				table[row + classId] = Dfa.DEAD;
+				continue;
+			}
+			closure.clear();
+			for (int idx = 0; idx < count; idx++) {
+				nfa.addClosure(closure, targets[classId][idx], stack);
+			}
+			targetCounts[classId] = 0;
+			table[row + classId] = intern(important(closure));
+		}
+	}
+
+	private int[] classesOf(CharClass label) {
+		return classesByLabel.computeIfAbsent(label, partition::classesOf);
+	}
+
+	private int[] important(SparseSet set) {
+		int[] states = new int[set.size()];
+		int count = 0;
+		for (int idx = 0; idx < set.size(); idx++) {
+			int state = set.get(idx);
+			int kind = nfa.kind(state);
+			if (kind == Nfa.CHAR || kind == Nfa.MATCH) {
+				states[count++] = state;
+			}
+		}
+		states = Arrays.copyOf(states, count);
+		Arrays.sort(states);
+		return states;
+	}
+
+	private int intern(int[] states) {
+		StateSet key = new StateSet(states);
+		Integer id = ids.get(key);
+		if (id != null) {
+			return id;
+		}
+		id = sets.size();
+		ids.put(key, id);
+		sets.add(states);
+		int acceptRule = Dfa.NO_RULE;
+		for (int state : states) {
+			if (nfa.kind(state) == Nfa.MATCH && (acceptRule == Dfa.NO_RULE || nfa.alt(state) < acceptRule)) {
+				acceptRule = nfa.alt(state);
+			}
+		}
+		acceptRules.add(acceptRule);
+		return id;
+	}
+
+	private record StateSet(int[] states) {
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof StateSet other && Arrays.equals(states, other.states);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(states);
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.charset.AlphabetPartition;
+import ru.chechkin.internal.charset.CharClass;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimizes a {@link Dfa} by Moore's partition refinement: states start grouped by the rule they
+ * accept and are split by the groups of their targets until no group splits.
+ *
+ * <p>{@link #signature(Dfa)} prints the minimal DFA in a form that depends only on the language:
+ * alphabet classes with identical columns are merged and spelled out as character ranges, and
+ * states are numbered in breadth‑first order from the start. Two DFAs accept the same strings
+ * exactly when their signatures are equal.
+ */
+public final class DfaMinimizer {
+	private DfaMinimizer() {
+	}
+
+	public static Dfa minimize(Dfa dfa) {
+		try (Dfa.Reader reader = dfa.reader()) {
+			return minimize(dfa, reader);
+		}
+	}
+
+	private static Dfa minimize(Dfa dfa, Dfa.Reader reader) {
+		int stateCount = dfa.stateCount();
+		int classCount = dfa.partition().classCount();
+
+		int[] blocks = new int[stateCount];
+		int blockCount = refine(dfa, reader, blocks, initialBlocks(dfa, blocks));
+
+		// keep the dead state's block at DEAD
+		int deadBlock = blocks[Dfa.DEAD];
+		int[] table = new int[blockCount * classCount];
+		int[] acceptRules = new int[blockCount];
+		for (int state = 0; state < stateCount; state++) {
+			int block = renumber(blocks[state], deadBlock);
+			acceptRules[block] = dfa.acceptRule(state);
+			for (int classId = 0; classId < classCount; classId++) {
+				table[block * classCount + classId] = renumber(blocks[reader.target(state, classId)], deadBlock);
+			}
+		}
+		return new Dfa(dfa.partition(), table, acceptRules, renumber(blocks[dfa.start()], deadBlock));
+	}
+
+	/**
+	 * @return a string equal for two DFAs exactly when they accept the same strings with the same
+	 * rules
+	 */
+	public static String signature(Dfa dfa) {
+		Dfa minimal = minimize(dfa);
+		AlphabetPartition partition = minimal.partition();
+		int stateCount = minimal.stateCount();
+
+		Map<Ints, CharClass> columns = new LinkedHashMap<>();
+		try (Dfa.Reader reader = minimal.reader()) {
+			for (int classId = 0; classId < partition.classCount(); classId++) {
+				int[] column = new int[stateCount];
+				for (int state = 0; state < stateCount; state++) {
+					column[state] = reader.target(state, classId);
+				}
+				columns.merge(new Ints(column), partition.charClass(classId), CharClass::union);
+			}
+		}
+		List<Map.Entry<Ints, CharClass>> merged = new ArrayList<>(columns.entrySet());
+		merged.sort(Comparator.comparingInt(entry -> entry.getValue().rangeStart(0)));
+
+		int[] order = new int[stateCount];
+		Arrays.fill(order, -1);
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		order[minimal.start()] = 0;
+		queue.add(minimal.start());
+		int numbered = 1;
+
+		StringBuilder signature = new StringBuilder();
+		for (Map.Entry<Ints, CharClass> entry : merged) {
+			signature.append(entry.getValue());
+		}
+		while (!queue.isEmpty()) {
+			int state = queue.poll();
+			signature.append(';').append(minimal.acceptRule(state));
+			for (Map.Entry<Ints, CharClass> entry : merged) {
+				int target = entry.getKey().values()[state];
+				if (order[target] < 0) {
+					order[target] = numbered++;
+					queue.add(target);
+				}
+				signature.append(',').append(order[target]);
+			}
+		}
+		return signature.toString();
+	}
+
+	private static int initialBlocks(Dfa dfa, int[] blocks) {
+		Map<Integer, Integer> blockByRule = new HashMap<>();
+		for (int state = 0; state < blocks.length; state++) {
+			blocks[state] = blockByRule.computeIfAbsent(dfa.acceptRule(state), rule -> blockByRule.size());
+		}
+		return blockByRule.size();
+	}
+
+	/**
+	 * Splits {@code blocks} in place until it is stable.
+	 *
+	 * @return the final number of blocks
+	 */
+	private static int refine(Dfa dfa, Dfa.Reader reader, int[] blocks, int blockCount) {
+		int classCount = dfa.partition().classCount();
+		int[] next = new int[blocks.length];
+		while (true) {
+			Map<Ints, Integer> ids = new HashMap<>();
+			for (int state = 0; state < blocks.length; state++) {
+				int[] signature = new int[classCount + 1];
+				signature[0] = blocks[state];
+				for (int classId = 0; classId < classCount; classId++) {
+					signature[classId + 1] = blocks[reader.target(state, classId)];
+				}
+				next[state] = ids.computeIfAbsent(new Ints(signature), key -> ids.size());
+			}
+			System.arraycopy(next, 0, blocks, 0, blocks.length);
+			if (ids.size() == blockCount) {
+				return blockCount;
+			}
+			blockCount = ids.size();
+		}
+	}
+
+	private static int renumber(int block, int deadBlock) {
+		if (block == deadBlock) {
+			return Dfa.DEAD;
+		}
+		return block < deadBlock ? block + 1 : block;
+	}
+
+	private record Ints(int[] values) {
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof Ints other && Arrays.equals(values, other.values);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(values);
+		}
+	}
+}
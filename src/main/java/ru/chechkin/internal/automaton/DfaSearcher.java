@@ -0,0 +1,71 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.MatchSpan;
+import ru.chechkin.internal.Searcher;
+
+/**
+ * Leftmost‑longest search in two DFA passes: the forward search DFA scans from {@code from} to
+ * find where the leftmost match ends, then the DFA of the mirrored pattern runs backward from that
+ * end and the last position where it accepts is the start. The backward pass never looks past the
+ * match, so a search costs one scan of the prefix plus one scan of the match.
+ */
+public class DfaSearcher implements Searcher {
+	private final Dfa forward;
+	private final Dfa reverse;
+
+	public DfaSearcher(Dfa forward, Dfa reverse) {
+		this.forward = forward;
+		this.reverse = reverse;
+	}
+
+	@Override
+	public MatchSpan find(CharSequence text, int from) {
+		int end = findEnd(text, from);
+		if (end < 0) {
+			return null;
+		}
+		return new MatchSpan(findStart(text, from, end), end);
+	}
+
+	private int findEnd(CharSequence text, int from) {
+		try (Dfa.Reader reader = forward.reader()) {
+			return findEnd(reader, text, from);
+		}
+	}
+
+	private int findEnd(Dfa.Reader reader, CharSequence text, int from) {
+		int state = forward.start();
+		int end = forward.isAccepting(state) ? from : -1;
+		for (int idx = from; idx < text.length(); idx++) {
+			state = reader.next(state, text.charAt(idx));
+			if (state == Dfa.DEAD) {
+				break;
+			}
+			if (forward.isAccepting(state)) {
+				end = idx + 1;
+			}
+		}
+		return end;
+	}
+
+	private int findStart(CharSequence text, int from, int end) {
+		try (Dfa.Reader reader = reverse.reader()) {
+			return findStart(reader, text, from, end);
+		}
+	}
+
+	private int findStart(Dfa.Reader reader, CharSequence text, int from, int end) {
+		int state = reverse.start();
+		int start = end;
+		for (int idx = end - 1; idx >= from; idx--) {
+			state = reader.next(state, text.charAt(idx));
+			if (state == Dfa.DEAD) {
+				break;
+			}
+			if (reverse.isAccepting(state)) {
+				start = idx;
+			}
+		}
+		return start;
+	}
+}
@@ -0,0 +1,253 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.Matcher;
+import ru.chechkin.internal.charset.AlphabetPartition;
+import ru.chechkin.internal.metrics.PatternMetrics;
+
+import java.util.Arrays;
+
+/**
+ * Approximate whole‑input matching: the text matches if it is within {@code maxErrors}
+ * insertions, deletions and substitutions of some string of the pattern's language.
+ *
+ * <p>This is the Wu–Manber scheme of one active‑state set per error level, generalised from a
+ * linear pattern to the Thompson NFA. Level {@code i} holds the NFA states reachable with at most
+ * {@code i} edits; on each character it takes the exact moves of its own level, plus from level
+ * {@code i - 1} an insertion (stay), a substitution (any move) and, within the new column, a
+ * deletion (move without reading). Sets are bit vectors over NFA states, and the ε‑closure of
+ * every state and the states each alphabet class can leave are precomputed as bit vectors, so a
+ * step is a sequence of word‑wide ORs and ANDs, independent of the number of variants.
+ *
+ * <p>{@link Nfa#COUNTER} states are {@linkplain Nfa#withoutCounters(int) unrolled}, since edits
+ * inside a repeat need a set per count; the unrolled NFA must fit in {@link #MAX_STATES}.
+ *
+ * <p>An instance keeps its level sets between calls and is not thread‑safe.
+ */
+public class FuzzyMatcher implements Matcher {
+	/**
+	 * Closure tables take {@code stateCount² / 8} bytes, which bounds the supported NFA size.
+	 */
+	public static final int MAX_STATES = 4096;
+
+	private final Nfa nfa;
+	private final AlphabetPartition partition;
+	private final int maxErrors;
+	private final PatternMetrics metrics;
+	private final int words;
+
+	private final long[][] closures;
+	private final long[][] leavingByClass;
+	private final long[] charStates;
+	private final long[] liveStates;
+	private final int match;
+
+	private final long[][] levels;
+	private final long[][] next;
+	private final long[] scratch;
+
+	public FuzzyMatcher(Nfa nfa, int maxErrors) {
+		this(nfa, maxErrors, PatternMetrics.DISABLED);
+	}
+
+	/**
+	 * Records to {@code metrics} every {@link #match} and {@link #distance}, with the characters
+	 * read before all levels emptied.
+	 */
+	public FuzzyMatcher(Nfa nfa, int maxErrors, PatternMetrics metrics) {
+		if (maxErrors < 0) {
+			throw new IllegalArgumentException("Error bound must not be negative: " + maxErrors);
+		}
+		Nfa unrolled = nfa.withoutCounters(MAX_STATES);
+		if (unrolled == null) {
+			throw new IllegalStateException("Pattern is too large for fuzzy matching: its counted repetitions unroll to over " + MAX_STATES + " NFA states");
+		}
+		nfa = unrolled;
+		if (nfa.stateCount() > MAX_STATES) {
+			throw new IllegalStateException("Pattern is too large for fuzzy matching: " + nfa.stateCount() + " NFA states");
+		}
+		this.nfa = nfa;
+		this.partition = nfa.partition();
+		this.maxErrors = maxErrors;
+		this.metrics = metrics;
+		this.words = (nfa.stateCount() + 63) >>> 6;
+
+		this.closures = new long[nfa.stateCount()][];
+		SparseSet closure = new SparseSet(nfa.stateCount());
+		int[] stack = new int[nfa.stateCount()];
+		for (int state = 0; state < nfa.stateCount(); state++) {
+			closure.clear();
+			nfa.addClosure(closure, state, stack);
+			closures[state] = new long[words];
+			for (int idx = 0; idx < closure.size(); idx++) {
+				set(closures[state], closure.get(idx));
+			}
+		}
+
+		this.charStates = new long[words];
+		this.liveStates = new long[words];
+		this.leavingByClass = new long[partition.classCount()][words];
+		int matchState = -1;
+		for (int state = 0; state < nfa.stateCount(); state++) {
+			if (nfa.canAccept(state)) {
+				set(liveStates, state);
+			}
+			if (nfa.kind(state) == Nfa.CHAR) {
+				set(charStates, state);
+				for (int classId : partition.classesOf(nfa.label(state))) {
+					set(leavingByClass[classId], state);
+				}
+			} else if (nfa.kind(state) == Nfa.MATCH) {
+				matchState = state;
+			}
+		}
+		this.match = matchState;
+
+		this.levels = new long[maxErrors + 1][words];
+		this.next = new long[maxErrors + 1][words];
+		this.scratch = new long[words];
+	}
+
+	@Override
+	public boolean match(String text) {
+		return text != null && distance(text) >= 0;
+	}
+
+	/**
+	 * @return the smallest edit distance from {@code text} to the language, or {@code -1} if it
+	 * exceeds {@code maxErrors}
+	 */
+	public int distance(CharSequence text) {
+		if (!metrics.isEnabled()) {
+			return distance(run(text, metrics));
+		}
+		long start = System.nanoTime();
+		int distance = distance(run(text, metrics));
+		metrics.recordMatch(distance >= 0, System.nanoTime() - start);
+		return distance;
+	}
+
+	private int distance(long[][] current) {
+		if (current == null) {
+			return -1;
+		}
+		for (int level = 0; level <= maxErrors; level++) {
+			if (get(current[level], match)) {
+				return level;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * A prefix can still be completed within {@code maxErrors} edits exactly when some level holds
+	 * a state that {@linkplain Nfa#canAccept(int) can reach a match}: following its path exactly
+	 * adds no edits, and every other continuation only leads on from states already present.
+	 */
+	@Override
+	public boolean canMatchPrefix(String prefix) {
+		long[][] current = run(prefix, PatternMetrics.DISABLED);
+		if (current == null) {
+			return false;
+		}
+		for (int level = 0; level <= maxErrors; level++) {
+			and(scratch, current[level], liveStates);
+			if (!isEmpty(scratch)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the level sets after {@code text}, or {@code null} once they are all empty
+	 */
+	private long[][] run(CharSequence text, PatternMetrics metrics) {
+		Arrays.fill(levels[0], 0);
+		or(levels[0], closures[nfa.start()]);
+		for (int level = 1; level <= maxErrors; level++) {
+			System.arraycopy(levels[level - 1], 0, levels[level], 0, words);
+			addDeletions(levels[level], levels[level - 1]);
+		}
+
+		long[][] current = levels;
+		long[][] following = next;
+		for (int idx = 0; idx < text.length(); idx++) {
+			long[] leaving = leavingByClass[partition.classOf(text.charAt(idx))];
+			boolean alive = false;
+			for (int level = 0; level <= maxErrors; level++) {
+				long[] target = following[level];
+				Arrays.fill(target, 0);
+
+				and(scratch, current[level], leaving);
+				addMoves(target, scratch);
+
+				if (level > 0) {
+					or(target, current[level - 1]);
+					and(scratch, current[level - 1], charStates);
+					addMoves(target, scratch);
+					addDeletions(target, following[level - 1]);
+				}
+				alive |= !isEmpty(target);
+			}
+			if (!alive) {
+				metrics.recordScanned(idx + 1);
+				return null;
+			}
+			long[][] swap = current;
+			current = following;
+			following = swap;
+		}
+		metrics.recordScanned(text.length());
+		return current;
+	}
+
+	public int maxErrors() {
+		return maxErrors;
+	}
+
+	/**
+	 * Adds the closure of the target of every CHAR state in {@code from}.
+	 */
+	private void addMoves(long[] to, long[] from) {
+		for (int word = 0; word < words; word++) {
+			for (long bits = from[word]; bits != 0; bits &= bits - 1) {
+				int state = (word << 6) + Long.numberOfTrailingZeros(bits);
+				or(to, closures[nfa.out(state)]);
+			}
+		}
+	}
+
+	private void addDeletions(long[] to, long[] from) {
+		and(scratch, from, charStates);
+		addMoves(to, scratch);
+	}
+
+	private void and(long[] to, long[] left, long[] right) {
+		for (int word = 0; word < words; word++) {
+			to[word] = left[word] & right[word];
+		}
+	}
+
+	private void or(long[] to, long[] from) {
+		for (int word = 0; word < words; word++) {
+			to[word] |= from[word];
+		}
+	}
+
+	private boolean isEmpty(long[] set) {
+		for (int word = 0; word < words; word++) {
+			if (set[word] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void set(long[] set, int state) {
+		set[state >>> 6] |= 1L << state;
+	}
+
+	private static boolean get(long[] set, int state) {
+		return (set[state >>> 6] & 1L << state) != 0;
+	}
+}
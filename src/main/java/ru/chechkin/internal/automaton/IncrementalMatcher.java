@@ -0,0 +1,184 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.metrics.PatternMetrics;
+
+import java.util.Arrays;
+
+/**
+ * Whole‑input matching over a document that is edited in place.
+ *
+ * <p>The DFA state is checkpointed every {@code interval} characters. An edit resumes from the last
+ * checkpoint at or before it and rescans forward; once past the edit, reaching an old checkpoint
+ * (shifted by the edit) in the same state it recorded means the rest of the document would replay
+ * identically, so the old checkpoints and final state are kept and the scan stops. The rescan is
+ * then proportional to the edit plus the distance to the next checkpoint. A scan reaching
+ * {@link Dfa#DEAD} stops at once, since nothing after it can change the outcome.
+ *
+ * <p>Patterns without a DFA rescan the whole document on every edit and count as fallbacks.
+ */
+public class IncrementalMatcher {
+	public static final int DEFAULT_INTERVAL = 256;
+
+	private final CompiledAutomaton automaton;
+	private final PatternMetrics metrics;
+	private final Dfa dfa;
+	private final int interval;
+	private final StringBuilder text;
+
+	private int[] positions = new int[16];
+	private int[] states = new int[16];
+	private int count;
+	private int finalState;
+	private boolean matched;
+	private int lastRescanLength;
+
+	public IncrementalMatcher(CompiledAutomaton automaton, PatternMetrics metrics, CharSequence text) {
+		this(automaton, metrics, text, DEFAULT_INTERVAL);
+	}
+
+	public IncrementalMatcher(CompiledAutomaton automaton, PatternMetrics metrics, CharSequence text, int interval) {
+		if (interval <= 0) {
+			throw new IllegalArgumentException("Checkpoint interval must be positive: " + interval);
+		}
+		this.automaton = automaton;
+		this.metrics = metrics;
+		this.dfa = automaton.getDfa();
+		this.interval = interval;
+		this.text = new StringBuilder(text);
+
+		if (dfa == null) {
+			rematchWithNfa();
+		} else {
+			positions[0] = 0;
+			states[0] = dfa.start();
+			count = 1;
+			rescan(new int[0], new int[0], 0);
+		}
+	}
+
+	/**
+	 * Replaces {@code removed} characters at {@code offset} with {@code inserted}.
+	 *
+	 * @return whether the edited document matches
+	 */
+	public boolean edit(int offset, int removed, CharSequence inserted) {
+		if (offset < 0 || removed < 0 || offset + removed > text.length()) {
+			throw new IndexOutOfBoundsException("Edit [" + offset + ", " + (offset + removed) + ") outside [0, " + text.length() + "]");
+		}
+		text.replace(offset, offset + removed, inserted.toString());
+
+		if (dfa == null) {
+			return rematchWithNfa();
+		}
+
+		int keep = 0;
+		while (keep < count && positions[keep] <= offset) {
+			keep++;
+		}
+		int tailStart = keep;
+		while (tailStart < count && positions[tailStart] < offset + removed) {
+			tailStart++;
+		}
+
+		int delta = inserted.length() - removed;
+		int tailLength = count - tailStart;
+		int[] tailPositions = new int[tailLength];
+		int[] tailStates = Arrays.copyOfRange(states, tailStart, count);
+		for (int idx = 0; idx < tailLength; idx++) {
+			tailPositions[idx] = positions[tailStart + idx] + delta;
+		}
+
+		count = keep;
+		rescan(tailPositions, tailStates, offset + inserted.length());
+		return matched;
+	}
+
+	/**
+	 * Scans forward from the last kept checkpoint until the end of the document, a dead state, or
+	 * an old checkpoint at or past {@code editEnd} whose state agrees with the scan.
+	 */
+	private void rescan(int[] tailPositions, int[] tailStates, int editEnd) {
+		try (Dfa.Reader reader = dfa.reader()) {
+			rescan(reader, tailPositions, tailStates, editEnd);
+		}
+	}
+
+	private void rescan(Dfa.Reader reader, int[] tailPositions, int[] tailStates, int editEnd) {
+		int position = positions[count - 1];
+		int state = states[count - 1];
+		int scanStart = position;
+		int tail = 0;
+
+		while (true) {
+			while (tail < tailPositions.length && tailPositions[tail] < position) {
+				tail++;
+			}
+			if (position >= editEnd && tail < tailPositions.length
+					&& tailPositions[tail] == position && tailStates[tail] == state) {
+				appendTail(tailPositions, tailStates, tail, false);
+				break;
+			}
+			if (position - positions[count - 1] >= interval) {
+				addCheckpoint(position, state);
+			}
+			if (position == text.length()) {
+				finalState = state;
+				break;
+			}
+			if (state == Dfa.DEAD) {
+				appendTail(tailPositions, tailStates, tail, true);
+				finalState = Dfa.DEAD;
+				break;
+			}
+			state = reader.next(state, text.charAt(position));
+			position++;
+		}
+
+		lastRescanLength = position - scanStart;
+		matched = dfa.isAccepting(finalState);
+	}
+
+	private void appendTail(int[] tailPositions, int[] tailStates, int from, boolean dead) {
+		for (int idx = from; idx < tailPositions.length; idx++) {
+			if (tailPositions[idx] > positions[count - 1]) {
+				addCheckpoint(tailPositions[idx], dead ? Dfa.DEAD : tailStates[idx]);
+			}
+		}
+	}
+
+	private void addCheckpoint(int position, int state) {
+		if (count == positions.length) {
+			positions = Arrays.copyOf(positions, count * 2);
+			states = Arrays.copyOf(states, count * 2);
+		}
+		positions[count] = position;
+		states[count] = state;
+		count++;
+	}
+
+	private boolean rematchWithNfa() {
+		metrics.recordFallback();
+		matched = new NfaSimulator(automaton.getNfa()).matches(text);
+		lastRescanLength = text.length();
+		return matched;
+	}
+
+	public boolean matches() {
+		return matched;
+	}
+
+	public String text() {
+		return text.toString();
+	}
+
+	/**
+	 * @return how many characters the last edit (or the initial match) had to scan
+	 */
+	public int lastRescanLength() {
+		return lastRescanLength;
+	}
+
+	public int checkpointCount() {
+		return dfa == null ? 0 : count;
+	}
+}
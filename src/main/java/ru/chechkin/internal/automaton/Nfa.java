@@ -0,0 +1,350 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.charset.AlphabetPartition;
+import ru.chechkin.internal.charset.CharClass;
+import ru.chechkin.internal.parser.node.RepeatNode;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * A Thompson NFA stored as parallel arrays indexed by state id.
+ *
+ * <ul>
+ *   <li>{@link #CHAR}: consumes one character of {@link #label(int)} and moves to {@link #out(int)}</li>
+ *   <li>{@link #SPLIT}: ε‑moves to both {@link #out(int)} and {@link #alt(int)}</li>
+ *   <li>{@link #EPSILON}: ε‑moves to {@link #out(int)}</li>
+ *   <li>{@link #MATCH}: accepting, no outgoing moves; {@link #alt(int)} is the index of the rule
+ *   it accepts, which is {@code 0} unless the NFA was built from several rules</li>
+ *   <li>{@link #COUNTER}: a bounded repeat {@code body{min,max}} of a fixed‑width body, one
+ *   character class per position as in {@code [ab]} or {@code a[0-9]}; {@link #alt(int)} is the
+ *   counter index and {@link #label(int)} the body's first class. The state consumes the body's
+ *   characters while counting repetitions and ε‑moves to {@link #out(int)} after a whole number
+ *   of them within bounds. Counts live in {@link CountingSet}s during simulation, so the
+ *   automaton has the same size whatever the bounds. Subset construction and {@link FuzzyMatcher} work on {@link #withoutCounters(int)}
+ *   instead, which pays for the bounds in states.</li>
+ * </ul>
+ */
+public final class Nfa {
+	public static final int CHAR = 0;
+	public static final int SPLIT = 1;
+	public static final int EPSILON = 2;
+	public static final int MATCH = 3;
+	public static final int COUNTER = 4;
+
+	private final int[] kinds;
+	private final int[] outs;
+	private final int[] alts;
+	private final CharClass[] labels;
+	private final int[] counterMins;
+	private final int[] counterMaxs;
+	private final CharClass[][] counterBodies;
+	private final int start;
+	private final AlphabetPartition partition;
+	private volatile Reachability reachability;
+
+	/**
+	 * Per‑state answers for {@link #canAccept(int)} and {@link #loopsOnAnything(int)}.
+	 */
+	private record Reachability(boolean[] live, boolean[] loopsOnAnything) {
+	}
+
+	Nfa(int[] kinds, int[] outs, int[] alts, CharClass[] labels, int[] counterMins, int[] counterMaxs, CharClass[][] counterBodies, int start) {
+		this.kinds = kinds;
+		this.outs = outs;
+		this.alts = alts;
+		this.labels = labels;
+		this.counterMins = counterMins;
+		this.counterMaxs = counterMaxs;
+		this.counterBodies = counterBodies;
+		this.start = start;
+
+		this.partition = AlphabetPartition.of(Stream.concat(Arrays.stream(labels), Arrays.stream(counterBodies).flatMap(Arrays::stream))
+				.filter(label -> label != null)
+				.toList());
+	}
+
+	public int stateCount() {
+		return kinds.length;
+	}
+
+	public int start() {
+		return start;
+	}
+
+	public int kind(int state) {
+		return kinds[state];
+	}
+
+	public int out(int state) {
+		return outs[state];
+	}
+
+	public int alt(int state) {
+		return alts[state];
+	}
+
+	public CharClass label(int state) {
+		return labels[state];
+	}
+
+	public int counterCount() {
+		return counterMins.length;
+	}
+
+	public int counterMin(int counter) {
+		return counterMins[counter];
+	}
+
+	/**
+	 * @return the upper bound, or {@link ru.chechkin.internal.parser.node.RepeatNode#UNBOUNDED}
+	 */
+	public int counterMax(int counter) {
+		return counterMaxs[counter];
+	}
+
+	/**
+	 * @return the number of characters one repetition of the counter's body consumes
+	 */
+	public int counterWidth(int counter) {
+		return counterBodies[counter].length;
+	}
+
+	/**
+	 * @return the class of the character at {@code offset} in the counter's body
+	 */
+	public CharClass counterLabel(int counter, int offset) {
+		return counterBodies[counter][offset];
+	}
+
+	public AlphabetPartition partition() {
+		return partition;
+	}
+
+	/**
+	 * @return whether a MATCH state can be reached from {@code state}; a set of active states with
+	 * none that can is dead even though it is not empty
+	 */
+	public boolean canAccept(int state) {
+		return reachability().live()[state];
+	}
+
+	/**
+	 * @return whether {@code state} is a CHAR state on every character whose target's ε‑closure
+	 * holds both the state itself and a MATCH state, as in {@code (.)*}; an accepting set of
+	 * active states holding one accepts every continuation
+	 */
+	public boolean loopsOnAnything(int state) {
+		return reachability().loopsOnAnything()[state];
+	}
+
+	private Reachability reachability() {
+		Reachability result = reachability;
+		if (result == null) {
+			result = computeReachability();
+			reachability = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Walks the reversed move graph from the MATCH states. A move on an empty class is never
+	 * taken, and a COUNTER state leaves through {@link #out(int)} once it has counted its minimum,
+	 * which it cannot if its body has an empty class.
+	 */
+	private Reachability computeReachability() {
+		int states = kinds.length;
+		int[] predecessorStart = new int[states + 1];
+		int[] targets = new int[2 * states];
+		for (int state = 0; state < states; state++) {
+			int first = 2 * state;
+			targets[first] = -1;
+			targets[first + 1] = -1;
+			switch (kinds[state]) {
+				case CHAR -> targets[first] = labels[state].isEmpty() ? -1 : outs[state];
+				case COUNTER -> targets[first] = counterMins[alts[state]] > 0
+						&& Arrays.stream(counterBodies[alts[state]]).anyMatch(CharClass::isEmpty) ? -1 : outs[state];
+				case SPLIT -> {
+					targets[first] = outs[state];
+					targets[first + 1] = alts[state];
+				}
+				case EPSILON -> targets[first] = outs[state];
+				default -> {
+				}
+			}
+			for (int idx = first; idx < first + 2; idx++) {
+				if (targets[idx] >= 0) {
+					predecessorStart[targets[idx] + 1]++;
+				}
+			}
+		}
+		for (int state = 0; state < states; state++) {
+			predecessorStart[state + 1] += predecessorStart[state];
+		}
+		int[] predecessors = new int[predecessorStart[states]];
+		int[] fill = Arrays.copyOf(predecessorStart, states);
+		for (int idx = 0; idx < targets.length; idx++) {
+			if (targets[idx] >= 0) {
+				predecessors[fill[targets[idx]]++] = idx / 2;
+			}
+		}
+
+		boolean[] live = new boolean[states];
+		int[] queue = new int[states];
+		int tail = 0;
+		for (int state = 0; state < states; state++) {
+			if (kinds[state] == MATCH) {
+				live[state] = true;
+				queue[tail++] = state;
+			}
+		}
+		for (int head = 0; head < tail; head++) {
+			int state = queue[head];
+			for (int idx = predecessorStart[state]; idx < predecessorStart[state + 1]; idx++) {
+				if (!live[predecessors[idx]]) {
+					live[predecessors[idx]] = true;
+					queue[tail++] = predecessors[idx];
+				}
+			}
+		}
+
+		boolean[] loopsOnAnything = new boolean[states];
+		SparseSet closure = new SparseSet(states);
+		for (int state = 0; state < states; state++) {
+			if (kinds[state] != CHAR || !CharClass.ANY.equals(labels[state])) {
+				continue;
+			}
+			closure.clear();
+			addClosure(closure, outs[state], queue);
+			if (!closure.contains(state)) {
+				continue;
+			}
+			for (int idx = 0; idx < closure.size(); idx++) {
+				if (kinds[closure.get(idx)] == MATCH) {
+					loopsOnAnything[state] = true;
+					break;
+				}
+			}
+		}
+		return new Reachability(live, loopsOnAnything);
+	}
+
+	/**
+	 * Unrolls every COUNTER state the way {@link NfaBuilder} unrolls small repeats:
+	 * {@code x{2,4}} becomes {@code xx(x(x)?)?} and {@code x{2,}} becomes {@code xxx*}, with a
+	 * chain of CHAR states for each copy of the body. The COUNTER state turns into an ε state
+	 * entering its copies, so the other states keep their ids.
+	 *
+	 * @return the equivalent NFA without counters, this NFA if it has none, or {@code null} if it
+	 * would have more than {@code maxStates} states
+	 */
+	public Nfa withoutCounters(int maxStates) {
+		if (counterMins.length == 0) {
+			return this;
+		}
+		long size = kinds.length;
+		for (int counter = 0; counter < counterMins.length; counter++) {
+			long width = counterBodies[counter].length;
+			size += counterMins[counter] * width
+					+ (counterMaxs[counter] == RepeatNode.UNBOUNDED ? 1 + width : (counterMaxs[counter] - counterMins[counter]) * (1 + width));
+		}
+		if (size > maxStates) {
+			return null;
+		}
+
+		int[] newKinds = Arrays.copyOf(kinds, (int) size);
+		int[] newOuts = Arrays.copyOf(outs, (int) size);
+		int[] newAlts = Arrays.copyOf(alts, (int) size);
+		CharClass[] newLabels = Arrays.copyOf(labels, (int) size);
+		int next = kinds.length;
+		for (int state = 0; state < kinds.length; state++) {
+			if (kinds[state] != COUNTER) {
+				continue;
+			}
+			int min = counterMins[alts[state]];
+			int max = counterMaxs[alts[state]];
+			CharClass[] body = counterBodies[alts[state]];
+			int exit = outs[state];
+
+			newKinds[state] = EPSILON;
+			newAlts[state] = -1;
+			newLabels[state] = null;
+			int previous = state;
+			for (int idx = 0; idx < min; idx++) {
+				appendBody(newKinds, newOuts, newLabels, body, previous, next);
+				next += body.length;
+				previous = next - 1;
+			}
+			if (max == RepeatNode.UNBOUNDED) {
+				int split = next++;
+				newKinds[split] = SPLIT;
+				newAlts[split] = exit;
+				newOuts[previous] = split;
+				appendBody(newKinds, newOuts, newLabels, body, split, next);
+				next += body.length;
+				newOuts[next - 1] = split;
+				continue;
+			}
+			for (int idx = min; idx < max; idx++) {
+				int split = next++;
+				newKinds[split] = SPLIT;
+				newAlts[split] = exit;
+				newOuts[previous] = split;
+				appendBody(newKinds, newOuts, newLabels, body, split, next);
+				next += body.length;
+				previous = next - 1;
+			}
+			newOuts[previous] = exit;
+		}
+		return new Nfa(newKinds, newOuts, newAlts, newLabels, new int[0], new int[0], new CharClass[0][], start);
+	}
+
+	/**
+	 * Writes one copy of {@code body} as CHAR states from {@code first} on, entered from
+	 * {@code previous}; the last of them is left for the caller to link.
+	 */
+	private static void appendBody(int[] kinds, int[] outs, CharClass[] labels, CharClass[] body, int previous, int first) {
+		outs[previous] = first;
+		for (int idx = 0; idx < body.length; idx++) {
+			kinds[first + idx] = CHAR;
+			labels[first + idx] = body[idx];
+			if (idx > 0) {
+				outs[first + idx - 1] = first + idx;
+			}
+		}
+	}
+
+	/**
+	 * Adds {@code state} and everything ε‑reachable from it to {@code set}.
+	 * COUNTER states are treated as opaque; {@link NfaSimulator} has its own counting closure.
+	 *
+	 * @param stack scratch space of at least {@link #stateCount()} entries
+	 */
+	void addClosure(SparseSet set, int state, int[] stack) {
+		if (!set.add(state)) {
+			return;
+		}
+		int top = 0;
+		stack[top++] = state;
+		while (top > 0) {
+			int current = stack[--top];
+			switch (kinds[current]) {
+				case SPLIT -> {
+					if (set.add(alts[current])) {
+						stack[top++] = alts[current];
+					}
+					if (set.add(outs[current])) {
+						stack[top++] = outs[current];
+					}
+				}
+				case EPSILON -> {
+					if (set.add(outs[current])) {
+						stack[top++] = outs[current];
+					}
+				}
+				default -> {
+				}
+			}
+		}
+	}
+}
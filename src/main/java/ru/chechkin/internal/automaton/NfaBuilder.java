@@ -0,0 +1,476 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.charset.CharClass;
+import ru.chechkin.internal.ir.CompactRegexp;
+import ru.chechkin.internal.ir.IrVisitor;
+import ru.chechkin.internal.ir.Opcode;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.node.RepeatNode;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Thompson construction of an {@link Nfa} from the {@link CompactRegexp} of a pattern, read in
+ * place; a syntax tree is lowered to that encoding first. Every fragment has a single entry state
+ * and a single ε exit state whose target is patched when the fragment is linked.
+ *
+ * <p>Counted repetition of a fixed‑width body, one character class per position as in
+ * {@code [ab]}, {@code (a|b)} or {@code (ab)}, with a bound above {@link #UNROLL_LIMIT} becomes one
+ * {@link Nfa#COUNTER} state, whose size does not depend on the bounds. Any other body, such as
+ * {@code (ab|c)}, is unrolled into copies of itself, so its NFA grows linearly with the bound;
+ * unrolling that would exceed {@link #MAX_UNROLLED_STATES} states is rejected, by
+ * {@link #checkSize(CompactRegexp)} before anything is built.
+ */
+public class NfaBuilder implements IrVisitor<NfaBuilder.Fragment, Void> {
+	public static final int UNROLL_LIMIT = 16;
+	public static final int MAX_UNROLLED_STATES = 1 << 20;
+
+	record Fragment(int start, int end) {
+	}
+
+	private int[] kinds = new int[16];
+	private int[] outs = new int[16];
+	private int[] alts = new int[16];
+	private CharClass[] labels = new CharClass[16];
+	private int size = 0;
+
+	private int[] counterMins = new int[0];
+	private int[] counterMaxs = new int[0];
+	private CharClass[][] counterBodies = new CharClass[0][];
+
+	private CompactRegexp ir;
+	/**
+	 * The class of each CHAR_CLASS node by pc, decoded once so unrolled copies share one label.
+	 */
+	private CharClass[] classes;
+
+	public static Nfa build(Node node) {
+		return build(CompactRegexp.from(node));
+	}
+
+	public static Nfa build(CompactRegexp ir) {
+		NfaBuilder builder = new NfaBuilder();
+		Fragment fragment = builder.fragment(ir);
+		builder.patch(fragment.end(), builder.match(0));
+		return builder.toNfa(fragment.start());
+	}
+
+	/**
+	 * Builds the union of {@code rules}, with a separate MATCH state per rule whose
+	 * {@link Nfa#alt(int)} is the rule's index.
+	 */
+	public static Nfa buildRules(List<Node> rules) {
+		if (rules.isEmpty()) {
+			throw new IllegalArgumentException("No rules");
+		}
+		NfaBuilder builder = new NfaBuilder();
+		int start = -1;
+		int previousSplit = -1;
+		for (int rule = 0; rule < rules.size(); rule++) {
+			Fragment fragment = builder.fragment(CompactRegexp.from(rules.get(rule)));
+			builder.patch(fragment.end(), builder.match(rule));
+
+			int entry = rule < rules.size() - 1 ? builder.split(fragment.start(), -1) : fragment.start();
+			if (previousSplit < 0) {
+				start = entry;
+			} else {
+				builder.alts[previousSplit] = entry;
+			}
+			previousSplit = entry;
+		}
+		return builder.toNfa(start);
+	}
+
+	/**
+	 * Estimates the states {@link #build(CompactRegexp)} would create, without creating them.
+	 *
+	 * @throws IllegalStateException if a counted repetition is too large to unroll
+	 */
+	public static void checkSize(CompactRegexp ir) {
+		NfaBuilder builder = new NfaBuilder();
+		builder.use(ir);
+		ir.accept(builder.new SizeEstimator(), CompactRegexp.ROOT, null);
+	}
+
+	private Fragment fragment(CompactRegexp ir) {
+		use(ir);
+		return visit(CompactRegexp.ROOT);
+	}
+
+	private void use(CompactRegexp ir) {
+		this.ir = ir;
+		this.classes = new CharClass[ir.codeLength()];
+	}
+
+	private Fragment visit(int pc) {
+		return ir.accept(this, pc, null);
+	}
+
+	private int match(int rule) {
+		int match = state(Nfa.MATCH, null);
+		alts[match] = rule;
+		return match;
+	}
+
+	@Override
+	public Fragment visitAltern(int pc, Void state) {
+		int count = ir.childCount(pc);
+		int end = epsilon();
+
+		int start = -1;
+		int previousSplit = -1;
+		int child = ir.firstChild(pc);
+		for (int idx = 0; idx < count; idx++, child = ir.nextSibling(child)) {
+			Fragment alternative = visit(child);
+			patch(alternative.end(), end);
+
+			int entry = alternative.start();
+			if (idx < count - 1) {
+				entry = split(alternative.start(), -1);
+			}
+			if (previousSplit < 0) {
+				start = entry;
+			} else {
+				alts[previousSplit] = entry;
+			}
+			previousSplit = entry;
+		}
+		return new Fragment(start, end);
+	}
+
+	@Override
+	public Fragment visitConcat(int pc, Void state) {
+		Fragment result = null;
+		int child = ir.firstChild(pc);
+		for (int idx = 0, count = ir.childCount(pc); idx < count; idx++, child = ir.nextSibling(child)) {
+			Fragment fragment = visit(child);
+			if (result == null) {
+				result = fragment;
+			} else {
+				patch(result.end(), fragment.start());
+				result = new Fragment(result.start(), fragment.end());
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Fragment visitString(int pc, Void state) {
+		int end = epsilon();
+		int next = end;
+		for (int idx = ir.literalLength(pc) - 1; idx >= 0; idx--) {
+			int current = state(Nfa.CHAR, CharClass.of(ir.literalAt(pc, idx)));
+			outs[current] = next;
+			next = current;
+		}
+		return new Fragment(next, end);
+	}
+
+	@Override
+	public Fragment visitCharClass(int pc, Void state) {
+		int end = epsilon();
+		int current = state(Nfa.CHAR, charClass(pc));
+		outs[current] = end;
+		return new Fragment(current, end);
+	}
+
+	@Override
+	public Fragment visitAtMostOnce(int pc, Void state) {
+		Fragment body = visit(ir.firstChild(pc));
+		int end = epsilon();
+		patch(body.end(), end);
+		return new Fragment(split(body.start(), end), end);
+	}
+
+	@Override
+	public Fragment visitRepeatable(int pc, Void state) {
+		Fragment body = visit(ir.firstChild(pc));
+		int end = epsilon();
+		int loop = split(body.start(), end);
+		patch(body.end(), loop);
+		return new Fragment(loop, end);
+	}
+
+	@Override
+	public Fragment visitAtLeastOnce(int pc, Void state) {
+		Fragment body = visit(ir.firstChild(pc));
+		int end = epsilon();
+		int loop = split(body.start(), end);
+		patch(body.end(), loop);
+		return new Fragment(body.start(), end);
+	}
+
+	@Override
+	public Fragment visitRepeat(int pc, Void state) {
+		int min = ir.repeatMin(pc);
+		int max = ir.repeatMax(pc);
+		CharClass[] body = counterBody(pc);
+
+		if (body != null) {
+			return counter(body, min, max);
+		}
+		return unroll(ir.firstChild(pc), min, max);
+	}
+
+	/**
+	 * @return the classes of a repeat's body if it becomes a counter, or {@code null} if it is
+	 * unrolled
+	 */
+	private CharClass[] counterBody(int pc) {
+		int max = ir.repeatMax(pc);
+		int bound = max == RepeatNode.UNBOUNDED ? ir.repeatMin(pc) : max;
+		if (bound <= UNROLL_LIMIT) {
+			return null;
+		}
+		CharClass[] body = classSequence(ir.firstChild(pc));
+		return body == null || body.length == 0 ? null : body;
+	}
+
+	private Fragment counter(CharClass[] body, int min, int max) {
+		int end = epsilon();
+		int counter = state(Nfa.COUNTER, body[0]);
+		outs[counter] = end;
+		alts[counter] = counterMins.length;
+		counterMins = Arrays.copyOf(counterMins, counterMins.length + 1);
+		counterMaxs = Arrays.copyOf(counterMaxs, counterMaxs.length + 1);
+		counterBodies = Arrays.copyOf(counterBodies, counterBodies.length + 1);
+		counterMins[counterMins.length - 1] = min;
+		counterMaxs[counterMaxs.length - 1] = max;
+		counterBodies[counterBodies.length - 1] = body;
+		return new Fragment(counter, end);
+	}
+
+	/**
+	 * {@code x{2,4}} becomes {@code xx(x(x)?)?} and {@code x{2,}} becomes {@code xxx*}.
+	 */
+	private Fragment unroll(int body, int min, int max) {
+		boolean unbounded = max == RepeatNode.UNBOUNDED;
+		int copies = unbounded ? min + 1 : max;
+
+		Fragment result = null;
+		int before = size;
+		for (int idx = 0; idx < min; idx++) {
+			result = link(result, visit(body));
+			checkUnrolledSize(before, idx + 1, copies);
+		}
+
+		if (unbounded) {
+			Fragment loopBody = visit(body);
+			int end = epsilon();
+			int loop = split(loopBody.start(), end);
+			patch(loopBody.end(), loop);
+			return link(result, new Fragment(loop, end));
+		}
+
+		if (max == min) {
+			if (result == null) {
+				int empty = epsilon();
+				return new Fragment(empty, empty);
+			}
+			return result;
+		}
+
+		int end = epsilon();
+		for (int idx = min; idx < max; idx++) {
+			Fragment optional = visit(body);
+			checkUnrolledSize(before, idx + 1, copies);
+			result = link(result, new Fragment(split(optional.start(), end), optional.end()));
+		}
+		patch(result.end(), end);
+		return new Fragment(result.start(), end);
+	}
+
+	private void checkUnrolledSize(int before, int built, int copies) {
+		checkUnrolledSize((size - before) / built, copies);
+	}
+
+	private static void checkUnrolledSize(long states, long copies) {
+		if (states * copies > MAX_UNROLLED_STATES) {
+			throw new IllegalStateException(
+					"Counted repetition is too large to unroll: " + copies + " copies of " + states + " states"
+			);
+		}
+	}
+
+	private Fragment link(Fragment first, Fragment second) {
+		if (first == null) {
+			return second;
+		}
+		patch(first.end(), second.start());
+		return new Fragment(first.start(), second.end());
+	}
+
+	/**
+	 * @return the class of each character {@code node} matches, as for {@code [ab]}, {@code ab},
+	 * {@code (a|[bc])d} or {@code [ab]c}, or {@code null} if it does not always match one string
+	 * of classes
+	 */
+	private CharClass[] classSequence(int pc) {
+		return switch (ir.opcode(pc)) {
+			case Opcode.CHAR_CLASS -> new CharClass[] {charClass(pc)};
+			case Opcode.STRING -> {
+				CharClass[] sequence = new CharClass[ir.literalLength(pc)];
+				for (int idx = 0; idx < sequence.length; idx++) {
+					sequence[idx] = CharClass.of(ir.literalAt(pc, idx));
+				}
+				yield sequence;
+			}
+			case Opcode.CONCAT -> concatenationSequence(pc);
+			case Opcode.ALTERN -> {
+				CharClass union = alternativesCharClass(pc);
+				yield union == null ? null : new CharClass[] {union};
+			}
+			default -> null;
+		};
+	}
+
+	private CharClass[] concatenationSequence(int pc) {
+		CharClass[] sequence = new CharClass[0];
+		int child = ir.firstChild(pc);
+		for (int idx = 0, count = ir.childCount(pc); idx < count; idx++, child = ir.nextSibling(child)) {
+			CharClass[] part = classSequence(child);
+			if (part == null) {
+				return null;
+			}
+			int length = sequence.length;
+			sequence = Arrays.copyOf(sequence, length + part.length);
+			System.arraycopy(part, 0, sequence, length, part.length);
+		}
+		return sequence;
+	}
+
+	private CharClass charClass(int pc) {
+		if (classes[pc] == null) {
+			classes[pc] = ir.charClass(pc);
+		}
+		return classes[pc];
+	}
+
+	private CharClass alternativesCharClass(int pc) {
+		CharClass union = CharClass.EMPTY;
+		int child = ir.firstChild(pc);
+		for (int idx = 0, count = ir.childCount(pc); idx < count; idx++, child = ir.nextSibling(child)) {
+			CharClass[] single = classSequence(child);
+			if (single == null || single.length != 1) {
+				return null;
+			}
+			union = union.union(single[0]);
+		}
+		return union;
+	}
+
+	private int epsilon() {
+		return state(Nfa.EPSILON, null);
+	}
+
+	private int split(int out, int alt) {
+		int split = state(Nfa.SPLIT, null);
+		outs[split] = out;
+		alts[split] = alt;
+		return split;
+	}
+
+	private void patch(int epsilon, int target) {
+		outs[epsilon] = target;
+	}
+
+	private int state(int kind, CharClass label) {
+		if (size == kinds.length) {
+			int capacity = size * 2;
+			kinds = Arrays.copyOf(kinds, capacity);
+			outs = Arrays.copyOf(outs, capacity);
+			alts = Arrays.copyOf(alts, capacity);
+			labels = Arrays.copyOf(labels, capacity);
+		}
+		kinds[size] = kind;
+		outs[size] = -1;
+		alts[size] = -1;
+		labels[size] = label;
+		return size++;
+	}
+
+	private Nfa toNfa(int start) {
+		return new Nfa(
+				Arrays.copyOf(kinds, size),
+				Arrays.copyOf(outs, size),
+				Arrays.copyOf(alts, size),
+				Arrays.copyOf(labels, size),
+				counterMins,
+				counterMaxs,
+				counterBodies,
+				start
+		);
+	}
+	/**
+	 * Counts the states of each fragment the way the visits above create them, saturating at
+	 * {@link #MAX_UNROLLED_STATES}, and checks every unrolled repeat like {@link #unroll} does.
+	 */
+	private final class SizeEstimator implements IrVisitor<Long, Void> {
+		private long visit(int pc) {
+			return Math.min(ir.accept(this, pc, null), MAX_UNROLLED_STATES + 1L);
+		}
+
+		private long children(int pc) {
+			long states = 0;
+			int child = ir.firstChild(pc);
+			for (int idx = 0, count = ir.childCount(pc); idx < count; idx++, child = ir.nextSibling(child)) {
+				states += visit(child);
+			}
+			return states;
+		}
+
+		@Override
+		public Long visitAltern(int pc, Void state) {
+			return children(pc) + ir.childCount(pc);
+		}
+
+		@Override
+		public Long visitConcat(int pc, Void state) {
+			return children(pc);
+		}
+
+		@Override
+		public Long visitString(int pc, Void state) {
+			return ir.literalLength(pc) + 1L;
+		}
+
+		@Override
+		public Long visitCharClass(int pc, Void state) {
+			return 2L;
+		}
+
+		@Override
+		public Long visitAtMostOnce(int pc, Void state) {
+			return visit(ir.firstChild(pc)) + 2;
+		}
+
+		@Override
+		public Long visitRepeatable(int pc, Void state) {
+			return visit(ir.firstChild(pc)) + 2;
+		}
+
+		@Override
+		public Long visitAtLeastOnce(int pc, Void state) {
+			return visit(ir.firstChild(pc)) + 2;
+		}
+
+		@Override
+		public Long visitRepeat(int pc, Void state) {
+			if (counterBody(pc) != null) {
+				return 2L;
+			}
+			int min = ir.repeatMin(pc);
+			int max = ir.repeatMax(pc);
+			long body = visit(ir.firstChild(pc));
+			if (max == RepeatNode.UNBOUNDED) {
+				checkUnrolledSize(body, min + 1L);
+				return body * (min + 1) + 2;
+			}
+			// each optional copy also brings a split
+			long copy = max == min ? body : body + 1;
+			checkUnrolledSize(copy, max);
+			return copy * max + 1;
+		}
+	}
+}
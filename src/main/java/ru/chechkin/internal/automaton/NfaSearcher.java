@@ -0,0 +1,24 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.MatchSpan;
+import ru.chechkin.internal.Searcher;
+
+/**
+ * Leftmost‑longest search by NFA simulation, for patterns without a DFA. A single pass tracks
+ * where each thread started (see {@link NfaSimulator#find}), so a search is linear in the text
+ * it scans.
+ *
+ * <p>The simulator's buffers are reused across calls, so an instance is not thread‑safe.
+ */
+public class NfaSearcher implements Searcher {
+	private final NfaSimulator simulator;
+
+	public NfaSearcher(Nfa nfa) {
+		this.simulator = new NfaSimulator(nfa);
+	}
+
+	@Override
+	public MatchSpan find(CharSequence text, int from) {
+		return simulator.find(text, from);
+	}
+}
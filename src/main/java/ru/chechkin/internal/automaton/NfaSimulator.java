@@ -0,0 +1,337 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.MatchSpan;
+import ru.chechkin.internal.metrics.PatternMetrics;
+import ru.chechkin.internal.parser.node.RepeatNode;
+
+import java.util.Arrays;
+
+/**
+ * Runs an {@link Nfa} over a text by tracking the set of active states (Thompson's algorithm).
+ * Time is O(text × states) and memory O(states), with no backtracking.
+ *
+ * <p>A {@link Nfa#COUNTER} state additionally keeps {@link CountingSet}s of the characters counted
+ * by the threads inside it, one per position of its body at which a thread can be: threads that
+ * entered at positions equal modulo the body's width read the same class of the body at every
+ * step. Those threads advance together, so a step is O(width) amortized whatever the bounds, and
+ * a character outside the class drops every thread of its set that was already inside.
+ *
+ * <p>Instances carry scratch buffers and are not thread‑safe.
+ */
+public class NfaSimulator {
+	private final Nfa nfa;
+	private SparseSet current;
+	private SparseSet next;
+	private final CountingSet[][] counts;
+	/**
+	 * The bounds of each counter in characters, saturated at {@link Integer#MAX_VALUE}.
+	 */
+	private final int[] minLengths;
+	private final int[] maxLengths;
+	private final int[] stack;
+	private final int[] startOf;
+	private final long[] moves;
+	private int position;
+
+	public NfaSimulator(Nfa nfa) {
+		this.nfa = nfa;
+		this.current = new SparseSet(nfa.stateCount());
+		this.next = new SparseSet(nfa.stateCount());
+		this.stack = new int[nfa.stateCount()];
+		this.startOf = new int[nfa.stateCount()];
+		this.moves = new long[nfa.stateCount()];
+		this.counts = new CountingSet[nfa.counterCount()][];
+		this.minLengths = new int[nfa.counterCount()];
+		this.maxLengths = new int[nfa.counterCount()];
+		for (int counter = 0; counter < counts.length; counter++) {
+			int width = nfa.counterWidth(counter);
+			counts[counter] = new CountingSet[width];
+			for (int residue = 0; residue < width; residue++) {
+				counts[counter][residue] = new CountingSet();
+			}
+			minLengths[counter] = (int) Math.min((long) nfa.counterMin(counter) * width, Integer.MAX_VALUE);
+			maxLengths[counter] = nfa.counterMax(counter) == RepeatNode.UNBOUNDED ? RepeatNode.UNBOUNDED
+					: (int) Math.min((long) nfa.counterMax(counter) * width, Integer.MAX_VALUE);
+		}
+	}
+
+	public boolean matches(CharSequence text) {
+		return matches(text, PatternMetrics.DISABLED);
+	}
+
+	/**
+	 * Records to {@code metrics} the characters read, which stop once no state is active.
+	 */
+	public boolean matches(CharSequence text, PatternMetrics metrics) {
+		reset(0);
+
+		for (int idx = 0; idx < text.length(); idx++) {
+			step(text.charAt(idx));
+			if (current.isEmpty()) {
+				metrics.recordScanned(idx + 1);
+				return false;
+			}
+		}
+
+		metrics.recordScanned(text.length());
+		return isAccepting();
+	}
+
+	/**
+	 * Finds the leftmost‑longest match at or after {@code from} in one pass. Each thread carries
+	 * the position where it started, and a state reached by several keeps the earliest; moves are
+	 * taken in order of start, so the first thread to reach a state is that one. A new thread
+	 * starts at every position until something matches; from then on only threads that started
+	 * no later than the match are kept, and the scan ends once none is left.
+	 *
+	 * @return the match, or {@code null} if there is none
+	 */
+	public MatchSpan find(CharSequence text, int from) {
+		reset(from);
+		int matchStart = matchStart();
+		int matchEnd = from;
+
+		for (int idx = from; idx < text.length() && !current.isEmpty(); idx++) {
+			searchStep(text.charAt(idx), matchStart < 0 ? Integer.MAX_VALUE : matchStart);
+			if (matchStart < 0) {
+				addClosure(current, nfa.start(), position);
+			}
+			int start = matchStart();
+			if (start >= 0 && (matchStart < 0 || start <= matchStart)) {
+				matchStart = start;
+				matchEnd = position;
+			}
+		}
+		return matchStart < 0 ? null : new MatchSpan(matchStart, matchEnd);
+	}
+
+	/**
+	 * @return the earliest start of an active MATCH state, or {@code -1}
+	 */
+	private int matchStart() {
+		int start = -1;
+		for (int idx = 0; idx < current.size(); idx++) {
+			int state = current.get(idx);
+			if (nfa.kind(state) == Nfa.MATCH && (start < 0 || startOf[state] < start)) {
+				start = startOf[state];
+			}
+		}
+		return start;
+	}
+
+	/**
+	 * Like {@link #step(char)}, but drops the threads that started after {@code bound} and takes
+	 * the remaining moves sorted by start. A counter exits with the earliest start among its
+	 * threads that may exit, which all entered at positions equal to this one modulo its width.
+	 */
+	private void searchStep(char c, int bound) {
+		position++;
+		next.clear();
+		int count = 0;
+		for (int idx = 0; idx < current.size(); idx++) {
+			int state = current.get(idx);
+			int kind = nfa.kind(state);
+			if (kind == Nfa.CHAR) {
+				if (startOf[state] <= bound && nfa.label(state).contains(c)) {
+					moves[count++] = move(startOf[state], nfa.out(state));
+				}
+			} else if (kind == Nfa.COUNTER) {
+				int counter = nfa.alt(state);
+				CountingSet[] sets = counts[counter];
+				boolean alive = false;
+				for (int residue = 0; residue < sets.length; residue++) {
+					CountingSet set = sets[residue];
+					if (set.isEmpty()) {
+						continue;
+					}
+					if (!nfa.counterLabel(counter, offset(residue, sets.length)).contains(c)) {
+						set.clear();
+						continue;
+					}
+					set.expire(position, minLengths[counter], maxLengths[counter]);
+					if (set.minStart() > bound) {
+						set.clear();
+						continue;
+					}
+					alive = true;
+				}
+				if (!alive) {
+					continue;
+				}
+				next.add(state);
+				int exit = sets[position % sets.length].exitStart(position, minLengths[counter], maxLengths[counter]);
+				if (exit >= 0 && exit <= bound) {
+					moves[count++] = move(exit, nfa.out(state));
+				}
+			}
+		}
+
+		Arrays.sort(moves, 0, count);
+		for (int idx = 0; idx < count; idx++) {
+			addClosure(next, (int) moves[idx], (int) (moves[idx] >>> 32));
+		}
+		SparseSet swap = current;
+		current = next;
+		next = swap;
+	}
+
+	private static long move(int start, int target) {
+		return (long) start << 32 | target;
+	}
+
+	private void reset(int from) {
+		position = from;
+		for (CountingSet[] sets : counts) {
+			for (CountingSet set : sets) {
+				set.clear();
+			}
+		}
+		current.clear();
+		addClosure(current, nfa.start(), from);
+	}
+
+	private void step(char c) {
+		position++;
+		next.clear();
+		for (int idx = 0; idx < current.size(); idx++) {
+			int state = current.get(idx);
+			int kind = nfa.kind(state);
+			if (kind == Nfa.CHAR) {
+				if (nfa.label(state).contains(c)) {
+					addClosure(next, nfa.out(state), 0);
+				}
+			} else if (kind == Nfa.COUNTER) {
+				stepCounter(state, c);
+			}
+		}
+		SparseSet swap = current;
+		current = next;
+		next = swap;
+	}
+
+	private void stepCounter(int state, char c) {
+		int counter = nfa.alt(state);
+		CountingSet[] sets = counts[counter];
+		boolean alive = false;
+		for (int residue = 0; residue < sets.length; residue++) {
+			CountingSet set = sets[residue];
+			if (set.isEmpty()) {
+				continue;
+			}
+			if (!nfa.counterLabel(counter, offset(residue, sets.length)).contains(c)) {
+				// threads that entered at this very position were added by this step's closures
+				set.retainFrom(position);
+				continue;
+			}
+			set.expire(position, minLengths[counter], maxLengths[counter]);
+			alive |= !set.isEmpty();
+		}
+		if (!alive) {
+			return;
+		}
+		next.add(state);
+		if (sets[position % sets.length].maxCount(position) >= minLengths[counter]) {
+			addClosure(next, nfa.out(state), 0);
+		}
+	}
+
+	/**
+	 * @return the offset in a counter's body of the character just read by the threads that
+	 * entered at positions congruent to {@code residue}
+	 */
+	private int offset(int residue, int width) {
+		return Math.floorMod(position - 1 - residue, width);
+	}
+
+	/**
+	 * Adds {@code state} and everything ε‑reachable from it to {@code set}, for a thread that
+	 * started at {@code start}; states already in the set keep their start. Reaching a COUNTER
+	 * state starts a new thread in it at the current position and, for a zero minimum, also
+	 * exits it.
+	 */
+	private void addClosure(SparseSet set, int state, int start) {
+		int top = reach(set, state, 0, start);
+		while (top > 0) {
+			int current = stack[--top];
+			switch (nfa.kind(current)) {
+				case Nfa.SPLIT -> {
+					top = reach(set, nfa.alt(current), top, start);
+					top = reach(set, nfa.out(current), top, start);
+				}
+				case Nfa.EPSILON -> top = reach(set, nfa.out(current), top, start);
+				default -> {
+				}
+			}
+		}
+	}
+
+	private int reach(SparseSet set, int state, int top, int start) {
+		if (nfa.kind(state) != Nfa.COUNTER) {
+			if (set.add(state)) {
+				startOf[state] = start;
+				stack[top++] = state;
+			}
+			return top;
+		}
+
+		set.add(state);
+		int counter = nfa.alt(state);
+		CountingSet[] sets = counts[counter];
+		if (sets[position % sets.length].enter(position, start) && nfa.counterMin(counter) == 0) {
+			top = reach(set, nfa.out(state), top, start);
+		}
+		return top;
+	}
+
+	/**
+	 * Starts an incremental run, fed one character at a time by {@link #advance(char)}.
+	 */
+	public void start() {
+		reset(0);
+	}
+
+	/**
+	 * @return whether any thread survived {@code c}
+	 */
+	public boolean advance(char c) {
+		step(c);
+		return !current.isEmpty();
+	}
+
+	public boolean isAccepting() {
+		for (int idx = 0; idx < current.size(); idx++) {
+			if (nfa.kind(current.get(idx)) == Nfa.MATCH) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether some active state {@linkplain Nfa#canAccept(int) can still accept}
+	 */
+	public boolean canAccept() {
+		for (int idx = 0; idx < current.size(); idx++) {
+			if (nfa.canAccept(current.get(idx))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether every continuation is accepted; {@code false} when unsure, since only
+	 * {@linkplain Nfa#loopsOnAnything(int) loops on any character} are recognized
+	 */
+	public boolean acceptsEverything() {
+		if (!isAccepting()) {
+			return false;
+		}
+		for (int idx = 0; idx < current.size(); idx++) {
+			if (nfa.loopsOnAnything(current.get(idx))) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
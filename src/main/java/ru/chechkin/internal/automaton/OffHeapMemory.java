@@ -0,0 +1,59 @@
+package ru.chechkin.internal.automaton;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Direct buffers for transition tables that should stay out of the Java heap.
+ *
+ * <p>A direct buffer is normally released only when the collector finds it unreachable, which
+ * may be long after its pattern was dropped. {@link #free(ByteBuffer)} releases it at once through
+ * {@code sun.misc.Unsafe.invokeCleaner} when the runtime exposes it, and otherwise leaves it to the
+ * collector.
+ */
+final class OffHeapMemory {
+	private static final Object UNSAFE;
+	private static final Method INVOKE_CLEANER;
+
+	static {
+		Object unsafe = null;
+		Method invokeCleaner = null;
+		try {
+			Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+			java.lang.reflect.Field field = unsafeClass.getDeclaredField("theUnsafe");
+			field.setAccessible(true);
+			unsafe = field.get(null);
+			invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			unsafe = null;
+			invokeCleaner = null;
+		}
+		UNSAFE = unsafe;
+		INVOKE_CLEANER = invokeCleaner;
+	}
+
+	private OffHeapMemory() {
+	}
+
+	static ByteBuffer allocate(long bytes) {
+		if (bytes > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Off-heap table of " + bytes + " bytes exceeds 2 GiB");
+		}
+		return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Releases {@code buffer}'s memory. The buffer, and every view of it, must not be read afterwards.
+	 */
+	static void free(ByteBuffer buffer) {
+		if (INVOKE_CLEANER == null) {
+			return;
+		}
+		try {
+			INVOKE_CLEANER.invoke(UNSAFE, buffer);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot free off-heap table", e);
+		}
+	}
+}
@@ -0,0 +1,185 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.metrics.PatternMetrics;
+
+/**
+ * Whole‑input matching over input that arrives in pieces, which tells "no match yet" apart from
+ * "no match ever" after every piece.
+ *
+ * <p>On the DFA this is exact: a state from which no input is accepted is dead, and one from which
+ * every input is accepted makes further input irrelevant. On the NFA the same questions are asked
+ * of the set of active states: it is dead once none of them {@linkplain Nfa#canAccept(int) can
+ * reach a match}, which is exact, and it accepts everything only if it holds a
+ * {@linkplain Nfa#loopsOnAnything(int) loop on any character}, so {@link #hitEnd()} and
+ * {@link #requireEnd()} may answer conservatively.
+ *
+ * <p>Created from a {@link TieredAutomaton}, a matcher runs on whichever tier is current, so a
+ * cold pattern is not promoted on the spot; each {@link #reset()} counts as one interpreted call
+ * towards promotion and picks up the DFA once it is there. Every character read is recorded to
+ * the metrics as scanned.
+ *
+ * <p>Instances are stateful and not thread‑safe.
+ */
+public class PrefixMatcher {
+	private final TieredAutomaton tiered;
+	private final PatternMetrics metrics;
+	private Dfa dfa;
+	private NfaSimulator simulator;
+	private boolean fallbackRecorded;
+
+	private int state;
+	private boolean alive;
+	private long consumed;
+
+	public PrefixMatcher(CompiledAutomaton automaton, PatternMetrics metrics) {
+		this.tiered = null;
+		this.metrics = metrics;
+		use(automaton, true);
+		reset();
+	}
+
+	public PrefixMatcher(TieredAutomaton tiered, PatternMetrics metrics) {
+		this.tiered = tiered;
+		this.metrics = metrics;
+		reset();
+	}
+
+	/**
+	 * Switches to the DFA of {@code automaton} if it has one, and otherwise keeps simulating its
+	 * NFA, which is a fallback once {@code promoted}.
+	 */
+	private void use(CompiledAutomaton automaton, boolean promoted) {
+		if (automaton.getDfa() != null) {
+			dfa = automaton.getDfa();
+			simulator = null;
+			return;
+		}
+		if (promoted && !fallbackRecorded) {
+			metrics.recordFallback();
+			fallbackRecorded = true;
+		}
+		if (simulator == null) {
+			simulator = new NfaSimulator(automaton.getNfa());
+		}
+	}
+
+	public void reset() {
+		if (tiered != null) {
+			boolean promoted = tiered.isPromoted();
+			use(tiered.current(), promoted);
+			if (dfa == null && !promoted) {
+				tiered.recordInterpreted(0);
+			}
+		}
+		consumed = 0;
+		if (dfa != null) {
+			state = dfa.start();
+			alive = dfa.canAccept(state);
+		} else {
+			simulator.start();
+			alive = simulator.canAccept();
+		}
+	}
+
+	/**
+	 * Consumes {@code chunk}, stopping early once no match is possible.
+	 *
+	 * @return {@link #canMatch()}
+	 */
+	public boolean append(CharSequence chunk) {
+		ensureNotFreed();
+		long before = consumed;
+		if (dfa == null) {
+			for (int idx = 0; idx < chunk.length() && alive; idx++) {
+				advance(chunk.charAt(idx));
+			}
+		} else {
+			try (Dfa.Reader reader = dfa.reader()) {
+				for (int idx = 0; idx < chunk.length() && alive; idx++) {
+					advance(reader, chunk.charAt(idx));
+				}
+			}
+		}
+		metrics.recordScanned((int) (consumed - before));
+		return alive;
+	}
+
+	/**
+	 * @return {@link #canMatch()}
+	 */
+	public boolean append(char c) {
+		ensureNotFreed();
+		if (!alive) {
+			return false;
+		}
+		if (dfa == null) {
+			advance(c);
+		} else {
+			try (Dfa.Reader reader = dfa.reader()) {
+				advance(reader, c);
+			}
+		}
+		metrics.recordScanned(1);
+		return alive;
+	}
+
+	/**
+	 * The DFA's reader checks its own table; the NFA tier has none, so the tiers are asked.
+	 */
+	private void ensureNotFreed() {
+		if (tiered != null && dfa == null) {
+			tiered.ensureNotFreed();
+		}
+	}
+
+	private void advance(Dfa.Reader reader, char c) {
+		consumed++;
+		state = reader.next(state, c);
+		alive = dfa.canAccept(state);
+	}
+
+	private void advance(char c) {
+		consumed++;
+		alive = simulator.advance(c) && simulator.canAccept();
+	}
+
+	/**
+	 * @return whether the input so far matches
+	 */
+	public boolean matches() {
+		return alive && (dfa != null ? dfa.isAccepting(state) : simulator.isAccepting());
+	}
+
+	/**
+	 * @return whether the input so far, possibly extended, can still match; once {@code false} it
+	 * stays so until {@link #reset()}
+	 */
+	public boolean canMatch() {
+		return alive;
+	}
+
+	/**
+	 * @return whether more input could change {@link #matches()}
+	 */
+	public boolean hitEnd() {
+		return alive && !acceptsEverything();
+	}
+
+	/**
+	 * @return whether the input so far matches and more input could lose the match
+	 */
+	public boolean requireEnd() {
+		return matches() && !acceptsEverything();
+	}
+
+	private boolean acceptsEverything() {
+		return dfa != null ? dfa.acceptsEverything(state) : simulator.acceptsEverything();
+	}
+
+	/**
+	 * @return how many characters were read; input after the point of rejection is not read
+	 */
+	public long consumed() {
+		return consumed;
+	}
+}
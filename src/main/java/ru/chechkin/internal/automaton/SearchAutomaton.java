@@ -0,0 +1,97 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.ir.CompactRegexp;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.visitor.NodeReverser;
+
+/**
+ * The automata compiled for searching: the {@link Nfa}, and when both fit in the state budget the
+ * forward search DFA and the anchored DFA of the mirrored pattern used by {@link DfaSearcher}.
+ */
+public final class SearchAutomaton {
+	private final Nfa nfa;
+	private final Dfa forward;
+	private final Dfa reverse;
+	private volatile boolean freed;
+
+	private SearchAutomaton(Nfa nfa, Dfa forward, Dfa reverse) {
+		this.nfa = nfa;
+		this.forward = forward;
+		this.reverse = reverse;
+	}
+
+	public static SearchAutomaton compile(Node node) {
+		return compile(node, DfaBuilder.DEFAULT_MAX_STATES);
+	}
+
+	public static SearchAutomaton compile(Node node, int maxDfaStates) {
+		return compile(CompactRegexp.from(node), maxDfaStates);
+	}
+
+	public static SearchAutomaton compile(CompactRegexp ir) {
+		return compile(ir, DfaBuilder.DEFAULT_MAX_STATES);
+	}
+
+	/**
+	 * Builds the NFA from {@code ir} directly; a tree is only rebuilt, to mirror it, once the
+	 * forward DFA fits in {@code maxDfaStates}.
+	 */
+	public static SearchAutomaton compile(CompactRegexp ir, int maxDfaStates) {
+		Nfa nfa = NfaBuilder.build(ir);
+		Dfa forward = SearchDfaBuilder.build(nfa, maxDfaStates);
+		Dfa reverse = forward == null ? null : DfaBuilder.build(NfaBuilder.build(NodeReverser.reverse(ir.toNode())), maxDfaStates);
+		return reverse == null
+				? new SearchAutomaton(nfa, null, null)
+				: new SearchAutomaton(nfa, forward, reverse);
+	}
+
+	public Nfa getNfa() {
+		return nfa;
+	}
+
+	/**
+	 * @return the forward search DFA, or {@code null} if the pattern has no DFA
+	 */
+	public Dfa getForwardDfa() {
+		return forward;
+	}
+
+	/**
+	 * @return the DFA of the mirrored pattern, or {@code null} if the pattern has no DFA
+	 */
+	public Dfa getReverseDfa() {
+		return reverse;
+	}
+
+	/**
+	 * @throws IllegalStateException if the automaton has been {@linkplain #free() freed}
+	 */
+	public void ensureNotFreed() {
+		if (freed) {
+			throw new IllegalStateException("Search automaton has been freed");
+		}
+	}
+
+	public boolean hasDfa() {
+		return forward != null;
+	}
+
+	/**
+	 * @return a copy with both DFA tables {@linkplain Dfa#toOffHeap() off‑heap}
+	 */
+	public SearchAutomaton toOffHeap() {
+		return forward == null ? this : new SearchAutomaton(nfa, forward.toOffHeap(), reverse.toOffHeap());
+	}
+
+	/**
+	 * Releases off‑heap tables once the searches in progress are done; searches started afterwards
+	 * throw {@link IllegalStateException}.
+	 */
+	public void free() {
+		freed = true;
+		if (forward != null) {
+			forward.free();
+			reverse.free();
+		}
+	}
+}
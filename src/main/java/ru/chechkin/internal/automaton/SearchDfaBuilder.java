@@ -0,0 +1,207 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.charset.AlphabetPartition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the forward DFA of an unanchored leftmost‑longest search. Its accepting positions are the
+ * ends of the leftmost match; the start is then recovered by a reverse DFA (see {@link DfaSearcher}).
+ *
+ * <p>As in RE2's longest‑match mode, a DFA state is a list of NFA state groups ordered by where
+ * their threads started, earliest first, plus a flag telling whether new threads may still start.
+ * An NFA state already present in an earlier group is dropped from later ones, since the earlier
+ * thread dominates it. As soon as a group reaches MATCH, every later group and the start loop are
+ * cut: no later‑starting match can be leftmost any more, while earlier groups may still produce a
+ * match further to the left.
+ */
+class SearchDfaBuilder {
+	private static final int SEPARATOR = -1;
+
+	private final Nfa nfa;
+	private final AlphabetPartition partition;
+	private final int classCount;
+	private final int maxStates;
+
+	private final Map<Key, Integer> ids = new HashMap<>();
+	private final List<int[]> states = new ArrayList<>();
+	private final List<Boolean> accepting = new ArrayList<>();
+
+	private final SparseSet closure;
+	private final SparseSet seen;
+	private final int[] stack;
+	private final int[] startGroup;
+
+	private SearchDfaBuilder(Nfa nfa, int maxStates) {
+		this.nfa = nfa;
+		this.partition = nfa.partition();
+		this.classCount = partition.classCount();
+		this.maxStates = maxStates;
+		this.closure = new SparseSet(nfa.stateCount());
+		this.seen = new SparseSet(nfa.stateCount());
+		this.stack = new int[nfa.stateCount()];
+
+		closure.clear();
+		nfa.addClosure(closure, nfa.start(), stack);
+		this.startGroup = important(closure);
+	}
+
+	/**
+	 * @return the search DFA, or {@code null} if the NFA {@linkplain Nfa#withoutCounters(int)
+	 * unrolled} or the DFA would exceed {@code maxStates}
+	 */
+	static Dfa build(Nfa nfa, int maxStates) {
+		Nfa unrolled = nfa.withoutCounters(maxStates);
+		if (unrolled == null) {
+			return null;
+		}
+		return new SearchDfaBuilder(unrolled, maxStates).build();
+	}
+
+	private Dfa build() {
+		intern(new int[] {0});
+
+		List<int[]> initial = new ArrayList<>();
+		initial.add(startGroup);
+		int start = intern(cut(initial, true));
+
+		int[] table = new int[classCount * 16];
+		for (int state = 0; state < states.size(); state++) {
+			if (states.size() > maxStates) {
+				return null;
+			}
+			if ((state + 1) * classCount > table.length) {
+				table = Arrays.copyOf(table, table.length * 2);
+			}
+			for (int classId = 0; classId < classCount; classId++) {
+				table[state * classCount + classId] = intern(transition(states.get(state), partition.representative(classId)));
+			}
+		}
+
+		boolean[] acceptingArray = new boolean[states.size()];
+		for (int idx = 0; idx < acceptingArray.length; idx++) {
+			acceptingArray[idx] = accepting.get(idx);
+		}
+		return new Dfa(partition, Arrays.copyOf(table, states.size() * classCount), acceptingArray, start);
+	}
+
+	private int[] transition(int[] encoded, char c) {
+		List<int[]> groups = new ArrayList<>();
+		seen.clear();
+
+		int idx = 1;
+		while (idx < encoded.length) {
+			closure.clear();
+			for (; encoded[idx] != SEPARATOR; idx++) {
+				int state = encoded[idx];
+				if (nfa.kind(state) == Nfa.CHAR && nfa.label(state).contains(c)) {
+					nfa.addClosure(closure, nfa.out(state), stack);
+				}
+			}
+			idx++;
+			addGroup(groups, important(closure));
+		}
+
+		boolean loop = encoded[0] == 1;
+		if (loop) {
+			addGroup(groups, startGroup);
+		}
+		return cut(groups, loop);
+	}
+
+	private void addGroup(List<int[]> groups, int[] group) {
+		int[] fresh = new int[group.length];
+		int count = 0;
+		for (int state : group) {
+			if (seen.add(state)) {
+				fresh[count++] = state;
+			}
+		}
+		if (count > 0) {
+			groups.add(count == group.length ? group : Arrays.copyOf(fresh, count));
+		}
+	}
+
+	private int[] cut(List<int[]> groups, boolean loop) {
+		int keep = groups.size();
+		for (int idx = 0; idx < groups.size(); idx++) {
+			if (hasMatch(groups.get(idx))) {
+				keep = idx + 1;
+				loop = false;
+				break;
+			}
+		}
+
+		int length = 1;
+		for (int idx = 0; idx < keep; idx++) {
+			length += groups.get(idx).length + 1;
+		}
+		int[] encoded = new int[length];
+		encoded[0] = loop ? 1 : 0;
+		int position = 1;
+		for (int idx = 0; idx < keep; idx++) {
+			int[] group = groups.get(idx);
+			System.arraycopy(group, 0, encoded, position, group.length);
+			position += group.length;
+			encoded[position++] = SEPARATOR;
+		}
+		return encoded;
+	}
+
+	private boolean hasMatch(int[] group) {
+		for (int state : group) {
+			if (nfa.kind(state) == Nfa.MATCH) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private int[] important(SparseSet set) {
+		int[] result = new int[set.size()];
+		int count = 0;
+		for (int idx = 0; idx < set.size(); idx++) {
+			int state = set.get(idx);
+			int kind = nfa.kind(state);
+			if (kind == Nfa.CHAR || kind == Nfa.MATCH) {
+				result[count++] = state;
+			}
+		}
+		result = Arrays.copyOf(result, count);
+		Arrays.sort(result);
+		return result;
+	}
+
+	private int intern(int[] encoded) {
+		Key key = new Key(encoded);
+		Integer id = ids.get(key);
+		if (id != null) {
+			return id;
+		}
+		id = states.size();
+		ids.put(key, id);
+		states.add(encoded);
+		boolean isAccepting = false;
+		for (int idx = 1; idx < encoded.length; idx++) {
+			isAccepting |= encoded[idx] != SEPARATOR && nfa.kind(encoded[idx]) == Nfa.MATCH;
+		}
+		accepting.add(isAccepting);
+		return id;
+	}
+
+	private record Key(int[] encoded) {
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof Key other && Arrays.equals(encoded, other.encoded);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(encoded);
+		}
+	}
+}
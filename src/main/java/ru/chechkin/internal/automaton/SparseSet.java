@@ -0,0 +1,46 @@
+package ru.chechkin.internal.automaton;
+
+/**
+ * A set of small non‑negative integers with O(1) add, membership test and clear, iterated in
+ * insertion order (Briggs and Torczon).
+ */
+final class SparseSet {
+	private final int[] dense;
+	private final int[] sparse;
+	private int size;
+
+	SparseSet(int capacity) {
+		this.dense = new int[capacity];
+		this.sparse = new int[capacity];
+	}
+
+	boolean contains(int value) {
+		int idx = sparse[value];
+		return idx < size && dense[idx] == value;
+	}
+
+	boolean add(int value) {
+		if (contains(value)) {
+			return false;
+		}
+		sparse[value] = size;
+		dense[size++] = value;
+		return true;
+	}
+
+	int size() {
+		return size;
+	}
+
+	int get(int index) {
+		return dense[index];
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	void clear() {
+		size = 0;
+	}
+}
@@ -0,0 +1,146 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.ir.CompactRegexp;
+import ru.chechkin.internal.metrics.PatternMetrics;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The automata of one pattern, compiled in tiers. A pattern starts with only its {@link Nfa},
+ * which is linear in the pattern's size, and counts the calls and characters simulated on it.
+ * Once either count crosses its threshold the DFA is built on a background thread and published
+ * with a single volatile write, so matchers pick it up on their next call and cold patterns never
+ * pay for subset construction.
+ *
+ * <p>The thresholds come from the {@code regexpm.tier.calls} and {@code regexpm.tier.chars}
+ * system properties; a threshold of {@code 0} promotes on the first match.
+ */
+public final class TieredAutomaton {
+	public static final int PROMOTE_CALLS = Integer.getInteger("regexpm.tier.calls", 1_000);
+	public static final long PROMOTE_CHARS = Long.getLong("regexpm.tier.chars", 1L << 20);
+
+	private static final ExecutorService PROMOTER = Executors.newSingleThreadExecutor(task -> {
+		Thread thread = new Thread(task, "regexpm-promoter");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final PatternMetrics metrics;
+	private final Executor executor;
+	private final int promoteCalls;
+	private final long promoteChars;
+	private final boolean offHeap;
+
+	private final LongAdder calls = new LongAdder();
+	private final LongAdder chars = new LongAdder();
+	private final AtomicBoolean promotionRequested = new AtomicBoolean();
+
+	private volatile CompiledAutomaton current;
+	private volatile boolean promoted;
+	private volatile boolean freed;
+
+	public TieredAutomaton(CompactRegexp ir, PatternMetrics metrics, boolean offHeap) {
+		this(ir, metrics, offHeap, PROMOTER, PROMOTE_CALLS, PROMOTE_CHARS);
+	}
+
+	public TieredAutomaton(CompactRegexp ir, PatternMetrics metrics, boolean offHeap, Executor executor, int promoteCalls, long promoteChars) {
+		this.metrics = metrics;
+		this.executor = executor;
+		this.promoteCalls = promoteCalls;
+		this.promoteChars = promoteChars;
+		this.offHeap = offHeap;
+		this.current = CompiledAutomaton.interpreted(ir);
+	}
+
+	/**
+	 * @return the automaton to run now; it has a DFA once promotion has finished and succeeded
+	 * @throws IllegalStateException if the automaton has been {@linkplain #free() freed}
+	 */
+	public CompiledAutomaton current() {
+		ensureNotFreed();
+		return current;
+	}
+
+	/**
+	 * @throws IllegalStateException if the automaton has been {@linkplain #free() freed}
+	 */
+	public void ensureNotFreed() {
+		if (freed) {
+			throw new IllegalStateException("Automaton has been freed");
+		}
+	}
+
+	/**
+	 * @return the promoted automaton, promoting on the calling thread if that has not happened yet
+	 */
+	public CompiledAutomaton compiled() {
+		if (!promoted) {
+			promote();
+		}
+		return current();
+	}
+
+	/**
+	 * Counts one simulation of {@code length} characters on the NFA tier and schedules promotion
+	 * once the pattern is hot. Does nothing after promotion.
+	 */
+	public void recordInterpreted(int length) {
+		if (promotionRequested.get()) {
+			return;
+		}
+		calls.increment();
+		chars.add(length);
+		if ((calls.sum() >= promoteCalls || chars.sum() >= promoteChars) && promotionRequested.compareAndSet(false, true)) {
+			try {
+				executor.execute(this::promote);
+			} catch (RejectedExecutionException e) {
+				promotionRequested.set(false);
+			}
+		}
+	}
+
+	/**
+	 * @return whether the DFA tier was attempted; {@link #current()} still has no DFA if it was over
+	 * budget, and matches keep simulating the NFA
+	 */
+	public boolean isPromoted() {
+		return promoted;
+	}
+
+	public long interpretedCalls() {
+		return calls.sum();
+	}
+
+	public long interpretedChars() {
+		return chars.sum();
+	}
+
+	private synchronized void promote() {
+		if (promoted || freed) {
+			return;
+		}
+		long start = System.nanoTime();
+		CompiledAutomaton result = current.withDfa(DfaBuilder.DEFAULT_MAX_STATES);
+		if (offHeap) {
+			result = result.toOffHeap();
+		}
+		current = result;
+		promoted = true;
+		promotionRequested.set(true);
+		metrics.recordPromotion(System.nanoTime() - start);
+	}
+
+	/**
+	 * Releases off‑heap tables once the matches in progress are done and cancels a pending
+	 * promotion; {@link #current()} throws {@link IllegalStateException} afterwards.
+	 */
+	public synchronized void free() {
+		freed = true;
+		current.free();
+	}
+}
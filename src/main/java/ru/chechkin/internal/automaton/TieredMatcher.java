@@ -0,0 +1,44 @@
+package ru.chechkin.internal.automaton;
+
+import ru.chechkin.internal.Matcher;
+import ru.chechkin.internal.metrics.PatternMetrics;
+
+/**
+ * Whole‑input matching on whichever tier of a {@link TieredAutomaton} is current: the NFA until
+ * the pattern gets hot, the DFA afterwards. NFA simulation after a promotion that produced no DFA
+ * is reported to {@link PatternMetrics#recordFallback()}, as in {@link AutomatonMatcher}.
+ */
+public class TieredMatcher implements Matcher {
+	private final TieredAutomaton tiered;
+	private final PatternMetrics metrics;
+
+	public TieredMatcher(TieredAutomaton tiered, PatternMetrics metrics) {
+		this.tiered = tiered;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public boolean match(String text) {
+		if (text == null) {
+			return false;
+		}
+
+		CompiledAutomaton automaton = tiered.current();
+		Dfa dfa = automaton.getDfa();
+		if (dfa != null) {
+			return dfa.matches(text, metrics);
+		}
+
+		if (tiered.isPromoted()) {
+			metrics.recordFallback();
+		} else {
+			tiered.recordInterpreted(text.length());
+		}
+		return new NfaSimulator(automaton.getNfa()).matches(text, metrics);
+	}
+
+	@Override
+	public boolean canMatchPrefix(String prefix) {
+		return new PrefixMatcher(tiered, metrics).append(prefix);
+	}
+}
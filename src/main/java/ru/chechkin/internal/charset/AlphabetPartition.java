@@ -0,0 +1,156 @@
+package ru.chechkin.internal.charset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A partition of the UTF‑16 alphabet into equivalence classes: two characters share a class id
+ * exactly when every {@link CharClass} the partition was built from either contains both or
+ * neither of them. An automaton whose labels are those classes therefore behaves identically on
+ * all characters of one class, and its transition rows only need {@link #classCount()} entries.
+ *
+ * <p>ASCII characters are mapped through a 128‑entry table; the rest through a binary search over
+ * the segment starts.
+ */
+public final class AlphabetPartition {
+	private static final int ASCII = 128;
+
+	private final char[] asciiClass;
+	private final char[] segmentStarts;
+	private final char[] segmentClass;
+	private final char[] representatives;
+
+	private AlphabetPartition(char[] segmentStarts, char[] segmentClass, char[] representatives) {
+		this.segmentStarts = segmentStarts;
+		this.segmentClass = segmentClass;
+		this.representatives = representatives;
+		this.asciiClass = new char[ASCII];
+		for (char c = 0; c < ASCII; c++) {
+			asciiClass[c] = segmentClass[segmentOf(c)];
+		}
+	}
+
+	public static AlphabetPartition of(Collection<CharClass> classes) {
+		List<CharClass> distinct = new ArrayList<>(new LinkedHashSet<>(classes));
+
+		int[] boundaries = new int[2];
+		int boundaryCount = 0;
+		boundaries[boundaryCount++] = Character.MIN_VALUE;
+		for (CharClass charClass : distinct) {
+			for (int idx = 0; idx < charClass.rangeCount(); idx++) {
+				if (boundaryCount + 2 > boundaries.length) {
+					boundaries = Arrays.copyOf(boundaries, boundaries.length * 2);
+				}
+				boundaries[boundaryCount++] = charClass.rangeStart(idx);
+				if (charClass.rangeEnd(idx) < Character.MAX_VALUE) {
+					boundaries[boundaryCount++] = charClass.rangeEnd(idx) + 1;
+				}
+			}
+		}
+		Arrays.sort(boundaries, 0, boundaryCount);
+
+		Map<BitSet, Integer> classIdBySignature = new HashMap<>();
+		StringBuilder starts = new StringBuilder();
+		StringBuilder segmentClasses = new StringBuilder();
+		StringBuilder representatives = new StringBuilder();
+
+		int previous = -1;
+		for (int idx = 0; idx < boundaryCount; idx++) {
+			int start = boundaries[idx];
+			if (start == previous) {
+				continue;
+			}
+			previous = start;
+
+			BitSet signature = new BitSet(distinct.size());
+			for (int label = 0; label < distinct.size(); label++) {
+				if (distinct.get(label).contains((char) start)) {
+					signature.set(label);
+				}
+			}
+
+			Integer classId = classIdBySignature.get(signature);
+			if (classId == null) {
+				classId = representatives.length();
+				classIdBySignature.put(signature, classId);
+				representatives.append((char) start);
+			}
+
+			// adjacent segments of the same class collapse into one
+			int last = segmentClasses.length() - 1;
+			if (last < 0 || segmentClasses.charAt(last) != classId) {
+				starts.append((char) start);
+				segmentClasses.append((char) (int) classId);
+			}
+		}
+
+		return new AlphabetPartition(
+				starts.toString().toCharArray(),
+				segmentClasses.toString().toCharArray(),
+				representatives.toString().toCharArray()
+		);
+	}
+
+	public int classOf(char c) {
+		if (c < ASCII) {
+			return asciiClass[c];
+		}
+		return segmentClass[segmentOf(c)];
+	}
+
+	public int classCount() {
+		return representatives.length;
+	}
+
+	/**
+	 * @return some character of the given class
+	 */
+	public char representative(int classId) {
+		return representatives[classId];
+	}
+
+	/**
+	 * @return the ids of the classes that make up {@code charClass}, which must be one of the
+	 * classes this partition was built from (or a union of them)
+	 */
+	public int[] classesOf(CharClass charClass) {
+		int[] ids = new int[classCount()];
+		int count = 0;
+		for (int classId = 0; classId < representatives.length; classId++) {
+			if (charClass.contains(representatives[classId])) {
+				ids[count++] = classId;
+			}
+		}
+		return Arrays.copyOf(ids, count);
+	}
+
+	/**
+	 * @return every character of the given class
+	 */
+	public CharClass charClass(int classId) {
+		CharClass.Builder builder = CharClass.builder();
+		for (int idx = 0; idx < segmentStarts.length; idx++) {
+			if (segmentClass[idx] == classId) {
+				char end = idx + 1 < segmentStarts.length ? (char) (segmentStarts[idx + 1] - 1) : Character.MAX_VALUE;
+				builder.addRange(segmentStarts[idx], end);
+			}
+		}
+		return builder.build();
+	}
+
+	private int segmentOf(char c) {
+		int idx = Arrays.binarySearch(segmentStarts, c);
+		return idx >= 0 ? idx : -idx - 2;
+	}
+
+	@Override
+	public String toString() {
+		return "AlphabetPartition{classes=" + classCount() + ", segments=" + segmentStarts.length + "}";
+	}
+}
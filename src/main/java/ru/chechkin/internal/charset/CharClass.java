@@ -0,0 +1,238 @@
+package ru.chechkin.internal.charset;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of UTF‑16 code units stored as sorted, disjoint, non‑adjacent inclusive ranges.
+ * Membership of ASCII characters is answered from a 128‑bit bitmap; everything else is a binary
+ * search over the ranges.
+ */
+public final class CharClass {
+	public static final CharClass EMPTY = new CharClass(new char[0]);
+	public static final CharClass ANY = range(Character.MIN_VALUE, Character.MAX_VALUE);
+	public static final CharClass DIGIT = range('0', '9');
+	public static final CharClass WORD = builder()
+			.addRange('0', '9')
+			.addRange('A', 'Z')
+			.addRange('_', '_')
+			.addRange('a', 'z')
+			.build();
+	public static final CharClass SPACE = builder()
+			.addRange('\t', '\r')
+			.addRange(' ', ' ')
+			.build();
+
+	private static final CharClass[] ASCII_CHARS = new CharClass[128];
+
+	static {
+		for (char c = 0; c < ASCII_CHARS.length; c++) {
+			ASCII_CHARS[c] = range(c, c);
+		}
+	}
+
+	/**
+	 * Range bounds as {@code [lo0, hi0, lo1, hi1, ...]}.
+	 */
+	private final char[] ranges;
+	private final long asciiLow;
+	private final long asciiHigh;
+
+	private CharClass(char[] ranges) {
+		this.ranges = ranges;
+
+		long low = 0;
+		long high = 0;
+		for (int idx = 0; idx < ranges.length; idx += 2) {
+			for (int c = ranges[idx]; c <= ranges[idx + 1] && c < 128; c++) {
+				if (c < 64) {
+					low |= 1L << c;
+				} else {
+					high |= 1L << (c - 64);
+				}
+			}
+		}
+		this.asciiLow = low;
+		this.asciiHigh = high;
+	}
+
+	public static CharClass of(char c) {
+		return c < ASCII_CHARS.length ? ASCII_CHARS[c] : range(c, c);
+	}
+
+	public static CharClass range(char lo, char hi) {
+		if (lo > hi) {
+			throw new IllegalArgumentException("Illegal character range: " + lo + "-" + hi);
+		}
+		return new CharClass(new char[] {lo, hi});
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public boolean contains(char c) {
+		if (c < 64) {
+			return (asciiLow & (1L << c)) != 0;
+		}
+		if (c < 128) {
+			return (asciiHigh & (1L << (c - 64))) != 0;
+		}
+
+		int lo = 0;
+		int hi = ranges.length / 2 - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (c < ranges[2 * mid]) {
+				hi = mid - 1;
+			} else if (c > ranges[2 * mid + 1]) {
+				lo = mid + 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public boolean isEmpty() {
+		return ranges.length == 0;
+	}
+
+	/**
+	 * @return the single character of this class, or {@code -1} if it holds zero or several
+	 */
+	public int singleChar() {
+		return ranges.length == 2 && ranges[0] == ranges[1] ? ranges[0] : -1;
+	}
+
+	public int rangeCount() {
+		return ranges.length / 2;
+	}
+
+	public char rangeStart(int index) {
+		return ranges[2 * index];
+	}
+
+	public char rangeEnd(int index) {
+		return ranges[2 * index + 1];
+	}
+
+	public CharClass union(CharClass other) {
+		Builder builder = new Builder();
+		builder.addAll(this);
+		builder.addAll(other);
+		return builder.build();
+	}
+
+	public CharClass complement() {
+		Builder builder = new Builder();
+		int next = Character.MIN_VALUE;
+		for (int idx = 0; idx < ranges.length; idx += 2) {
+			if (ranges[idx] > next) {
+				builder.addRange((char) next, (char) (ranges[idx] - 1));
+			}
+			next = ranges[idx + 1] + 1;
+		}
+		if (next <= Character.MAX_VALUE) {
+			builder.addRange((char) next, Character.MAX_VALUE);
+		}
+		return builder.build();
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		return object instanceof CharClass other && Arrays.equals(ranges, other.ranges);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(ranges);
+	}
+
+	@Override
+	public String toString() {
+		if (equals(ANY)) {
+			return ".";
+		}
+		StringBuilder builder = new StringBuilder("[");
+		for (int idx = 0; idx < ranges.length; idx += 2) {
+			appendChar(builder, ranges[idx]);
+			if (ranges[idx + 1] != ranges[idx]) {
+				builder.append('-');
+				appendChar(builder, ranges[idx + 1]);
+			}
+		}
+		return builder.append(']').toString();
+	}
+
+	private static void appendChar(StringBuilder builder, char c) {
+		if (c == ']' || c == '\\' || c == '-' || c == '^' || c == '[') {
+			builder.append('\\').append(c);
+		} else if (c < 0x20 || c > 0x7E) {
+			builder.append(String.format("\\u%04X", (int) c));
+		} else {
+			builder.append(c);
+		}
+	}
+
+	/**
+	 * Collects ranges in any order and normalizes them on {@link #build()}.
+	 */
+	public static final class Builder {
+		private char[] ranges = new char[8];
+		private int length = 0;
+
+		private Builder() {
+		}
+
+		public Builder addChar(char c) {
+			return addRange(c, c);
+		}
+
+		public Builder addRange(char lo, char hi) {
+			if (lo > hi) {
+				throw new IllegalArgumentException("Illegal character range: " + lo + "-" + hi);
+			}
+			if (length == ranges.length) {
+				ranges = Arrays.copyOf(ranges, ranges.length * 2);
+			}
+			ranges[length++] = lo;
+			ranges[length++] = hi;
+			return this;
+		}
+
+		public Builder addAll(CharClass charClass) {
+			for (int idx = 0; idx < charClass.ranges.length; idx += 2) {
+				addRange(charClass.ranges[idx], charClass.ranges[idx + 1]);
+			}
+			return this;
+		}
+
+		public CharClass build() {
+			int count = length / 2;
+			if (count == 0) {
+				return EMPTY;
+			}
+
+			// sort range starts together with their ends by packing both into one long
+			long[] packed = new long[count];
+			for (int idx = 0; idx < count; idx++) {
+				packed[idx] = ((long) ranges[2 * idx] << 16) | ranges[2 * idx + 1];
+			}
+			Arrays.sort(packed);
+
+			char[] merged = new char[2 * count];
+			int size = 0;
+			for (long range : packed) {
+				char lo = (char) (range >>> 16);
+				char hi = (char) range;
+				if (size > 0 && lo <= merged[size - 1] + 1) {
+					merged[size - 1] = (char) Math.max(merged[size - 1], hi);
+				} else {
+					merged[size++] = lo;
+					merged[size++] = hi;
+				}
+			}
+			return new CharClass(Arrays.copyOf(merged, size));
+		}
+	}
+}
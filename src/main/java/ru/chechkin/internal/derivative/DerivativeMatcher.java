@@ -0,0 +1,168 @@
+package ru.chechkin.internal.derivative;
+
+import ru.chechkin.internal.Matcher;
+import ru.chechkin.internal.charset.AlphabetPartition;
+import ru.chechkin.internal.metrics.PatternMetrics;
+import ru.chechkin.internal.parser.node.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Whole‑input matching by Brzozowski derivatives: the state after reading a prefix is the
+ * derivative of the pattern by it, and the input matches if the final derivative is nullable.
+ *
+ * <p>Derivatives are hash‑consed, so each distinct one becomes a DFA state, and the transition
+ * from a state on an alphabet class is cached the first time it is taken. The DFA is thus built
+ * lazily from the tree, only for the states the inputs visit: compiling costs a tree conversion,
+ * and matching is linear once the visited states are cached. Should the cache outgrow
+ * {@code maxStates} it is dropped, along with the interned terms only it referenced, and rebuilt
+ * on demand, which bounds memory without giving up correctness.
+ *
+ * <p>An instance owns its cache and is not thread‑safe.
+ */
+public class DerivativeMatcher implements Matcher {
+	public static final int DEFAULT_MAX_STATES = 10_000;
+
+	private static final int UNKNOWN = -1;
+
+	private final TermFactory terms = new TermFactory();
+	private final AlphabetPartition partition;
+	private final int classCount;
+	private final int maxStates;
+	private final PatternMetrics metrics;
+	private final Term start;
+
+	private final Map<Term, Integer> ids = new IdentityHashMap<>();
+	private final List<Term> states = new ArrayList<>();
+	private int[][] rows = new int[16][];
+	private int startId;
+	private int cacheResets;
+
+	public DerivativeMatcher(Node root) {
+		this(root, DEFAULT_MAX_STATES);
+	}
+
+	public DerivativeMatcher(Node root, int maxStates) {
+		this(root, maxStates, PatternMetrics.DISABLED);
+	}
+
+	/**
+	 * Records to {@code metrics} the characters each {@link #match} reads before the derivative
+	 * becomes empty.
+	 */
+	public DerivativeMatcher(Node root, int maxStates, PatternMetrics metrics) {
+		this.metrics = metrics;
+		this.start = terms.fromNode(root);
+		this.partition = AlphabetPartition.of(terms.charClasses());
+		this.classCount = partition.classCount();
+		this.maxStates = maxStates;
+		this.startId = state(start);
+	}
+
+	@Override
+	public boolean match(String text) {
+		if (text == null) {
+			return false;
+		}
+		int state = run(text, metrics);
+		return state >= 0 && states.get(state).nullable();
+	}
+
+	/**
+	 * Normalization reduces every term with an empty language to {@link TermFactory#empty}, so a
+	 * prefix is viable exactly when its derivative is not that term.
+	 */
+	@Override
+	public boolean canMatchPrefix(String prefix) {
+		return run(prefix, PatternMetrics.DISABLED) >= 0;
+	}
+
+	/**
+	 * @return the state after {@code text}, or {@code -1} once the derivative is empty
+	 */
+	private int run(String text, PatternMetrics metrics) {
+		int state = startId;
+		if (states.get(state) == terms.empty) {
+			metrics.recordScanned(0);
+			return -1;
+		}
+		for (int idx = 0; idx < text.length(); idx++) {
+			int classId = partition.classOf(text.charAt(idx));
+			int next = rows[state][classId];
+			state = next != UNKNOWN ? next : transition(state, classId);
+			if (states.get(state) == terms.empty) {
+				metrics.recordScanned(idx + 1);
+				return -1;
+			}
+		}
+		metrics.recordScanned(text.length());
+		return state;
+	}
+
+	/**
+	 * Computes and caches a missing transition. If the cache is full it is reset first, which
+	 * renumbers the states; the returned id is valid in the new numbering.
+	 */
+	private int transition(int state, int classId) {
+		Term current = states.get(state);
+		if (states.size() >= maxStates) {
+			resetCache(current);
+			state = state(current);
+		}
+		int next = state(terms.derivative(current, partition.representative(classId)));
+		rows[state][classId] = next;
+		return next;
+	}
+
+	/**
+	 * Drops the cached states together with the terms interned for them, keeping only the start
+	 * and the {@code current} term matching continues from.
+	 */
+	private void resetCache(Term current) {
+		cacheResets++;
+		terms.retain(start, current);
+		ids.clear();
+		states.clear();
+		Arrays.fill(rows, null);
+		startId = state(start);
+	}
+
+	private int state(Term term) {
+		Integer id = ids.get(term);
+		if (id != null) {
+			return id;
+		}
+		id = states.size();
+		ids.put(term, id);
+		states.add(term);
+		if (id == rows.length) {
+			rows = Arrays.copyOf(rows, id * 2);
+		}
+		int[] row = new int[classCount];
+		Arrays.fill(row, UNKNOWN);
+		rows[id] = row;
+		return id;
+	}
+
+	/**
+	 * @return how many derivatives are currently cached as DFA states
+	 */
+	public int cachedStates() {
+		return states.size();
+	}
+
+	public int cacheResets() {
+		return cacheResets;
+	}
+
+	/**
+	 * @return how many terms the factory currently interns, cached states and their subterms
+	 */
+	public int internedTerms() {
+		return terms.size();
+	}
+}
@@ -0,0 +1,150 @@
+package ru.chechkin.internal.derivative;
+
+import ru.chechkin.internal.charset.CharClass;
+
+import java.util.List;
+
+/**
+ * A hash‑consed regular expression. Terms are only created through {@link TermFactory}, which
+ * returns the existing instance for a structurally equal term, so terms compare by identity and
+ * {@link #id()} orders them.
+ */
+public abstract sealed class Term permits Term.Empty, Term.Epsilon, Term.Chars, Term.Concat, Term.Or, Term.Star, Term.Repeat {
+	private final int id;
+	private final boolean nullable;
+
+	private Term(int id, boolean nullable) {
+		this.id = id;
+		this.nullable = nullable;
+	}
+
+	public int id() {
+		return id;
+	}
+
+	/**
+	 * @return whether the term matches the empty string
+	 */
+	public boolean nullable() {
+		return nullable;
+	}
+
+	/**
+	 * Matches nothing.
+	 */
+	public static final class Empty extends Term {
+		Empty(int id) {
+			super(id, false);
+		}
+
+		@Override
+		public String toString() {
+			return "∅";
+		}
+	}
+
+	/**
+	 * Matches only the empty string.
+	 */
+	public static final class Epsilon extends Term {
+		Epsilon(int id) {
+			super(id, true);
+		}
+
+		@Override
+		public String toString() {
+			return "ε";
+		}
+	}
+
+	public static final class Chars extends Term {
+		final CharClass charClass;
+
+		Chars(int id, CharClass charClass) {
+			super(id, false);
+			this.charClass = charClass;
+		}
+
+		@Override
+		public String toString() {
+			return charClass.toString();
+		}
+	}
+
+	/**
+	 * Kept right‑nested: {@code head} is never itself a concatenation.
+	 */
+	public static final class Concat extends Term {
+		final Term head;
+		final Term tail;
+
+		Concat(int id, Term head, Term tail) {
+			super(id, head.nullable() && tail.nullable());
+			this.head = head;
+			this.tail = tail;
+		}
+
+		@Override
+		public String toString() {
+			return "(" + head + tail + ")";
+		}
+	}
+
+	/**
+	 * Flat, duplicate‑free and sorted by id, with at most one {@link Chars} alternative.
+	 */
+	public static final class Or extends Term {
+		final List<Term> alternatives;
+
+		Or(int id, List<Term> alternatives, boolean nullable) {
+			super(id, nullable);
+			this.alternatives = alternatives;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder result = new StringBuilder("(");
+			for (int idx = 0; idx < alternatives.size(); idx++) {
+				result.append(idx == 0 ? "" : "|").append(alternatives.get(idx));
+			}
+			return result.append(")").toString();
+		}
+	}
+
+	public static final class Star extends Term {
+		final Term body;
+
+		Star(int id, Term body) {
+			super(id, true);
+			this.body = body;
+		}
+
+		@Override
+		public String toString() {
+			return body + "*";
+		}
+	}
+
+	/**
+	 * {@code body{min,max}} with {@code max} either {@link ru.chechkin.internal.parser.node.RepeatNode#UNBOUNDED}
+	 * or at least 2; the bounds shrink by one with each derivative, so counted repetition needs no
+	 * unrolling.
+	 */
+	public static final class Repeat extends Term {
+		final Term body;
+		final int min;
+		final int max;
+
+		Repeat(int id, Term body, int min, int max) {
+			super(id, min == 0 || body.nullable());
+			this.body = body;
+			this.min = min;
+			this.max = max;
+		}
+
+		@Override
+		public String toString() {
+			return body + "{" + min + "," + (max < 0 ? "" : max) + "}";
+		}
+	}
+}
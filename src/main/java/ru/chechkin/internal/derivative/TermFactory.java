@@ -0,0 +1,279 @@
+package ru.chechkin.internal.derivative;
+
+import ru.chechkin.internal.charset.CharClass;
+import ru.chechkin.internal.parser.node.AlternNode;
+import ru.chechkin.internal.parser.node.AtLeastOnceUnaryNode;
+import ru.chechkin.internal.parser.node.AtMostOnceUnaryNode;
+import ru.chechkin.internal.parser.node.CharClassNode;
+import ru.chechkin.internal.parser.node.ConcatNode;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.node.RepeatNode;
+import ru.chechkin.internal.parser.node.RepeatableUnaryNode;
+import ru.chechkin.internal.parser.node.StringNode;
+import ru.chechkin.internal.parser.visitor.NodeVisitor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates normalized, hash‑consed {@link Term}s. The smart constructors apply the identities that
+ * keep the set of derivatives finite (Brzozowski's similarity: associativity, commutativity and
+ * idempotence of {@code |}), plus the usual unit and zero laws, so that equal derivatives are the
+ * same instance and a derivative cache keyed by identity amounts to a DFA.
+ */
+public class TermFactory {
+	private final Map<Object, Term> terms = new HashMap<>();
+	private int nextId = 0;
+
+	public final Term empty = new Term.Empty(nextId++);
+	public final Term epsilon = new Term.Epsilon(nextId++);
+
+	private record CharsKey(CharClass charClass) {
+	}
+
+	private record ConcatKey(Term head, Term tail) {
+	}
+
+	private record OrKey(List<Term> alternatives) {
+	}
+
+	private record StarKey(Term body) {
+	}
+
+	private record RepeatKey(Term body, int min, int max) {
+	}
+
+	public int size() {
+		return terms.size() + 2;
+	}
+
+	/**
+	 * @return the classes of every {@link Term.Chars} created so far; derivatives only ever
+	 * combine these, so their partition separates every character a derivative can tell apart
+	 */
+	public List<CharClass> charClasses() {
+		List<CharClass> classes = new ArrayList<>();
+		for (Term term : terms.values()) {
+			if (term instanceof Term.Chars chars) {
+				classes.add(chars.charClass);
+			}
+		}
+		return classes;
+	}
+
+	public Term chars(CharClass charClass) {
+		if (charClass.isEmpty()) {
+			return empty;
+		}
+		return terms.computeIfAbsent(new CharsKey(charClass), key -> new Term.Chars(nextId++, charClass));
+	}
+
+	public Term concat(Term head, Term tail) {
+		if (head == empty || tail == empty) {
+			return empty;
+		}
+		if (head == epsilon) {
+			return tail;
+		}
+		if (tail == epsilon) {
+			return head;
+		}
+		if (head instanceof Term.Concat concat) {
+			return concat(concat.head, concat(concat.tail, tail));
+		}
+		return terms.computeIfAbsent(new ConcatKey(head, tail), key -> new Term.Concat(nextId++, head, tail));
+	}
+
+	public Term or(Term left, Term right) {
+		return or(List.of(left, right));
+	}
+
+	public Term or(List<Term> alternatives) {
+		Set<Term> unique = new HashSet<>();
+		CharClass chars = null;
+		for (Term alternative : alternatives) {
+			List<Term> parts = alternative instanceof Term.Or or ? or.alternatives : List.of(alternative);
+			for (Term part : parts) {
+				if (part instanceof Term.Chars charsTerm) {
+					chars = chars == null ? charsTerm.charClass : chars.union(charsTerm.charClass);
+				} else if (part != empty) {
+					unique.add(part);
+				}
+			}
+		}
+		List<Term> flat = new ArrayList<>(unique);
+		if (chars != null) {
+			flat.add(chars(chars));
+		}
+		if (flat.isEmpty()) {
+			return empty;
+		}
+		if (flat.size() == 1) {
+			return flat.get(0);
+		}
+
+		flat.sort(Comparator.comparingInt(Term::id));
+		List<Term> sorted = List.copyOf(flat);
+		boolean nullable = sorted.stream().anyMatch(Term::nullable);
+		return terms.computeIfAbsent(new OrKey(sorted), key -> new Term.Or(nextId++, sorted, nullable));
+	}
+
+	/**
+	 * Forgets every term not reachable from {@code roots}, so a long‑running caller that drops its
+	 * own references to old terms does not keep them alive here. Retained terms stay canonical:
+	 * constructing one of them again returns the same instance.
+	 */
+	public void retain(Term... roots) {
+		terms.clear();
+		Deque<Term> pending = new ArrayDeque<>(List.of(roots));
+		while (!pending.isEmpty()) {
+			Term term = pending.pop();
+			Object key;
+			if (term instanceof Term.Chars chars) {
+				key = new CharsKey(chars.charClass);
+			} else if (term instanceof Term.Concat concat) {
+				key = new ConcatKey(concat.head, concat.tail);
+				pending.push(concat.head);
+				pending.push(concat.tail);
+			} else if (term instanceof Term.Or or) {
+				key = new OrKey(or.alternatives);
+				or.alternatives.forEach(pending::push);
+			} else if (term instanceof Term.Star star) {
+				key = new StarKey(star.body);
+				pending.push(star.body);
+			} else if (term instanceof Term.Repeat repeat) {
+				key = new RepeatKey(repeat.body, repeat.min, repeat.max);
+				pending.push(repeat.body);
+			} else {
+				continue;
+			}
+			terms.put(key, term);
+		}
+	}
+
+	public Term star(Term body) {
+		if (body == empty || body == epsilon) {
+			return epsilon;
+		}
+		if (body instanceof Term.Star) {
+			return body;
+		}
+		return terms.computeIfAbsent(new StarKey(body), key -> new Term.Star(nextId++, body));
+	}
+
+	/**
+	 * @param max the upper bound, or {@link RepeatNode#UNBOUNDED}
+	 */
+	public Term repeat(Term body, int min, int max) {
+		if (max == 0 || body == epsilon) {
+			return epsilon;
+		}
+		if (body == empty) {
+			return min == 0 ? epsilon : empty;
+		}
+		if (max == RepeatNode.UNBOUNDED && min == 0) {
+			return star(body);
+		}
+		if (max == 1) {
+			return min == 0 ? or(epsilon, body) : body;
+		}
+		return terms.computeIfAbsent(new RepeatKey(body, min, max), key -> new Term.Repeat(nextId++, body, min, max));
+	}
+
+	/**
+	 * @return the derivative of {@code term} by {@code c}: the term matching every {@code w}
+	 * such that {@code term} matches {@code cw}
+	 */
+	public Term derivative(Term term, char c) {
+		if (term instanceof Term.Chars chars) {
+			return chars.charClass.contains(c) ? epsilon : empty;
+		}
+		if (term instanceof Term.Concat concat) {
+			Term first = concat(derivative(concat.head, c), concat.tail);
+			return concat.head.nullable() ? or(first, derivative(concat.tail, c)) : first;
+		}
+		if (term instanceof Term.Or or) {
+			List<Term> derivatives = new ArrayList<>(or.alternatives.size());
+			for (Term alternative : or.alternatives) {
+				derivatives.add(derivative(alternative, c));
+			}
+			return or(derivatives);
+		}
+		if (term instanceof Term.Star star) {
+			return concat(derivative(star.body, c), star);
+		}
+		if (term instanceof Term.Repeat repeat) {
+			int max = repeat.max == RepeatNode.UNBOUNDED ? RepeatNode.UNBOUNDED : repeat.max - 1;
+			return concat(derivative(repeat.body, c), repeat(repeat.body, Math.max(repeat.min - 1, 0), max));
+		}
+		return empty;
+	}
+
+	public Term fromNode(Node node) {
+		return node.accept(new Converter(), null);
+	}
+
+	private class Converter implements NodeVisitor<Term, Void> {
+		@Override
+		public Term visitAlternNode(AlternNode alternNode, Void state) {
+			List<Term> alternatives = new ArrayList<>(alternNode.getAlternatives().size());
+			for (Node alternative : alternNode.getAlternatives()) {
+				alternatives.add(alternative.accept(this, null));
+			}
+			return or(alternatives);
+		}
+
+		@Override
+		public Term visitConcatNode(ConcatNode concatNode, Void state) {
+			List<Node> children = concatNode.getConcatNodes();
+			Term result = epsilon;
+			for (int idx = children.size() - 1; idx >= 0; idx--) {
+				result = concat(children.get(idx).accept(this, null), result);
+			}
+			return result;
+		}
+
+		@Override
+		public Term visitStringNode(StringNode stringNode, Void state) {
+			String lexeme = stringNode.getLexeme();
+			Term result = epsilon;
+			for (int idx = lexeme.length() - 1; idx >= 0; idx--) {
+				result = concat(chars(CharClass.of(lexeme.charAt(idx))), result);
+			}
+			return result;
+		}
+
+		@Override
+		public Term visitCharClassNode(CharClassNode charClassNode, Void state) {
+			return chars(charClassNode.getCharClass());
+		}
+
+		@Override
+		public Term visitAtMostOnceUnaryNode(AtMostOnceUnaryNode atMostOnceUnaryNode, Void state) {
+			return or(epsilon, atMostOnceUnaryNode.getNode().accept(this, null));
+		}
+
+		@Override
+		public Term visitRepeatableUnaryNode(RepeatableUnaryNode repeatableUnaryNode, Void state) {
+			return star(repeatableUnaryNode.getNode().accept(this, null));
+		}
+
+		@Override
+		public Term visitAtLeastOnceUnaryNode(AtLeastOnceUnaryNode atLeastOnceUnaryNode, Void state) {
+			Term body = atLeastOnceUnaryNode.getNode().accept(this, null);
+			return concat(body, star(body));
+		}
+
+		@Override
+		public Term visitRepeatNode(RepeatNode repeatNode, Void state) {
+			return repeat(repeatNode.getNode().accept(this, null), repeatNode.getMin(), repeatNode.getMax());
+		}
+	}
+}
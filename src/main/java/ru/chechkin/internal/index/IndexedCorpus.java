@@ -0,0 +1,57 @@
+package ru.chechkin.internal.index;
+
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.Searcher;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Documents searched through a {@link TrigramIndex}: a pattern's {@linkplain Pattern#trigramQuery()
+ * trigram query} selects the candidate documents, and only those are scanned by the searcher.
+ */
+public class IndexedCorpus {
+	private final List<? extends CharSequence> documents;
+	private final TrigramIndex index;
+
+	public IndexedCorpus(List<? extends CharSequence> documents, TrigramIndex index) {
+		if (documents.size() != index.documentCount()) {
+			throw new IllegalArgumentException("Index covers " + index.documentCount() + " documents, got " + documents.size());
+		}
+		this.documents = documents;
+		this.index = index;
+	}
+
+	public static IndexedCorpus of(List<? extends CharSequence> documents) {
+		TrigramIndex.Builder builder = TrigramIndex.builder();
+		for (CharSequence document : documents) {
+			builder.add(document);
+		}
+		return new IndexedCorpus(documents, builder.build());
+	}
+
+	public TrigramIndex index() {
+		return index;
+	}
+
+	/**
+	 * @return the ids of the documents that may contain a match
+	 */
+	public int[] candidates(Pattern pattern) {
+		return pattern.trigramQuery().evaluate(index);
+	}
+
+	/**
+	 * @return the ids of the documents that contain a match, in increasing order
+	 */
+	public List<Integer> search(Pattern pattern) {
+		Searcher searcher = pattern.searcher();
+		List<Integer> result = new ArrayList<>();
+		for (int id : candidates(pattern)) {
+			if (searcher.find(documents.get(id), 0) != null) {
+				result.add(id);
+			}
+		}
+		return result;
+	}
+}
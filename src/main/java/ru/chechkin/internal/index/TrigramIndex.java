@@ -0,0 +1,180 @@
+package ru.chechkin.internal.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An inverted index from trigrams to the sorted ids of the documents containing them.
+ *
+ * <p>The index lives in one {@link ByteBuffer} with the same layout in memory and on disk, so a
+ * saved index is {@linkplain #map(Path) memory‑mapped} rather than loaded:
+ *
+ * <pre>
+ * int  MAGIC
+ * int  documentCount
+ * int  trigramCount
+ * trigramCount × { long trigram, int postingsOffset, int postingsLength }   sorted by trigram
+ * int[] postings
+ * </pre>
+ *
+ * A trigram is packed into a long as three 16‑bit chars.
+ */
+public final class TrigramIndex {
+	static final int MAGIC = 0x54524731;
+	private static final int HEADER_BYTES = 12;
+	private static final int ENTRY_BYTES = 16;
+
+	private final ByteBuffer buffer;
+	private final int documentCount;
+	private final int trigramCount;
+	private final int postingsStart;
+
+	private TrigramIndex(ByteBuffer buffer) {
+		if (buffer.getInt(0) != MAGIC) {
+			throw new IllegalArgumentException("Not a trigram index");
+		}
+		this.buffer = buffer;
+		this.documentCount = buffer.getInt(4);
+		this.trigramCount = buffer.getInt(8);
+		this.postingsStart = HEADER_BYTES + trigramCount * ENTRY_BYTES;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Maps an index previously {@linkplain #writeTo(Path) written} to {@code path}.
+	 */
+	public static TrigramIndex map(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new TrigramIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	public void writeTo(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer source = buffer.duplicate().position(0);
+			while (source.hasRemaining()) {
+				channel.write(source);
+			}
+		}
+	}
+
+	public int documentCount() {
+		return documentCount;
+	}
+
+	public int trigramCount() {
+		return trigramCount;
+	}
+
+	public long sizeBytes() {
+		return buffer.capacity();
+	}
+
+	/**
+	 * @return the sorted ids of the documents containing {@code trigram}
+	 */
+	public int[] postings(String trigram) {
+		long key = pack(trigram.charAt(0), trigram.charAt(1), trigram.charAt(2));
+		int lo = 0;
+		int hi = trigramCount - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int entry = HEADER_BYTES + mid * ENTRY_BYTES;
+			long midKey = buffer.getLong(entry);
+			if (midKey < key) {
+				lo = mid + 1;
+			} else if (midKey > key) {
+				hi = mid - 1;
+			} else {
+				int offset = buffer.getInt(entry + 8);
+				int[] postings = new int[buffer.getInt(entry + 12)];
+				for (int idx = 0; idx < postings.length; idx++) {
+					postings[idx] = buffer.getInt(postingsStart + 4 * (offset + idx));
+				}
+				return postings;
+			}
+		}
+		return new int[0];
+	}
+
+	static long pack(char first, char second, char third) {
+		return (long) first << 32 | (long) second << 16 | third;
+	}
+
+	public static final class Builder {
+		private final Map<Long, Postings> postings = new HashMap<>();
+		private int documentCount;
+
+		private Builder() {
+		}
+
+		/**
+		 * @return the id of the added document
+		 */
+		public int add(CharSequence document) {
+			int id = documentCount++;
+			for (int idx = 0; idx + 3 <= document.length(); idx++) {
+				long key = pack(document.charAt(idx), document.charAt(idx + 1), document.charAt(idx + 2));
+				postings.computeIfAbsent(key, ignored -> new Postings()).add(id);
+			}
+			return id;
+		}
+
+		public TrigramIndex build() {
+			long[] keys = new long[postings.size()];
+			int count = 0;
+			long postingsLength = 0;
+			for (Map.Entry<Long, Postings> entry : postings.entrySet()) {
+				keys[count++] = entry.getKey();
+				postingsLength += entry.getValue().size;
+			}
+			Arrays.sort(keys);
+
+			long size = HEADER_BYTES + (long) keys.length * ENTRY_BYTES + 4 * postingsLength;
+			if (size > Integer.MAX_VALUE) {
+				throw new IllegalStateException("Trigram index of " + size + " bytes exceeds 2 GiB");
+			}
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			buffer.putInt(MAGIC).putInt(documentCount).putInt(keys.length);
+			int offset = 0;
+			for (long key : keys) {
+				int length = postings.get(key).size;
+				buffer.putLong(key).putInt(offset).putInt(length);
+				offset += length;
+			}
+			for (long key : keys) {
+				Postings list = postings.get(key);
+				for (int idx = 0; idx < list.size; idx++) {
+					buffer.putInt(list.ids[idx]);
+				}
+			}
+			return new TrigramIndex(buffer);
+		}
+	}
+
+	private static final class Postings {
+		private int[] ids = new int[4];
+		private int size;
+
+		void add(int id) {
+			if (size > 0 && ids[size - 1] == id) {
+				return;
+			}
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			ids[size++] = id;
+		}
+	}
+}
@@ -0,0 +1,259 @@
+package ru.chechkin.internal.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A boolean query over trigrams that every document containing a match must satisfy.
+ * {@link #ALL} means the pattern gives no constraint, {@link #NONE} that it can never match.
+ */
+public abstract class TrigramQuery {
+	public static final TrigramQuery ALL = new Constant(true);
+	public static final TrigramQuery NONE = new Constant(false);
+
+	public static TrigramQuery trigram(String trigram) {
+		if (trigram.length() != 3) {
+			throw new IllegalArgumentException("Not a trigram: '" + trigram + "'");
+		}
+		return new Trigram(trigram);
+	}
+
+	/**
+	 * @return the conjunction of every trigram of {@code literal}, or {@link #ALL} if it is shorter
+	 * than a trigram
+	 */
+	public static TrigramQuery literal(String literal) {
+		List<TrigramQuery> trigrams = new ArrayList<>();
+		for (int idx = 0; idx + 3 <= literal.length(); idx++) {
+			trigrams.add(new Trigram(literal.substring(idx, idx + 3)));
+		}
+		return and(trigrams);
+	}
+
+	public static TrigramQuery and(List<TrigramQuery> operands) {
+		Set<TrigramQuery> flat = new LinkedHashSet<>();
+		for (TrigramQuery operand : operands) {
+			if (operand == NONE) {
+				return NONE;
+			}
+			if (operand instanceof And and) {
+				flat.addAll(and.operands);
+			} else if (operand != ALL) {
+				flat.add(operand);
+			}
+		}
+		if (flat.isEmpty()) {
+			return ALL;
+		}
+		return flat.size() == 1 ? flat.iterator().next() : new And(List.copyOf(flat));
+	}
+
+	public static TrigramQuery or(List<TrigramQuery> operands) {
+		Set<TrigramQuery> flat = new LinkedHashSet<>();
+		for (TrigramQuery operand : operands) {
+			if (operand == ALL) {
+				return ALL;
+			}
+			if (operand instanceof Or or) {
+				flat.addAll(or.operands);
+			} else if (operand != NONE) {
+				flat.add(operand);
+			}
+		}
+		if (flat.isEmpty()) {
+			return NONE;
+		}
+		return flat.size() == 1 ? flat.iterator().next() : factor(List.copyOf(flat));
+	}
+
+	/**
+	 * Rewrites {@code (A AND B) OR (A AND C)} as {@code A AND (B OR C)}, so trigrams shared by every
+	 * alternative are looked up once and stay visible to the intersection.
+	 */
+	private static TrigramQuery factor(List<TrigramQuery> alternatives) {
+		Set<TrigramQuery> common = new LinkedHashSet<>(conjuncts(alternatives.get(0)));
+		for (TrigramQuery alternative : alternatives) {
+			common.retainAll(conjuncts(alternative));
+		}
+		if (common.isEmpty()) {
+			return new Or(alternatives);
+		}
+
+		List<TrigramQuery> rests = new ArrayList<>(alternatives.size());
+		for (TrigramQuery alternative : alternatives) {
+			List<TrigramQuery> rest = new ArrayList<>(conjuncts(alternative));
+			rest.removeAll(common);
+			rests.add(and(rest));
+		}
+		List<TrigramQuery> operands = new ArrayList<>(common);
+		operands.add(or(rests));
+		return and(operands);
+	}
+
+	private static List<TrigramQuery> conjuncts(TrigramQuery query) {
+		return query instanceof And and ? and.operands : List.of(query);
+	}
+
+	/**
+	 * @return the sorted ids of the documents that satisfy the query
+	 */
+	public abstract int[] evaluate(TrigramIndex index);
+
+	private static final class Constant extends TrigramQuery {
+		private final boolean value;
+
+		private Constant(boolean value) {
+			this.value = value;
+		}
+
+		@Override
+		public int[] evaluate(TrigramIndex index) {
+			if (!value) {
+				return new int[0];
+			}
+			int[] all = new int[index.documentCount()];
+			Arrays.setAll(all, idx -> idx);
+			return all;
+		}
+
+		@Override
+		public String toString() {
+			return value ? "ALL" : "NONE";
+		}
+	}
+
+	private static final class Trigram extends TrigramQuery {
+		private final String trigram;
+
+		private Trigram(String trigram) {
+			this.trigram = trigram;
+		}
+
+		@Override
+		public int[] evaluate(TrigramIndex index) {
+			return index.postings(trigram);
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof Trigram other && trigram.equals(other.trigram);
+		}
+
+		@Override
+		public int hashCode() {
+			return trigram.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return "\"" + trigram + "\"";
+		}
+	}
+
+	private static final class And extends TrigramQuery {
+		private final List<TrigramQuery> operands;
+
+		private And(List<TrigramQuery> operands) {
+			this.operands = operands;
+		}
+
+		@Override
+		public int[] evaluate(TrigramIndex index) {
+			int[] result = operands.get(0).evaluate(index);
+			for (int idx = 1; idx < operands.size() && result.length > 0; idx++) {
+				result = intersect(result, operands.get(idx).evaluate(index));
+			}
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof And other && operands.equals(other.operands);
+		}
+
+		@Override
+		public int hashCode() {
+			return operands.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return operands.stream().map(TrigramQuery::operandString).collect(Collectors.joining(" AND "));
+		}
+	}
+
+	private static final class Or extends TrigramQuery {
+		private final List<TrigramQuery> operands;
+
+		private Or(List<TrigramQuery> operands) {
+			this.operands = operands;
+		}
+
+		@Override
+		public int[] evaluate(TrigramIndex index) {
+			int[] result = operands.get(0).evaluate(index);
+			for (int idx = 1; idx < operands.size(); idx++) {
+				result = union(result, operands.get(idx).evaluate(index));
+			}
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof Or other && operands.equals(other.operands);
+		}
+
+		@Override
+		public int hashCode() {
+			return operands.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return operands.stream().map(TrigramQuery::operandString).collect(Collectors.joining(" OR "));
+		}
+	}
+
+	private String operandString() {
+		return this instanceof And || this instanceof Or ? "(" + this + ")" : toString();
+	}
+
+	static int[] intersect(int[] left, int[] right) {
+		int[] result = new int[Math.min(left.length, right.length)];
+		int count = 0;
+		for (int i = 0, j = 0; i < left.length && j < right.length; ) {
+			if (left[i] < right[j]) {
+				i++;
+			} else if (left[i] > right[j]) {
+				j++;
+			} else {
+				result[count++] = left[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	static int[] union(int[] left, int[] right) {
+		int[] result = new int[left.length + right.length];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		while (i < left.length || j < right.length) {
+			if (j == right.length || i < left.length && left[i] < right[j]) {
+				result[count++] = left[i++];
+			} else if (i == left.length || right[j] < left[i]) {
+				result[count++] = right[j++];
+			} else {
+				result[count++] = left[i++];
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+}
@@ -0,0 +1,190 @@
+package ru.chechkin.internal.index;
+
+import ru.chechkin.internal.charset.CharClass;
+import ru.chechkin.internal.parser.node.AlternNode;
+import ru.chechkin.internal.parser.node.AtLeastOnceUnaryNode;
+import ru.chechkin.internal.parser.node.AtMostOnceUnaryNode;
+import ru.chechkin.internal.parser.node.CharClassNode;
+import ru.chechkin.internal.parser.node.ConcatNode;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.node.RepeatNode;
+import ru.chechkin.internal.parser.node.RepeatableUnaryNode;
+import ru.chechkin.internal.parser.node.StringNode;
+import ru.chechkin.internal.parser.visitor.NodeVisitor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Derives from a syntax tree the {@link TrigramQuery} that any text containing a match satisfies.
+ *
+ * <p>While a subexpression matches a small finite set of strings the planner keeps that set
+ * exactly, so literals split across concatenated nodes or small classes like {@code [ab]} still
+ * contribute trigrams that span their boundaries. Once the set grows past {@link #MAX_EXACT} it
+ * is turned into a query: a concatenation requires all of its parts (AND), an alternation any of
+ * its alternatives (OR). Anything that may match the empty string or arbitrarily many different
+ * strings contributes {@link TrigramQuery#ALL}.
+ */
+public class TrigramQueryPlanner implements NodeVisitor<TrigramQueryPlanner.Info, Void> {
+	static final int MAX_EXACT = 64;
+
+	public static TrigramQuery plan(Node node) {
+		return node.accept(new TrigramQueryPlanner(), null).query();
+	}
+
+	/**
+	 * @param exact every string the subexpression matches, or {@code null} if there are too many
+	 * @param match the query when {@code exact} is {@code null}
+	 */
+	record Info(Set<String> exact, TrigramQuery match) {
+		static Info exact(Set<String> strings) {
+			return strings.size() > MAX_EXACT ? new Info(null, queryOf(strings)) : new Info(strings, null);
+		}
+
+		TrigramQuery query() {
+			return exact != null ? queryOf(exact) : match;
+		}
+
+		private static TrigramQuery queryOf(Set<String> strings) {
+			List<TrigramQuery> alternatives = new ArrayList<>(strings.size());
+			for (String string : strings) {
+				alternatives.add(TrigramQuery.literal(string));
+			}
+			return TrigramQuery.or(alternatives);
+		}
+	}
+
+	@Override
+	public Info visitAlternNode(AlternNode alternNode, Void state) {
+		List<Info> alternatives = new ArrayList<>(alternNode.getAlternatives().size());
+		for (Node alternative : alternNode.getAlternatives()) {
+			alternatives.add(alternative.accept(this, null));
+		}
+
+		Set<String> union = new LinkedHashSet<>();
+		for (Info alternative : alternatives) {
+			if (alternative.exact() == null || union.size() > MAX_EXACT) {
+				union = null;
+				break;
+			}
+			union.addAll(alternative.exact());
+		}
+		if (union != null && union.size() <= MAX_EXACT) {
+			return new Info(union, null);
+		}
+
+		List<TrigramQuery> queries = new ArrayList<>(alternatives.size());
+		for (Info alternative : alternatives) {
+			queries.add(alternative.query());
+		}
+		return new Info(null, TrigramQuery.or(queries));
+	}
+
+	@Override
+	public Info visitConcatNode(ConcatNode concatNode, Void state) {
+		List<TrigramQuery> queries = new ArrayList<>();
+		Set<String> exact = Set.of("");
+
+		for (Node child : concatNode.getConcatNodes()) {
+			Info info = child.accept(this, null);
+			if (info.exact() != null && exact != null && (long) exact.size() * info.exact().size() <= MAX_EXACT) {
+				exact = product(exact, info.exact());
+				continue;
+			}
+			if (exact != null) {
+				queries.add(new Info(exact, null).query());
+			}
+			if (info.exact() != null) {
+				exact = info.exact();
+			} else {
+				queries.add(info.match());
+				exact = null;
+			}
+		}
+
+		if (queries.isEmpty()) {
+			return new Info(exact, null);
+		}
+		if (exact != null) {
+			queries.add(new Info(exact, null).query());
+		}
+		return new Info(null, TrigramQuery.and(queries));
+	}
+
+	private static Set<String> product(Set<String> prefixes, Set<String> suffixes) {
+		Set<String> result = new LinkedHashSet<>();
+		for (String prefix : prefixes) {
+			for (String suffix : suffixes) {
+				result.add(prefix + suffix);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public Info visitStringNode(StringNode stringNode, Void state) {
+		return new Info(Set.of(stringNode.getLexeme()), null);
+	}
+
+	@Override
+	public Info visitCharClassNode(CharClassNode charClassNode, Void state) {
+		CharClass charClass = charClassNode.getCharClass();
+		int size = 0;
+		for (int range = 0; range < charClass.rangeCount(); range++) {
+			size += charClass.rangeEnd(range) - charClass.rangeStart(range) + 1;
+			if (size > MAX_EXACT) {
+				return new Info(null, TrigramQuery.ALL);
+			}
+		}
+
+		Set<String> chars = new LinkedHashSet<>();
+		for (int range = 0; range < charClass.rangeCount(); range++) {
+			for (int c = charClass.rangeStart(range); c <= charClass.rangeEnd(range); c++) {
+				chars.add(String.valueOf((char) c));
+			}
+		}
+		return new Info(chars, null);
+	}
+
+	@Override
+	public Info visitAtMostOnceUnaryNode(AtMostOnceUnaryNode atMostOnceUnaryNode, Void state) {
+		Info info = atMostOnceUnaryNode.getNode().accept(this, null);
+		if (info.exact() == null) {
+			return new Info(null, TrigramQuery.ALL);
+		}
+		Set<String> exact = new LinkedHashSet<>(info.exact());
+		exact.add("");
+		return Info.exact(exact);
+	}
+
+	@Override
+	public Info visitRepeatableUnaryNode(RepeatableUnaryNode repeatableUnaryNode, Void state) {
+		return new Info(null, TrigramQuery.ALL);
+	}
+
+	@Override
+	public Info visitAtLeastOnceUnaryNode(AtLeastOnceUnaryNode atLeastOnceUnaryNode, Void state) {
+		return new Info(null, atLeastOnceUnaryNode.getNode().accept(this, null).query());
+	}
+
+	@Override
+	public Info visitRepeatNode(RepeatNode repeatNode, Void state) {
+		if (repeatNode.getMin() == 0) {
+			return new Info(null, TrigramQuery.ALL);
+		}
+		Info info = repeatNode.getNode().accept(this, null);
+		if (info.exact() != null && repeatNode.getMin() == repeatNode.getMax()) {
+			Set<String> exact = Set.of("");
+			for (int idx = 0; idx < repeatNode.getMin(); idx++) {
+				if ((long) exact.size() * info.exact().size() > MAX_EXACT) {
+					return new Info(null, info.query());
+				}
+				exact = product(exact, info.exact());
+			}
+			return new Info(exact, null);
+		}
+		return new Info(null, info.query());
+	}
+}
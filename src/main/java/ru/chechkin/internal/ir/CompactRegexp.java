@@ -0,0 +1,265 @@
+package ru.chechkin.internal.ir;
+
+import ru.chechkin.internal.charset.CharClass;
+import ru.chechkin.internal.parser.node.AlternNode;
+import ru.chechkin.internal.parser.node.AtLeastOnceUnaryNode;
+import ru.chechkin.internal.parser.node.AtMostOnceUnaryNode;
+import ru.chechkin.internal.parser.node.CharClassNode;
+import ru.chechkin.internal.parser.node.ConcatNode;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.node.RepeatNode;
+import ru.chechkin.internal.parser.node.RepeatableUnaryNode;
+import ru.chechkin.internal.parser.node.StringNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * An immutable, pointer‑free encoding of a syntax tree: the tree is laid out in pre‑order in a
+ * single {@code int[]} (see {@link Opcode} for the layout) and every string literal is packed into
+ * one shared {@code char[]}.
+ *
+ * <p>The root node is at {@code pc == 0}.
+ */
+public final class CompactRegexp {
+	public static final int ROOT = 0;
+
+	private final int[] code;
+	private final char[] literals;
+
+	CompactRegexp(int[] code, char[] literals) {
+		this.code = code;
+		this.literals = literals;
+	}
+
+	public static CompactRegexp from(Node node) {
+		return IrEmitter.emit(node);
+	}
+
+	public int opcode(int pc) {
+		return code[pc];
+	}
+
+	public int size(int pc) {
+		return code[pc + 1];
+	}
+
+	public int childCount(int pc) {
+		return switch (code[pc]) {
+			case Opcode.ALTERN, Opcode.CONCAT -> code[pc + Opcode.HEADER];
+			case Opcode.STRING, Opcode.CHAR_CLASS -> 0;
+			default -> 1;
+		};
+	}
+
+	public int firstChild(int pc) {
+		return switch (code[pc]) {
+			case Opcode.ALTERN, Opcode.CONCAT -> pc + Opcode.HEADER + 1;
+			case Opcode.REPEAT -> pc + Opcode.HEADER + 2;
+			case Opcode.STRING, Opcode.CHAR_CLASS -> throw new IllegalArgumentException(
+					Opcode.name(code[pc]) + " has no children at pc " + pc
+			);
+			default -> pc + Opcode.HEADER;
+		};
+	}
+
+	public int nextSibling(int pc) {
+		return pc + code[pc + 1];
+	}
+
+	public int repeatMin(int pc) {
+		return code[pc + Opcode.HEADER];
+	}
+
+	public int repeatMax(int pc) {
+		return code[pc + Opcode.HEADER + 1];
+	}
+
+	public int literalOffset(int pc) {
+		return code[pc + Opcode.HEADER];
+	}
+
+	public int literalLength(int pc) {
+		return code[pc + Opcode.HEADER + 1];
+	}
+
+	public char literalAt(int pc, int index) {
+		return literals[literalOffset(pc) + index];
+	}
+
+	public String literal(int pc) {
+		return new String(literals, literalOffset(pc), literalLength(pc));
+	}
+
+	/**
+	 * Checks whether the literal of the {@link Opcode#STRING} node at {@code pc} occurs in
+	 * {@code text} at {@code offset}, without materializing the literal.
+	 */
+	public boolean literalMatches(int pc, CharSequence text, int offset) {
+		int length = literalLength(pc);
+		if (offset < 0 || offset + length > text.length()) {
+			return false;
+		}
+		int literalOffset = literalOffset(pc);
+		for (int idx = 0; idx < length; idx++) {
+			if (literals[literalOffset + idx] != text.charAt(offset + idx)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether the {@link Opcode#CHAR_CLASS} node at {@code pc} contains {@code c}.
+	 */
+	public boolean charClassContains(int pc, char c) {
+		int offset = literalOffset(pc);
+		int lo = 0;
+		int hi = code[pc + Opcode.HEADER + 1] - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (c < literals[offset + 2 * mid]) {
+				hi = mid - 1;
+			} else if (c > literals[offset + 2 * mid + 1]) {
+				lo = mid + 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public CharClass charClass(int pc) {
+		int offset = literalOffset(pc);
+		CharClass.Builder builder = CharClass.builder();
+		for (int idx = 0, count = code[pc + Opcode.HEADER + 1]; idx < count; idx++) {
+			builder.addRange(literals[offset + 2 * idx], literals[offset + 2 * idx + 1]);
+		}
+		return builder.build();
+	}
+
+	public <R, S> R accept(IrVisitor<R, S> visitor, int pc, S state) {
+		return switch (code[pc]) {
+			case Opcode.STRING -> visitor.visitString(pc, state);
+			case Opcode.CHAR_CLASS -> visitor.visitCharClass(pc, state);
+			case Opcode.ALTERN -> visitor.visitAltern(pc, state);
+			case Opcode.CONCAT -> visitor.visitConcat(pc, state);
+			case Opcode.AT_MOST_ONCE -> visitor.visitAtMostOnce(pc, state);
+			case Opcode.REPEATABLE -> visitor.visitRepeatable(pc, state);
+			case Opcode.AT_LEAST_ONCE -> visitor.visitAtLeastOnce(pc, state);
+			case Opcode.REPEAT -> visitor.visitRepeat(pc, state);
+			default -> throw new IllegalStateException("Unknown opcode " + code[pc] + " at pc " + pc);
+		};
+	}
+
+	/**
+	 * Rebuilds the object tree for consumers that still work on {@link Node}s.
+	 */
+	public Node toNode() {
+		return toNode(ROOT);
+	}
+
+	/**
+	 * Rebuilds the subtree at {@code pc} bottom‑up with an explicit stack, so deep trees do not
+	 * overflow the call stack.
+	 */
+	public Node toNode(int pc) {
+		Deque<NodeFrame> stack = new ArrayDeque<>();
+		stack.push(new NodeFrame(pc, childCount(pc)));
+		Node built = null;
+		while (true) {
+			NodeFrame frame = stack.peek();
+			if (built != null) {
+				frame.children.add(built);
+				built = null;
+			}
+			if (frame.children.size() < frame.childCount) {
+				int child = frame.nextChild < 0 ? firstChild(frame.pc) : nextSibling(frame.nextChild);
+				frame.nextChild = child;
+				stack.push(new NodeFrame(child, childCount(child)));
+				continue;
+			}
+			stack.pop();
+			built = node(frame.pc, frame.children);
+			if (stack.isEmpty()) {
+				return built;
+			}
+		}
+	}
+
+	private Node node(int pc, List<Node> children) {
+		return switch (code[pc]) {
+			case Opcode.STRING -> new StringNode(literal(pc));
+			case Opcode.CHAR_CLASS -> new CharClassNode(charClass(pc));
+			case Opcode.ALTERN -> new AlternNode(children);
+			case Opcode.CONCAT -> new ConcatNode(children);
+			case Opcode.AT_MOST_ONCE -> new AtMostOnceUnaryNode(children.get(0));
+			case Opcode.REPEATABLE -> new RepeatableUnaryNode(children.get(0));
+			case Opcode.AT_LEAST_ONCE -> new AtLeastOnceUnaryNode(children.get(0));
+			case Opcode.REPEAT -> new RepeatNode(children.get(0), repeatMin(pc), repeatMax(pc));
+			default -> throw new IllegalStateException("Unknown opcode " + code[pc] + " at pc " + pc);
+		};
+	}
+
+	/**
+	 * A node of {@link #toNode(int)} whose children are being rebuilt; {@code nextChild} is the pc
+	 * of the last child started, or {@code -1}.
+	 */
+	private static final class NodeFrame {
+		private final int pc;
+		private final int childCount;
+		private final List<Node> children;
+		private int nextChild = -1;
+
+		NodeFrame(int pc, int childCount) {
+			this.pc = pc;
+			this.childCount = childCount;
+			this.children = new ArrayList<>(childCount);
+		}
+	}
+
+	public int codeLength() {
+		return code.length;
+	}
+
+	public int literalsLength() {
+		return literals.length;
+	}
+
+	/**
+	 * Estimated retained size in bytes, assuming a 64‑bit JVM with compressed oops.
+	 */
+	public long estimatedBytes() {
+		return MemoryEstimates.OBJECT_HEADER + 2L * MemoryEstimates.REFERENCE
+				+ MemoryEstimates.intArray(code.length)
+				+ MemoryEstimates.charArray(literals.length);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		int pc = 0;
+		while (pc < code.length) {
+			builder.append(pc).append(": ").append(Opcode.name(code[pc]));
+			if (code[pc] == Opcode.STRING) {
+				builder.append(" \"").append(literal(pc)).append('"');
+				pc += size(pc);
+			} else if (code[pc] == Opcode.CHAR_CLASS) {
+				builder.append(' ').append(charClass(pc));
+				pc += size(pc);
+			} else if (code[pc] == Opcode.REPEAT) {
+				builder.append(" {").append(repeatMin(pc)).append(',').append(repeatMax(pc)).append('}');
+				pc = firstChild(pc);
+			} else if (code[pc] == Opcode.ALTERN || code[pc] == Opcode.CONCAT) {
+				builder.append(" x").append(childCount(pc));
+				pc = firstChild(pc);
+			} else {
+				pc = firstChild(pc);
+			}
+			builder.append('\n');
+		}
+		return builder.toString();
+	}
+}
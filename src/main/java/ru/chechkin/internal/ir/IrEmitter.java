@@ -0,0 +1,153 @@
+package ru.chechkin.internal.ir;
+
+import ru.chechkin.internal.charset.CharClass;
+import ru.chechkin.internal.parser.node.AlternNode;
+import ru.chechkin.internal.parser.node.AtLeastOnceUnaryNode;
+import ru.chechkin.internal.parser.node.AtMostOnceUnaryNode;
+import ru.chechkin.internal.parser.node.CharClassNode;
+import ru.chechkin.internal.parser.node.ConcatNode;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.node.RepeatNode;
+import ru.chechkin.internal.parser.node.RepeatableUnaryNode;
+import ru.chechkin.internal.parser.node.StringNode;
+import ru.chechkin.internal.parser.node.UnaryNode;
+import ru.chechkin.internal.parser.visitor.NodeVisitor;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Lowers a {@link Node} tree into a {@link CompactRegexp}.
+ *
+ * <p>The tree is walked with an explicit stack rather than by recursion: visiting a node writes
+ * its header and fields and schedules its children, followed by a marker that patches the node's
+ * size once they are written.
+ */
+class IrEmitter implements NodeVisitor<Void, Void> {
+	private int[] code = new int[16];
+	private int codeLength = 0;
+	private final StringBuilder literals = new StringBuilder();
+	private final Deque<Object> pending = new ArrayDeque<>();
+
+	/**
+	 * Scheduled after the children of the node at {@code pc}.
+	 */
+	private record Close(int pc) {
+	}
+
+	static CompactRegexp emit(Node node) {
+		IrEmitter emitter = new IrEmitter();
+		emitter.pending.push(node);
+		while (!emitter.pending.isEmpty()) {
+			Object next = emitter.pending.pop();
+			if (next instanceof Close close) {
+				emitter.close(close.pc());
+			} else {
+				((Node) next).accept(emitter, null);
+			}
+		}
+		return new CompactRegexp(
+				Arrays.copyOf(emitter.code, emitter.codeLength),
+				emitter.literals.toString().toCharArray()
+		);
+	}
+
+	@Override
+	public Void visitAlternNode(AlternNode alternNode, Void state) {
+		emitList(Opcode.ALTERN, alternNode.getAlternatives());
+		return null;
+	}
+
+	@Override
+	public Void visitConcatNode(ConcatNode concatNode, Void state) {
+		emitList(Opcode.CONCAT, concatNode.getConcatNodes());
+		return null;
+	}
+
+	@Override
+	public Void visitStringNode(StringNode stringNode, Void state) {
+		String lexeme = stringNode.getLexeme();
+		int pc = header(Opcode.STRING);
+		append(literals.length());
+		append(lexeme.length());
+		literals.append(lexeme);
+		close(pc);
+		return null;
+	}
+
+	@Override
+	public Void visitCharClassNode(CharClassNode charClassNode, Void state) {
+		CharClass charClass = charClassNode.getCharClass();
+		int pc = header(Opcode.CHAR_CLASS);
+		append(literals.length());
+		append(charClass.rangeCount());
+		for (int idx = 0; idx < charClass.rangeCount(); idx++) {
+			literals.append(charClass.rangeStart(idx)).append(charClass.rangeEnd(idx));
+		}
+		close(pc);
+		return null;
+	}
+
+	@Override
+	public Void visitAtMostOnceUnaryNode(AtMostOnceUnaryNode atMostOnceUnaryNode, Void state) {
+		emitUnary(Opcode.AT_MOST_ONCE, atMostOnceUnaryNode);
+		return null;
+	}
+
+	@Override
+	public Void visitRepeatableUnaryNode(RepeatableUnaryNode repeatableUnaryNode, Void state) {
+		emitUnary(Opcode.REPEATABLE, repeatableUnaryNode);
+		return null;
+	}
+
+	@Override
+	public Void visitAtLeastOnceUnaryNode(AtLeastOnceUnaryNode atLeastOnceUnaryNode, Void state) {
+		emitUnary(Opcode.AT_LEAST_ONCE, atLeastOnceUnaryNode);
+		return null;
+	}
+
+	@Override
+	public Void visitRepeatNode(RepeatNode repeatNode, Void state) {
+		int pc = header(Opcode.REPEAT);
+		append(repeatNode.getMin());
+		append(repeatNode.getMax());
+		pending.push(new Close(pc));
+		pending.push(repeatNode.getNode());
+		return null;
+	}
+
+	private void emitList(int opcode, List<Node> children) {
+		int pc = header(opcode);
+		append(children.size());
+		pending.push(new Close(pc));
+		for (int idx = children.size() - 1; idx >= 0; idx--) {
+			pending.push(children.get(idx));
+		}
+	}
+
+	private void emitUnary(int opcode, UnaryNode unaryNode) {
+		int pc = header(opcode);
+		pending.push(new Close(pc));
+		pending.push(unaryNode.getNode());
+	}
+
+	private int header(int opcode) {
+		int pc = codeLength;
+		append(opcode);
+		append(0);
+		return pc;
+	}
+
+	private void close(int pc) {
+		code[pc + 1] = codeLength - pc;
+	}
+
+	private void append(int value) {
+		if (codeLength == code.length) {
+			code = Arrays.copyOf(code, code.length * 2);
+		}
+		code[codeLength++] = value;
+	}
+}
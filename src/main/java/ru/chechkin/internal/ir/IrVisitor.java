@@ -0,0 +1,23 @@
+package ru.chechkin.internal.ir;
+
+/**
+ * The {@link CompactRegexp} counterpart of {@link ru.chechkin.internal.parser.visitor.NodeVisitor}.
+ * Nodes are addressed by their position {@code pc} in the instruction stream.
+ */
+public interface IrVisitor<R, S> {
+	R visitAltern(int pc, S state);
+
+	R visitConcat(int pc, S state);
+
+	R visitString(int pc, S state);
+
+	R visitCharClass(int pc, S state);
+
+	R visitAtMostOnce(int pc, S state);
+
+	R visitRepeatable(int pc, S state);
+
+	R visitAtLeastOnce(int pc, S state);
+
+	R visitRepeat(int pc, S state);
+}
@@ -0,0 +1,40 @@
+package ru.chechkin.internal.ir;
+
+/**
+ * Shallow size arithmetic for a 64‑bit HotSpot JVM with compressed oops and 8‑byte alignment.
+ */
+final class MemoryEstimates {
+	static final long OBJECT_HEADER = 12;
+	static final long ARRAY_HEADER = 16;
+	static final long REFERENCE = 4;
+
+	private MemoryEstimates() {
+	}
+
+	static long align(long bytes) {
+		return (bytes + 7) & ~7L;
+	}
+
+	static long object(int references, int intFields) {
+		return align(OBJECT_HEADER + references * REFERENCE + intFields * 4L);
+	}
+
+	static long intArray(int length) {
+		return align(ARRAY_HEADER + 4L * length);
+	}
+
+	static long charArray(int length) {
+		return align(ARRAY_HEADER + 2L * length);
+	}
+
+	static long referenceArray(int length) {
+		return align(ARRAY_HEADER + REFERENCE * length);
+	}
+
+	/**
+	 * A compact (Latin‑1) {@code String}: the object with hash, coder and value fields plus its {@code byte[]}.
+	 */
+	static long string(int length) {
+		return object(1, 2) + align(ARRAY_HEADER + length);
+	}
+}
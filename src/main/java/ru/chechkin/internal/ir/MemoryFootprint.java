@@ -0,0 +1,107 @@
+package ru.chechkin.internal.ir;
+
+import ru.chechkin.internal.parser.node.AlternNode;
+import ru.chechkin.internal.parser.node.AtLeastOnceUnaryNode;
+import ru.chechkin.internal.parser.node.AtMostOnceUnaryNode;
+import ru.chechkin.internal.parser.node.CharClassNode;
+import ru.chechkin.internal.parser.node.ConcatNode;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.node.RepeatNode;
+import ru.chechkin.internal.parser.node.RepeatableUnaryNode;
+import ru.chechkin.internal.parser.node.StringNode;
+import ru.chechkin.internal.parser.node.UnaryNode;
+import ru.chechkin.internal.parser.visitor.NodeVisitor;
+
+import java.util.List;
+
+/**
+ * Estimated retained heap of a compiled pattern as an object tree versus as a {@link CompactRegexp}.
+ *
+ * @param treeBytes    estimated bytes of the equivalent {@link Node} graph
+ * @param compactBytes estimated bytes of the compact encoding
+ */
+public record MemoryFootprint(long treeBytes, long compactBytes) {
+
+	public static MemoryFootprint of(CompactRegexp compact) {
+		return new MemoryFootprint(
+				compact.toNode().accept(new TreeSizeEstimator(), null),
+				compact.estimatedBytes()
+		);
+	}
+
+	public long savedBytes() {
+		return treeBytes - compactBytes;
+	}
+
+	public double ratio() {
+		return compactBytes == 0 ? 0 : (double) treeBytes / compactBytes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("MemoryFootprint{tree=%dB, compact=%dB, saved=%dB, ratio=%.2fx}",
+				treeBytes, compactBytes, savedBytes(), ratio());
+	}
+
+	private static class TreeSizeEstimator implements NodeVisitor<Long, Void> {
+		private static final long UNARY_NODE = MemoryEstimates.object(1, 0);
+		private static final long LIST_NODE = MemoryEstimates.object(1, 0);
+		// ArrayList: modCount, size, elementData
+		private static final long ARRAY_LIST = MemoryEstimates.object(1, 2);
+
+		@Override
+		public Long visitAlternNode(AlternNode alternNode, Void state) {
+			return listNode(alternNode.getAlternatives());
+		}
+
+		@Override
+		public Long visitConcatNode(ConcatNode concatNode, Void state) {
+			return listNode(concatNode.getConcatNodes());
+		}
+
+		@Override
+		public Long visitStringNode(StringNode stringNode, Void state) {
+			return MemoryEstimates.object(1, 0) + MemoryEstimates.string(stringNode.getLexeme().length());
+		}
+
+		@Override
+		public Long visitCharClassNode(CharClassNode charClassNode, Void state) {
+			// the node, the CharClass with its two bitmap words, and its ranges
+			return MemoryEstimates.object(1, 0)
+					+ MemoryEstimates.object(1, 4)
+					+ MemoryEstimates.charArray(2 * charClassNode.getCharClass().rangeCount());
+		}
+
+		@Override
+		public Long visitAtMostOnceUnaryNode(AtMostOnceUnaryNode atMostOnceUnaryNode, Void state) {
+			return unaryNode(atMostOnceUnaryNode);
+		}
+
+		@Override
+		public Long visitRepeatableUnaryNode(RepeatableUnaryNode repeatableUnaryNode, Void state) {
+			return unaryNode(repeatableUnaryNode);
+		}
+
+		@Override
+		public Long visitAtLeastOnceUnaryNode(AtLeastOnceUnaryNode atLeastOnceUnaryNode, Void state) {
+			return unaryNode(atLeastOnceUnaryNode);
+		}
+
+		@Override
+		public Long visitRepeatNode(RepeatNode repeatNode, Void state) {
+			return MemoryEstimates.object(1, 2) + repeatNode.getNode().accept(this, null);
+		}
+
+		private long unaryNode(UnaryNode unaryNode) {
+			return UNARY_NODE + unaryNode.getNode().accept(this, null);
+		}
+
+		private long listNode(List<Node> children) {
+			long total = LIST_NODE + ARRAY_LIST + MemoryEstimates.referenceArray(children.size());
+			for (Node child : children) {
+				total += child.accept(this, null);
+			}
+			return total;
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package ru.chechkin.internal.ir;
+
+/**
+ * Opcodes of the {@link CompactRegexp} instruction stream.
+ *
+ * <p>Every node starts with a two‑slot header {@code [opcode, size]}, where {@code size} is the
+ * number of {@code int} slots taken by the node including its children, so a walker can skip a
+ * subtree with one addition. The remaining layout per opcode:
+ * <ul>
+ *   <li>{@link #STRING}: {@code [offset, length]} into the literal pool</li>
+ *   <li>{@link #CHAR_CLASS}: {@code [offset, rangeCount]}; the pool holds {@code lo, hi} per range</li>
+ *   <li>{@link #ALTERN}, {@link #CONCAT}: {@code [childCount, child...]}</li>
+ *   <li>{@link #AT_MOST_ONCE}, {@link #REPEATABLE}, {@link #AT_LEAST_ONCE}: {@code [child]}</li>
+ *   <li>{@link #REPEAT}: {@code [min, max, child]}, {@code max} is {@code -1} when unbounded</li>
+ * </ul>
+ */
+public final class Opcode {
+	public static final int STRING = 1;
+	public static final int ALTERN = 2;
+	public static final int CONCAT = 3;
+	public static final int AT_MOST_ONCE = 4;
+	public static final int REPEATABLE = 5;
+	public static final int AT_LEAST_ONCE = 6;
+	public static final int CHAR_CLASS = 7;
+	public static final int REPEAT = 8;
+
+	static final int HEADER = 2;
+
+	private Opcode() {
+	}
+
+	public static String name(int opcode) {
+		return switch (opcode) {
+			case STRING -> "STRING";
+			case ALTERN -> "ALTERN";
+			case CONCAT -> "CONCAT";
+			case AT_MOST_ONCE -> "AT_MOST_ONCE";
+			case REPEATABLE -> "REPEATABLE";
+			case AT_LEAST_ONCE -> "AT_LEAST_ONCE";
+			case CHAR_CLASS -> "CHAR_CLASS";
+			case REPEAT -> "REPEAT";
+			default -> throw new IllegalArgumentException("Unknown opcode: " + opcode);
+		};
+	}
+}
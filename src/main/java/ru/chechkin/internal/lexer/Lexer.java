@@ -0,0 +1,223 @@
+package ru.chechkin.internal.lexer;
+
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.automaton.Dfa;
+import ru.chechkin.internal.automaton.DfaBuilder;
+import ru.chechkin.internal.automaton.NfaBuilder;
+import ru.chechkin.internal.parser.RegexpParser;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.visitor.CaseFolder;
+import ru.chechkin.internal.scanner.RegexpScanner;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A maximal‑munch tokenizer generated from an ordered list of rules.
+ *
+ * <p>All rules are compiled into one DFA whose accepting states are tagged with the earliest rule
+ * they accept. From each position the DFA runs until it dies, remembering the last accepting
+ * state, so the token is the longest match of any rule and ties go to the rule listed first, as
+ * in lex, without trying rules one by one. A rule must consume at least one character to produce
+ * a token.
+ *
+ * <p>Runs past the end of a token are not repeated: as in Reps' tabulated maximal munch, a
+ * (state, position) pair reached after a token's last accepting position is remembered as
+ * failed, and a later run reaching it stops there, since it would read the same characters to
+ * the same dead end. Tokenizing is thus linear in the input for a given DFA even for rules like
+ * {@code a} and {@code (a)*b} on {@code aaaa…}, where plain maximal munch is quadratic.
+ *
+ * <p>With {@link Pattern#OFF_HEAP_TABLES} the DFA table lives off‑heap until {@link #close()};
+ * tokenizing afterwards throws {@link IllegalStateException}.
+ */
+public class Lexer implements AutoCloseable {
+	private final List<String> names;
+	private final Dfa dfa;
+
+	private Lexer(List<String> names, Dfa dfa) {
+		this.names = names;
+		this.dfa = dfa;
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public int ruleCount() {
+		return names.size();
+	}
+
+	public int stateCount() {
+		return dfa.stateCount();
+	}
+
+	public boolean isOffHeap() {
+		return dfa.isOffHeap();
+	}
+
+	/**
+	 * Frees an off‑heap table once the tokens being read are done. Closing twice has no effect.
+	 */
+	@Override
+	public void close() {
+		dfa.free();
+	}
+
+	public List<TokenSpan> tokenize(CharSequence input) {
+		List<TokenSpan> tokens = new ArrayList<>();
+		tokens(input).forEachRemaining(tokens::add);
+		return tokens;
+	}
+
+	/**
+	 * Tokenizes {@code input} lazily. The iterator throws {@link RegexpScanner.ScannerException}
+	 * when no rule matches at the current position.
+	 */
+	public Iterator<TokenSpan> tokens(CharSequence input) {
+		Munch munch = new Munch(input);
+		return new Iterator<>() {
+			private int position = 0;
+
+			@Override
+			public boolean hasNext() {
+				return position < input.length();
+			}
+
+			@Override
+			public TokenSpan next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				TokenSpan token = munch.longestToken(position);
+				position = token.end();
+				return token;
+			}
+		};
+	}
+
+	/**
+	 * The maximal‑munch runs over one input, sharing the memo of failed (state, position) pairs.
+	 */
+	private final class Munch {
+		private final CharSequence input;
+		private final Set<Long> failed = new HashSet<>();
+		/**
+		 * The furthest position in {@link #failed}; runs only look pairs up up to here.
+		 */
+		private int failedLimit = -1;
+		private int[] visited = new int[16];
+
+		Munch(CharSequence input) {
+			this.input = input;
+		}
+
+		TokenSpan longestToken(int start) {
+			if (start >= failedLimit) {
+				// every run starts at or after the previous token's end, so earlier pairs are useless
+				failed.clear();
+			}
+
+			int state = dfa.start();
+			int end = -1;
+			int rule = Dfa.NO_RULE;
+			int count = 0;
+			try (Dfa.Reader reader = dfa.reader()) {
+				for (int idx = start; idx < input.length(); idx++) {
+					state = reader.next(state, input.charAt(idx));
+					if (state == Dfa.DEAD || idx < failedLimit && failed.contains(key(state, idx + 1))) {
+						break;
+					}
+					if (count == visited.length) {
+						visited = Arrays.copyOf(visited, count * 2);
+					}
+					visited[count++] = state;
+					if (dfa.isAccepting(state)) {
+						end = idx + 1;
+						rule = dfa.acceptRule(state);
+					}
+				}
+			}
+
+			// visited[k] is the state at position start + k + 1
+			for (int k = Math.max(end - start, 0); k < count; k++) {
+				failed.add(key(visited[k], start + k + 1));
+				failedLimit = Math.max(failedLimit, start + k + 1);
+			}
+
+			if (rule == Dfa.NO_RULE) {
+				throw new RegexpScanner.ScannerException(
+						"Unrecognized character: '" + input.charAt(start) + "' at position " + start
+				);
+			}
+			return new TokenSpan(rule, names.get(rule), start, end);
+		}
+
+		private static long key(int state, int position) {
+			return (long) position << 32 | state;
+		}
+	}
+
+	public static final class Builder {
+		private static final int ALL_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.OFF_HEAP_TABLES;
+
+		private final List<String> names = new ArrayList<>();
+		private final List<Node> rules = new ArrayList<>();
+		private int maxStates = DfaBuilder.DEFAULT_MAX_STATES;
+		private int flags;
+
+		private Builder() {
+		}
+
+		/**
+		 * Adds a rule; on equally long matches, rules added earlier win.
+		 */
+		public Builder rule(String name, String pattern) {
+			names.add(name);
+			rules.add(new RegexpParser(new RegexpTokenizer(pattern)).parse());
+			return this;
+		}
+
+		public Builder maxStates(int maxStates) {
+			this.maxStates = maxStates;
+			return this;
+		}
+
+		/**
+		 * Applies {@link Pattern#CASE_INSENSITIVE} to every rule and {@link Pattern#OFF_HEAP_TABLES}
+		 * to the DFA.
+		 */
+		public Builder flags(int flags) {
+			if ((flags & ~ALL_FLAGS) != 0) {
+				throw new IllegalArgumentException("Unknown flags: 0x" + Integer.toHexString(flags & ~ALL_FLAGS));
+			}
+			this.flags = flags;
+			return this;
+		}
+
+		/**
+		 * @throws IllegalStateException if the rules have no DFA within the state budget
+		 */
+		public Lexer build() {
+			List<Node> compiled = rules;
+			if ((flags & Pattern.CASE_INSENSITIVE) != 0) {
+				compiled = rules.stream().map(CaseFolder::fold).toList();
+			}
+			Dfa dfa = DfaBuilder.build(NfaBuilder.buildRules(compiled), maxStates);
+			if (dfa == null) {
+				throw new IllegalStateException(
+						"Lexer rules need more than " + maxStates + " DFA states or use counted repetition too large to unroll"
+				);
+			}
+			if ((flags & Pattern.OFF_HEAP_TABLES) != 0) {
+				dfa = dfa.toOffHeap();
+			}
+			return new Lexer(List.copyOf(names), dfa);
+		}
+	}
+}
@@ -0,0 +1,10 @@
+package ru.chechkin.internal.lexer;
+
+/**
+ * A token produced by a {@link Lexer}: the rule that matched and the bounds of its text.
+ */
+public record TokenSpan(int rule, String name, int start, int end) {
+	public CharSequence text(CharSequence input) {
+		return input.subSequence(start, end);
+	}
+}
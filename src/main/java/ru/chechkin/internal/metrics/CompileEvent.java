@@ -0,0 +1,32 @@
+package ru.chechkin.internal.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("ru.chechkin.regexpm.Compile")
+@Label("Pattern Compile")
+@Category({"regexpm"})
+@Description("Compilation of a regular expression with a per-phase breakdown")
+@StackTrace(false)
+public class CompileEvent extends Event {
+	@Label("Pattern")
+	public String pattern;
+
+	@Label("Parse Duration")
+	@Description("Includes tokenization, which the parser drives lazily")
+	@Timespan(Timespan.NANOSECONDS)
+	public long parseDuration;
+
+	@Label("Build Duration")
+	@Timespan(Timespan.NANOSECONDS)
+	public long buildDuration;
+
+	@Label("AST Size")
+	@Description("Number of nodes in the parsed syntax tree")
+	public int astSize;
+}
@@ -0,0 +1,55 @@
+package ru.chechkin.internal.metrics;
+
+import ru.chechkin.internal.Matcher;
+
+/**
+ * A {@link Matcher} decorator that feeds {@link PatternMetrics} and emits {@link SlowMatchEvent}s.
+ * The characters scanned are recorded by the engines themselves, which know where they stopped.
+ *
+ * <p>When neither metrics nor the JFR event are enabled the call goes straight to the delegate
+ * without reading the clock.
+ */
+public class InstrumentedMatcher implements Matcher {
+	private final Matcher delegate;
+	private final String pattern;
+	private final PatternMetrics metrics;
+
+	public InstrumentedMatcher(Matcher delegate, String pattern, PatternMetrics metrics) {
+		this.delegate = delegate;
+		this.pattern = pattern;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public boolean match(String text) {
+		SlowMatchEvent event = new SlowMatchEvent();
+
+		if (!metrics.isEnabled() && !event.isEnabled()) {
+			return delegate.match(text);
+		}
+
+		event.begin();
+		long start = System.nanoTime();
+
+		boolean matched = delegate.match(text);
+
+		long elapsed = System.nanoTime() - start;
+		event.end();
+
+		metrics.recordMatch(matched, elapsed);
+
+		if (event.shouldCommit()) {
+			event.pattern = pattern;
+			event.inputLength = text == null ? 0 : text.length();
+			event.matched = matched;
+			event.commit();
+		}
+
+		return matched;
+	}
+
+	@Override
+	public boolean canMatchPrefix(String prefix) {
+		return delegate.canMatchPrefix(prefix);
+	}
+}
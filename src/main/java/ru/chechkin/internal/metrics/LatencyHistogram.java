@@ -0,0 +1,75 @@
+package ru.chechkin.internal.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock‑free latency histogram with power‑of‑two nanosecond buckets.
+ * Bucket {@code i} counts samples in {@code [2^i, 2^(i+1))} nanoseconds; bucket 0 also holds zero.
+ *
+ * <p>Recording is a single {@code incrementAndGet} on a pre‑allocated array, so the histogram
+ * can stay on the hot path without allocating.
+ */
+public class LatencyHistogram {
+	private static final int BUCKETS = 64;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	public void record(long nanos) {
+		counts.incrementAndGet(bucketOf(nanos));
+	}
+
+	public long getCount() {
+		long total = 0;
+		for (int idx = 0; idx < BUCKETS; idx++) {
+			total += counts.get(idx);
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the upper bound, in nanoseconds, of the bucket holding the given percentile.
+	 *
+	 * @param percentile a value in {@code (0, 100]}
+	 * @return the bucket upper bound, or {@code 0} if nothing was recorded
+	 */
+	public long getPercentile(double percentile) {
+		if (percentile <= 0 || percentile > 100) {
+			throw new IllegalArgumentException("percentile must be in (0, 100]: " + percentile);
+		}
+
+		long[] snapshot = snapshot();
+		long total = 0;
+		for (long count : snapshot) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0;
+		}
+
+		long rank = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+		for (int idx = 0; idx < BUCKETS; idx++) {
+			seen += snapshot[idx];
+			if (seen >= rank) {
+				return upperBoundOf(idx);
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	public long[] snapshot() {
+		long[] snapshot = new long[BUCKETS];
+		for (int idx = 0; idx < BUCKETS; idx++) {
+			snapshot[idx] = counts.get(idx);
+		}
+		return snapshot;
+	}
+
+	static int bucketOf(long nanos) {
+		return nanos <= 1 ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+	}
+
+	static long upperBoundOf(int bucket) {
+		return bucket >= 62 ? Long.MAX_VALUE : (1L << (bucket + 1)) - 1;
+	}
+}
@@ -0,0 +1,145 @@
+package ru.chechkin.internal.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per‑{@code Pattern} hot‑path counters and latency histograms.
+ *
+ * <p>Collection is switched on with the {@code regexpm.metrics} system property. The flag is read
+ * once into a {@code static final} field, so when it is off the JIT folds every {@link #isEnabled()}
+ * check away and patterns share the allocation‑free {@link #DISABLED} instance.
+ */
+public class PatternMetrics {
+	public static final boolean ENABLED = Boolean.getBoolean("regexpm.metrics");
+
+	public static final PatternMetrics DISABLED = new PatternMetrics(false);
+
+	private static final LatencyHistogram EMPTY_HISTOGRAM = new LatencyHistogram();
+
+	private final boolean enabled;
+
+	private final LongAdder matchCalls;
+	private final LongAdder matches;
+	private final LongAdder charsScanned;
+	private final LongAdder fallbacks;
+	private final LongAdder promotions;
+	private final LatencyHistogram matchLatency;
+	private final LatencyHistogram compileLatency;
+
+	private PatternMetrics(boolean enabled) {
+		this.enabled = enabled;
+		this.matchCalls = enabled ? new LongAdder() : null;
+		this.matches = enabled ? new LongAdder() : null;
+		this.charsScanned = enabled ? new LongAdder() : null;
+		this.fallbacks = enabled ? new LongAdder() : null;
+		this.promotions = enabled ? new LongAdder() : null;
+		this.matchLatency = enabled ? new LatencyHistogram() : null;
+		this.compileLatency = enabled ? new LatencyHistogram() : null;
+	}
+
+	/**
+	 * Returns a collecting instance when metrics are enabled globally, {@link #DISABLED} otherwise.
+	 */
+	public static PatternMetrics create() {
+		return ENABLED ? new PatternMetrics(true) : DISABLED;
+	}
+
+	/**
+	 * Returns a collecting instance regardless of the global switch.
+	 */
+	public static PatternMetrics collecting() {
+		return new PatternMetrics(true);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void recordCompile(long nanos) {
+		if (enabled) {
+			compileLatency.record(nanos);
+		}
+	}
+
+	public void recordMatch(boolean matched, long nanos) {
+		if (!enabled) {
+			return;
+		}
+		this.matchCalls.increment();
+		if (matched) {
+			this.matches.increment();
+		}
+		this.matchLatency.record(nanos);
+	}
+
+	/**
+	 * Records the characters an engine read before it decided a match, which is fewer than the
+	 * input's length when it rejected early.
+	 */
+	public void recordScanned(int chars) {
+		if (enabled) {
+			charsScanned.add(chars);
+		}
+	}
+
+	/**
+	 * Records that an engine gave up on its fast path and handed the input to a slower one.
+	 */
+	public void recordFallback() {
+		if (enabled) {
+			fallbacks.increment();
+		}
+	}
+
+	/**
+	 * Records that a hot pattern was promoted to a faster engine, taking {@code nanos} to build it.
+	 */
+	public void recordPromotion(long nanos) {
+		if (enabled) {
+			promotions.increment();
+			compileLatency.record(nanos);
+		}
+	}
+
+	public long getMatchCalls() {
+		return enabled ? matchCalls.sum() : 0;
+	}
+
+	public long getMatches() {
+		return enabled ? matches.sum() : 0;
+	}
+
+	public long getCharsScanned() {
+		return enabled ? charsScanned.sum() : 0;
+	}
+
+	public long getFallbacks() {
+		return enabled ? fallbacks.sum() : 0;
+	}
+
+	public long getPromotions() {
+		return enabled ? promotions.sum() : 0;
+	}
+
+	public LatencyHistogram getMatchLatency() {
+		return enabled ? matchLatency : EMPTY_HISTOGRAM;
+	}
+
+	public LatencyHistogram getCompileLatency() {
+		return enabled ? compileLatency : EMPTY_HISTOGRAM;
+	}
+
+	@Override
+	public String toString() {
+		if (!enabled) {
+			return "PatternMetrics{disabled}";
+		}
+		return "PatternMetrics{matchCalls=" + getMatchCalls()
+				+ ", matches=" + getMatches()
+				+ ", charsScanned=" + getCharsScanned()
+				+ ", fallbacks=" + getFallbacks()
+				+ ", promotions=" + getPromotions()
+				+ ", p50=" + matchLatency.getPercentile(50) + "ns"
+				+ ", p99=" + matchLatency.getPercentile(99) + "ns}";
+	}
+}
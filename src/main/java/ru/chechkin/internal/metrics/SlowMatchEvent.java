@@ -0,0 +1,28 @@
+package ru.chechkin.internal.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Emitted for match calls slower than the event threshold, which defaults to 1 ms
+ * and can be overridden per recording with {@code ru.chechkin.regexpm.SlowMatch#threshold}.
+ */
+@Name("ru.chechkin.regexpm.SlowMatch")
+@Label("Slow Match")
+@Category({"regexpm"})
+@Description("A match call that took longer than the configured threshold")
+@Threshold("1 ms")
+public class SlowMatchEvent extends Event {
+	@Label("Pattern")
+	public String pattern;
+
+	@Label("Input Length")
+	public int inputLength;
+
+	@Label("Matched")
+	public boolean matched;
+}
@@ -3,33 +3,48 @@ package ru.chechkin.internal.parser;
 import ru.chechkin.internal.parser.node.AlternNode;
 import ru.chechkin.internal.parser.node.AtLeastOnceUnaryNode;
 import ru.chechkin.internal.parser.node.AtMostOnceUnaryNode;
+import ru.chechkin.internal.parser.node.CharClassNode;
 import ru.chechkin.internal.parser.node.ConcatNode;
 import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.node.RepeatNode;
 import ru.chechkin.internal.parser.node.RepeatableUnaryNode;
 import ru.chechkin.internal.parser.node.StringNode;
+import ru.chechkin.internal.scanner.CharClassSyntax;
+import ru.chechkin.internal.scanner.ListTokenStream;
 import ru.chechkin.internal.scanner.Token;
+import ru.chechkin.internal.scanner.TokenStream;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
 
 /**
  * program   → regexp EOF
  * regexp    → altern
  * altern    → concat (PIPE  concat )*
  * concat    → unary+
- * unary     → atom ( STAR | PLUS | QUESTION_MARK )?
- * atom      → STRING | LEFT_PAREN regexp RIGHT_PAREN
+ * unary     → atom ( STAR | PLUS | QUESTION_MARK | REPEAT )?
+ * atom      → STRING | CHAR_CLASS | LEFT_PAREN regexp RIGHT_PAREN
+ *
+ * <p>The grammar is parsed iteratively: every open group is a {@link Group} on an explicit stack,
+ * so the parser itself never overflows the call stack, and children are appended in order, which
+ * keeps parsing linear in the number of tokens. The resulting tree is walked recursively by the
+ * rewrites and engines downstream, so trees deeper than {@link #MAX_DEPTH} are rejected; groups
+ * that collapse, like the parentheses in {@code ((a))}, do not count. The cap is low enough for
+ * every entry point to handle the deepest accepted tree on a 256 KiB thread stack.
  */
 public class RegexpParser implements Parser {
-	private final List<Token> tokens;
-	private final Node root;
+	public static final int MAX_DEPTH = 250;
 
-	private int current = 0;
+	private final TokenStream tokens;
+	private final Node root;
 
 	public RegexpParser(List<Token> tokens) {
+		this(new ListTokenStream(tokens));
+	}
+
+	public RegexpParser(TokenStream tokens) {
 		this.tokens = tokens;
 		this.root = parseInternal();
 	}
@@ -40,126 +55,159 @@ public class RegexpParser implements Parser {
 	}
 
 	private Node parseInternal() {
-		return regexp();
-	}
-
-	private Node regexp() {
-		return altern();
-	}
-
-	private Node altern() {
-		Node node = concat();
-
-		List<Node> alternativeNodes = new ArrayList<>();
-
-		while (match(Token.Type.SLASH)) {
-			advance();
-			alternativeNodes.add(concat());
+		Deque<Group> groups = new ArrayDeque<>();
+		Group group = new Group();
+
+		while (true) {
+			switch (tokens.peekType()) {
+				case STRING -> addUnary(group, new StringNode(tokens.lexeme()), 1);
+				case CHAR_CLASS -> addUnary(group, new CharClassNode(CharClassSyntax.parseParts(tokens.lexeme())), 1);
+				case LEFT_PAREN -> {
+					tokens.advance();
+					groups.push(group);
+					group = new Group();
+				}
+				case RIGHT_PAREN -> {
+					if (groups.isEmpty() || group.isConcatEmpty()) {
+						throw unexpectedToken();
+					}
+					Node regexp = group.finish();
+					int depth = group.depth();
+					group = groups.pop();
+					addUnary(group, regexp, depth);
+				}
+				case SLASH -> {
+					if (group.isConcatEmpty()) {
+						throw unexpectedToken();
+					}
+					tokens.advance();
+					group.finishAlternative();
+				}
+				case EOF -> {
+					if (!groups.isEmpty()) {
+						throw new IllegalStateException("Expected closing parenthesis ')'");
+					}
+					if (group.isConcatEmpty()) {
+						throw unexpectedToken();
+					}
+					Node root = group.finish();
+					checkDepth(group.depth());
+					return root;
+				}
+				default -> throw unexpectedToken();
+			}
 		}
-
-		if (!alternativeNodes.isEmpty()) {
-			alternativeNodes.add(0, node);
-			node = new AlternNode(alternativeNodes);
-		}
-
-		return node;
 	}
 
-	private Node concat() {
-		Node node = unary();
-
-		List<Node> concatNodes = new ArrayList<>();
-
-		while (!isEof() && !isAlternative() && !isRightParen()) {
-			concatNodes.add(unary());
-		}
-
-		if (!concatNodes.isEmpty()) {
-			concatNodes.add(0, node);
-			node = new ConcatNode(concatNodes);
+	/**
+	 * Consumes the current atom token and an optional postfix operator, and adds the result to
+	 * {@code group}.
+	 *
+	 * @param depth the depth of the tree rooted at {@code atom}
+	 */
+	private void addUnary(Group group, Node atom, int depth) {
+		tokens.advance();
+
+		Node node = switch (tokens.peekType()) {
+			case PLUS -> new AtLeastOnceUnaryNode(atom);
+			case QUESTION_MARK -> new AtMostOnceUnaryNode(atom);
+			case STAR -> new RepeatableUnaryNode(atom);
+			case REPEAT -> repeat(atom, tokens.lexeme());
+			default -> null;
+		};
+
+		if (node != null) {
+			tokens.advance();
+			depth++;
+		} else {
+			node = atom;
 		}
-
-		return node;
+		checkDepth(depth);
+		group.addUnary(node, depth);
 	}
 
-	private boolean isAlternative() {
-		return peek().getType() == Token.Type.SLASH;
+	private void checkDepth(int depth) {
+		if (depth > MAX_DEPTH) {
+			throw new IllegalStateException(
+					"Pattern nesting is deeper than " + MAX_DEPTH + " levels at position " + tokens.position()
+			);
+		}
 	}
 
-	private boolean isRightParen() {
-		return peek().getType() == Token.Type.RIGHT_PAREN;
+	private Node repeat(Node atom, String lexeme) {
+		int comma = lexeme.indexOf(',');
+		int close = lexeme.length() - 1;
+		try {
+			int min = Integer.parseInt(lexeme.substring(1, comma < 0 ? close : comma));
+			int max = comma < 0 ? min
+					: comma + 1 == close ? RepeatNode.UNBOUNDED
+					: Integer.parseInt(lexeme.substring(comma + 1, close));
+			if (max != RepeatNode.UNBOUNDED && max < min) {
+				throw new IllegalStateException("Repetition maximum is less than minimum: " + lexeme);
+			}
+			return new RepeatNode(atom, min, max);
+		} catch (NumberFormatException e) {
+			throw new IllegalStateException("Repetition bound is too large: " + lexeme, e);
+		}
 	}
 
-	private Node unary() {
-		Node node = atom();
-
-		Map<Token.Type, Function<Node, Node>> constructorByTokenType = Map.of(
-				Token.Type.PLUS, AtLeastOnceUnaryNode::new,
-				Token.Type.QUESTION_MARK, AtMostOnceUnaryNode::new,
-				Token.Type.STAR, RepeatableUnaryNode::new
+	private IllegalStateException unexpectedToken() {
+		return new IllegalStateException(
+				"Unexpected token: " + tokens.peekType() + " at position " + tokens.position()
 		);
-
-		Token.Type[] requiredTypes = constructorByTokenType.keySet().toArray(Token.Type[]::new);
-
-		if (anyMatch(requiredTypes)) {
-			Token operator = advance();
-
-			node = constructorByTokenType.get(operator.getType())
-					.apply(node);
-		}
-
-		return node;
 	}
 
-	private Node atom() {
-		Token token = advance();
+	/**
+	 * The alternatives and the current concatenation of one parenthesized group, with the depths
+	 * of the trees they hold.
+	 */
+	private static class Group {
+		private List<Node> alternatives;
+		private List<Node> concat = new ArrayList<>();
+		private int alternativesDepth;
+		private int concatDepth;
 
-		if (token.getType() == Token.Type.STRING) {
-			return new StringNode(token.getLexeme());
+		void addUnary(Node node, int depth) {
+			concat.add(node);
+			concatDepth = Math.max(concatDepth, depth);
 		}
 
-		if (token.getType() == Token.Type.LEFT_PAREN) {
-			Node regexp = regexp();
-
-			consume(Token.Type.RIGHT_PAREN, "Expected closing parenthesis ')'");
-
-			return regexp;
+		boolean isConcatEmpty() {
+			return concat.isEmpty();
 		}
 
-		throw new IllegalStateException("Unexpected token: " + token);
-	}
-
-	private void consume(Token.Type type, String errorMsg) {
-		if (isEof()) {
-			throw new IllegalStateException(errorMsg);
+		void finishAlternative() {
+			if (alternatives == null) {
+				alternatives = new ArrayList<>();
+			}
+			alternatives.add(concatNode());
+			alternativesDepth = Math.max(alternativesDepth, concatNodeDepth());
+			concat = new ArrayList<>();
+			concatDepth = 0;
 		}
 
-		Token token = advance();
-
-		if (token.getType() == type) {
-			return;
+		Node finish() {
+			if (alternatives == null) {
+				return concatNode();
+			}
+			alternatives.add(concatNode());
+			alternativesDepth = Math.max(alternativesDepth, concatNodeDepth());
+			return new AlternNode(alternatives);
 		}
 
-		throw new IllegalStateException(errorMsg);
-	}
-
-	private Token advance() {
-		return tokens.get(current++);
-	}
-
-	private boolean anyMatch(Token.Type... types) {
-		return Arrays.stream(types).anyMatch(this::match);
-	}
-
-	private boolean match(Token.Type type) {
-		return !isEof() && peek().getType() == type;
-	}
+		/**
+		 * @return the depth of the tree returned by {@link #finish()}
+		 */
+		int depth() {
+			return alternatives == null ? concatNodeDepth() : alternativesDepth + 1;
+		}
 
-	private Token peek() {
-		return tokens.get(current);
-	}
+		private int concatNodeDepth() {
+			return concat.size() == 1 ? concatDepth : concatDepth + 1;
+		}
 
-	private boolean isEof() {
-		return tokens.get(current).getType() == Token.Type.EOF;
+		private Node concatNode() {
+			return concat.size() == 1 ? concat.get(0) : new ConcatNode(concat);
+		}
 	}
 }
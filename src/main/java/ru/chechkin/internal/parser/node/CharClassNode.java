@@ -0,0 +1,32 @@
+package ru.chechkin.internal.parser.node;
+
+import lombok.Getter;
+import ru.chechkin.internal.charset.CharClass;
+import ru.chechkin.internal.parser.visitor.NodeVisitor;
+import ru.chechkin.internal.scanner.CharClassSyntax;
+
+public class CharClassNode extends Node {
+	@Getter
+	private final CharClass charClass;
+
+	/**
+	 * How the class was written, or {@code null} for a class built by a rewrite.
+	 */
+	@Getter
+	private final CharClassSyntax.Parts syntax;
+
+	public CharClassNode(CharClass charClass) {
+		this.charClass = charClass;
+		this.syntax = null;
+	}
+
+	public CharClassNode(CharClassSyntax.Parts syntax) {
+		this.charClass = syntax.charClass();
+		this.syntax = syntax;
+	}
+
+	@Override
+	public <R, S> R accept(NodeVisitor<R, S> visitor, S state) {
+		return visitor.visitCharClassNode(this, state);
+	}
+}
@@ -0,0 +1,34 @@
+package ru.chechkin.internal.parser.node;
+
+import lombok.Getter;
+import ru.chechkin.internal.parser.visitor.NodeVisitor;
+
+/**
+ * Counted repetition {@code node{min,max}}; {@code max} is {@link #UNBOUNDED} for {@code {min,}}.
+ */
+public class RepeatNode extends UnaryNode {
+	public static final int UNBOUNDED = -1;
+
+	@Getter
+	private final int min;
+	@Getter
+	private final int max;
+
+	public RepeatNode(Node node, int min, int max) {
+		super(node);
+		if (min < 0 || (max != UNBOUNDED && max < min)) {
+			throw new IllegalArgumentException("Illegal repetition bounds {" + min + "," + max + "}");
+		}
+		this.min = min;
+		this.max = max;
+	}
+
+	public boolean isUnbounded() {
+		return max == UNBOUNDED;
+	}
+
+	@Override
+	public <R, S> R accept(NodeVisitor<R, S> visitor, S state) {
+		return visitor.visitRepeatNode(this, state);
+	}
+}
@@ -0,0 +1,155 @@
+package ru.chechkin.internal.parser.visitor;
+
+import ru.chechkin.internal.charset.CharClass;
+import ru.chechkin.internal.parser.node.AlternNode;
+import ru.chechkin.internal.parser.node.AtLeastOnceUnaryNode;
+import ru.chechkin.internal.parser.node.AtMostOnceUnaryNode;
+import ru.chechkin.internal.parser.node.CharClassNode;
+import ru.chechkin.internal.parser.node.ConcatNode;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.node.RepeatNode;
+import ru.chechkin.internal.parser.node.RepeatableUnaryNode;
+import ru.chechkin.internal.parser.node.StringNode;
+import ru.chechkin.internal.scanner.CharClassSyntax;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rewrites a syntax tree to match case‑insensitively, so the automata need no folding at match
+ * time. Every cased character of a literal becomes a class of its case variants (runs of uncased
+ * characters stay literal), and classes are closed under the same variants. Two characters are
+ * variants when their simple Unicode case mappings agree, as with
+ * {@code CASE_INSENSITIVE | UNICODE_CASE} in {@link java.util.regex.Pattern}.
+ */
+public class CaseFolder implements NodeVisitor<Node, Void> {
+	public static Node fold(Node node) {
+		return node.accept(new CaseFolder(), null);
+	}
+
+	@Override
+	public Node visitAlternNode(AlternNode alternNode, Void state) {
+		List<Node> alternatives = new ArrayList<>(alternNode.getAlternatives().size());
+		for (Node alternative : alternNode.getAlternatives()) {
+			alternatives.add(alternative.accept(this, null));
+		}
+		return new AlternNode(alternatives);
+	}
+
+	@Override
+	public Node visitConcatNode(ConcatNode concatNode, Void state) {
+		List<Node> children = new ArrayList<>(concatNode.getConcatNodes().size());
+		for (Node child : concatNode.getConcatNodes()) {
+			children.add(child.accept(this, null));
+		}
+		return new ConcatNode(children);
+	}
+
+	@Override
+	public Node visitStringNode(StringNode stringNode, Void state) {
+		String lexeme = stringNode.getLexeme();
+		List<Node> parts = new ArrayList<>();
+		int runStart = 0;
+		for (int idx = 0; idx < lexeme.length(); idx++) {
+			CharClass variants = variants(lexeme.charAt(idx));
+			if (variants.singleChar() >= 0) {
+				continue;
+			}
+			if (runStart < idx) {
+				parts.add(new StringNode(lexeme.substring(runStart, idx)));
+			}
+			parts.add(new CharClassNode(variants));
+			runStart = idx + 1;
+		}
+
+		if (parts.isEmpty()) {
+			return stringNode;
+		}
+		if (runStart < lexeme.length()) {
+			parts.add(new StringNode(lexeme.substring(runStart)));
+		}
+		return parts.size() == 1 ? parts.get(0) : new ConcatNode(parts);
+	}
+
+	/**
+	 * Folds the characters and ranges listed in a class and leaves shorthands such as {@code \W}
+	 * as they are, then applies the negation, as {@link java.util.regex.Pattern} does: {@code [^b]}
+	 * excludes {@code B} as well, and {@code [\Wa]} takes {@code a} and {@code A}.
+	 */
+	@Override
+	public Node visitCharClassNode(CharClassNode charClassNode, Void state) {
+		CharClassSyntax.Parts syntax = charClassNode.getSyntax();
+		if (syntax == null) {
+			return new CharClassNode(fold(charClassNode.getCharClass()));
+		}
+		return new CharClassNode(new CharClassSyntax.Parts(fold(syntax.literals()), syntax.shorthands(), syntax.negated()));
+	}
+
+	@Override
+	public Node visitAtMostOnceUnaryNode(AtMostOnceUnaryNode atMostOnceUnaryNode, Void state) {
+		return new AtMostOnceUnaryNode(atMostOnceUnaryNode.getNode().accept(this, null));
+	}
+
+	@Override
+	public Node visitRepeatableUnaryNode(RepeatableUnaryNode repeatableUnaryNode, Void state) {
+		return new RepeatableUnaryNode(repeatableUnaryNode.getNode().accept(this, null));
+	}
+
+	@Override
+	public Node visitAtLeastOnceUnaryNode(AtLeastOnceUnaryNode atLeastOnceUnaryNode, Void state) {
+		return new AtLeastOnceUnaryNode(atLeastOnceUnaryNode.getNode().accept(this, null));
+	}
+
+	@Override
+	public Node visitRepeatNode(RepeatNode repeatNode, Void state) {
+		return new RepeatNode(repeatNode.getNode().accept(this, null), repeatNode.getMin(), repeatNode.getMax());
+	}
+
+	/**
+	 * Closes a class under case variants.
+	 */
+	private static CharClass fold(CharClass charClass) {
+		CharClass.Builder builder = CharClass.builder().addAll(charClass);
+		for (int range = 0; range < charClass.rangeCount(); range++) {
+			for (int c = charClass.rangeStart(range); c <= charClass.rangeEnd(range); c++) {
+				for (char variant = ORBITS[c]; variant != c; variant = ORBITS[variant]) {
+					builder.addChar(variant);
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	static CharClass variants(char c) {
+		CharClass.Builder builder = CharClass.builder().addChar(c);
+		for (char variant = ORBITS[c]; variant != c; variant = ORBITS[variant]) {
+			builder.addChar(variant);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Case orbits as cyclic lists: {@code ORBITS[c]} is the next character with the same
+	 * {@code toLowerCase(toUpperCase(c))}, and {@code c} itself when it has no variants. Unlike the
+	 * direct mappings, an orbit also reaches characters that map <em>into</em> {@code c}, such as
+	 * KELVIN SIGN for {@code k} or final sigma for {@code σ}.
+	 */
+	private static final char[] ORBITS = orbits();
+
+	private static char[] orbits() {
+		char[] orbits = new char[Character.MAX_VALUE + 1];
+		int[] last = new int[Character.MAX_VALUE + 1];
+		Arrays.fill(last, -1);
+		for (int c = 0; c <= Character.MAX_VALUE; c++) {
+			char key = Character.toLowerCase(Character.toUpperCase((char) c));
+			orbits[c] = (char) c;
+			if (last[key] >= 0) {
+				orbits[c] = orbits[last[key]];
+				orbits[last[key]] = (char) c;
+			}
+			last[key] = c;
+		}
+		return orbits;
+	}
+}
@@ -0,0 +1,196 @@
+package ru.chechkin.internal.parser.visitor;
+
+import ru.chechkin.internal.charset.CharClass;
+import ru.chechkin.internal.parser.node.AlternNode;
+import ru.chechkin.internal.parser.node.AtLeastOnceUnaryNode;
+import ru.chechkin.internal.parser.node.AtMostOnceUnaryNode;
+import ru.chechkin.internal.parser.node.CharClassNode;
+import ru.chechkin.internal.parser.node.ConcatNode;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.node.RepeatNode;
+import ru.chechkin.internal.parser.node.RepeatableUnaryNode;
+import ru.chechkin.internal.parser.node.StringNode;
+import ru.chechkin.internal.parser.node.UnaryNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Rewrites a syntax tree into a normal form that matches the same strings, so patterns differing
+ * only in syntax get the same {@link #key(Node)}:
+ *
+ * <ul>
+ *   <li>nested alternations and concatenations are flattened, adjacent literals joined;</li>
+ *   <li>alternatives are deduplicated and sorted by key, which is sound because matching is
+ *   whole‑input or leftmost‑longest and never depends on their order;</li>
+ *   <li>single characters and classes among alternatives merge into one class, and a class of one
+ *   character becomes a literal;</li>
+ *   <li>stacked quantifiers collapse ({@code (x*)+} is {@code x*}) and counted repetitions with
+ *   an equivalent quantifier use it ({@code x{0,1}} is {@code x?}).</li>
+ * </ul>
+ *
+ * <p>Equal keys imply equal languages, but not the other way round; {@code a*a} and
+ * {@code aa*} stay distinct. Comparing minimal DFAs decides equivalence exactly.
+ */
+public class NodeCanonicalizer implements NodeVisitor<Node, Void> {
+	private static final NodeCanonicalizer INSTANCE = new NodeCanonicalizer();
+
+	public static Node canonicalize(Node node) {
+		return node.accept(INSTANCE, null);
+	}
+
+	/**
+	 * @return the {@link NodeKey} of the canonical form of {@code node}
+	 */
+	public static String key(Node node) {
+		return NodeKey.of(canonicalize(node));
+	}
+
+	@Override
+	public Node visitAlternNode(AlternNode alternNode, Void state) {
+		List<Node> flat = new ArrayList<>();
+		for (Node alternative : alternNode.getAlternatives()) {
+			Node canonical = alternative.accept(this, null);
+			if (canonical instanceof AlternNode nested) {
+				flat.addAll(nested.getAlternatives());
+			} else {
+				flat.add(canonical);
+			}
+		}
+
+		CharClass chars = null;
+		TreeMap<String, Node> byKey = new TreeMap<>();
+		for (Node alternative : flat) {
+			CharClass single = charClassOf(alternative);
+			if (single != null) {
+				chars = chars == null ? single : chars.union(single);
+			} else {
+				byKey.putIfAbsent(NodeKey.of(alternative), alternative);
+			}
+		}
+		if (chars != null) {
+			Node merged = charClass(chars);
+			byKey.putIfAbsent(NodeKey.of(merged), merged);
+		}
+
+		if (byKey.size() == 1) {
+			return byKey.firstEntry().getValue();
+		}
+		return new AlternNode(new ArrayList<>(byKey.values()));
+	}
+
+	@Override
+	public Node visitConcatNode(ConcatNode concatNode, Void state) {
+		List<Node> flat = new ArrayList<>();
+		for (Node child : concatNode.getConcatNodes()) {
+			Node canonical = child.accept(this, null);
+			if (canonical instanceof ConcatNode nested) {
+				for (Node grandchild : nested.getConcatNodes()) {
+					appendJoined(flat, grandchild);
+				}
+			} else {
+				appendJoined(flat, canonical);
+			}
+		}
+		return flat.size() == 1 ? flat.get(0) : new ConcatNode(flat);
+	}
+
+	@Override
+	public Node visitStringNode(StringNode stringNode, Void state) {
+		return stringNode;
+	}
+
+	@Override
+	public Node visitCharClassNode(CharClassNode charClassNode, Void state) {
+		return charClass(charClassNode.getCharClass());
+	}
+
+	@Override
+	public Node visitAtMostOnceUnaryNode(AtMostOnceUnaryNode atMostOnceUnaryNode, Void state) {
+		return optional(atMostOnceUnaryNode.getNode().accept(this, null));
+	}
+
+	@Override
+	public Node visitRepeatableUnaryNode(RepeatableUnaryNode repeatableUnaryNode, Void state) {
+		return star(repeatableUnaryNode.getNode().accept(this, null));
+	}
+
+	@Override
+	public Node visitAtLeastOnceUnaryNode(AtLeastOnceUnaryNode atLeastOnceUnaryNode, Void state) {
+		return plus(atLeastOnceUnaryNode.getNode().accept(this, null));
+	}
+
+	@Override
+	public Node visitRepeatNode(RepeatNode repeatNode, Void state) {
+		Node body = repeatNode.getNode().accept(this, null);
+		int min = repeatNode.getMin();
+		if (repeatNode.isUnbounded() && min <= 1) {
+			return min == 0 ? star(body) : plus(body);
+		}
+		if (min == 0 && repeatNode.getMax() == 1) {
+			return optional(body);
+		}
+		if (min == 1 && repeatNode.getMax() == 1) {
+			return body;
+		}
+		return new RepeatNode(body, min, repeatNode.getMax());
+	}
+
+	private static Node star(Node body) {
+		if (body instanceof RepeatableUnaryNode) {
+			return body;
+		}
+		if (body instanceof AtLeastOnceUnaryNode || body instanceof AtMostOnceUnaryNode) {
+			return new RepeatableUnaryNode(((UnaryNode) body).getNode());
+		}
+		return new RepeatableUnaryNode(body);
+	}
+
+	private static Node plus(Node body) {
+		if (body instanceof RepeatableUnaryNode || body instanceof AtLeastOnceUnaryNode) {
+			return body;
+		}
+		if (body instanceof AtMostOnceUnaryNode optional) {
+			return new RepeatableUnaryNode(optional.getNode());
+		}
+		return new AtLeastOnceUnaryNode(body);
+	}
+
+	private static Node optional(Node body) {
+		if (body instanceof RepeatableUnaryNode || body instanceof AtMostOnceUnaryNode) {
+			return body;
+		}
+		if (body instanceof AtLeastOnceUnaryNode plus) {
+			return new RepeatableUnaryNode(plus.getNode());
+		}
+		return new AtMostOnceUnaryNode(body);
+	}
+
+	private static Node charClass(CharClass charClass) {
+		int single = charClass.singleChar();
+		return single >= 0 ? new StringNode(String.valueOf((char) single)) : new CharClassNode(charClass);
+	}
+
+	/**
+	 * @return the class matched by a single‑character alternative, or {@code null}
+	 */
+	private static CharClass charClassOf(Node node) {
+		if (node instanceof CharClassNode charClassNode) {
+			return charClassNode.getCharClass();
+		}
+		if (node instanceof StringNode stringNode && stringNode.getLexeme().length() == 1) {
+			return CharClass.of(stringNode.getLexeme().charAt(0));
+		}
+		return null;
+	}
+
+	private static void appendJoined(List<Node> nodes, Node node) {
+		int last = nodes.size() - 1;
+		if (last >= 0 && nodes.get(last) instanceof StringNode previous && node instanceof StringNode next) {
+			nodes.set(last, new StringNode(previous.getLexeme() + next.getLexeme()));
+		} else {
+			nodes.add(node);
+		}
+	}
+}
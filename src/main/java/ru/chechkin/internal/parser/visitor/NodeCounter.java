@@ -0,0 +1,75 @@
+package ru.chechkin.internal.parser.visitor;
+
+import ru.chechkin.internal.parser.node.AlternNode;
+import ru.chechkin.internal.parser.node.AtLeastOnceUnaryNode;
+import ru.chechkin.internal.parser.node.AtMostOnceUnaryNode;
+import ru.chechkin.internal.parser.node.CharClassNode;
+import ru.chechkin.internal.parser.node.ConcatNode;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.node.RepeatNode;
+import ru.chechkin.internal.parser.node.RepeatableUnaryNode;
+import ru.chechkin.internal.parser.node.StringNode;
+import ru.chechkin.internal.parser.node.UnaryNode;
+
+import java.util.List;
+
+/**
+ * Counts the nodes of a syntax tree.
+ */
+public class NodeCounter implements NodeVisitor<Integer, Void> {
+	public static int count(Node node) {
+		return node.accept(new NodeCounter(), null);
+	}
+
+	@Override
+	public Integer visitAlternNode(AlternNode alternNode, Void state) {
+		return 1 + countAll(alternNode.getAlternatives());
+	}
+
+	@Override
+	public Integer visitConcatNode(ConcatNode concatNode, Void state) {
+		return 1 + countAll(concatNode.getConcatNodes());
+	}
+
+	@Override
+	public Integer visitStringNode(StringNode stringNode, Void state) {
+		return 1;
+	}
+
+	@Override
+	public Integer visitCharClassNode(CharClassNode charClassNode, Void state) {
+		return 1;
+	}
+
+	@Override
+	public Integer visitAtMostOnceUnaryNode(AtMostOnceUnaryNode atMostOnceUnaryNode, Void state) {
+		return countUnary(atMostOnceUnaryNode);
+	}
+
+	@Override
+	public Integer visitRepeatableUnaryNode(RepeatableUnaryNode repeatableUnaryNode, Void state) {
+		return countUnary(repeatableUnaryNode);
+	}
+
+	@Override
+	public Integer visitAtLeastOnceUnaryNode(AtLeastOnceUnaryNode atLeastOnceUnaryNode, Void state) {
+		return countUnary(atLeastOnceUnaryNode);
+	}
+
+	@Override
+	public Integer visitRepeatNode(RepeatNode repeatNode, Void state) {
+		return countUnary(repeatNode);
+	}
+
+	private int countUnary(UnaryNode unaryNode) {
+		return 1 + unaryNode.getNode().accept(this, null);
+	}
+
+	private int countAll(List<Node> nodes) {
+		int total = 0;
+		for (Node node : nodes) {
+			total += node.accept(this, null);
+		}
+		return total;
+	}
+}
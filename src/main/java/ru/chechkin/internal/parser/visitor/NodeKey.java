@@ -0,0 +1,82 @@
+package ru.chechkin.internal.parser.visitor;
+
+import ru.chechkin.internal.parser.node.AlternNode;
+import ru.chechkin.internal.parser.node.AtLeastOnceUnaryNode;
+import ru.chechkin.internal.parser.node.AtMostOnceUnaryNode;
+import ru.chechkin.internal.parser.node.CharClassNode;
+import ru.chechkin.internal.parser.node.ConcatNode;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.node.RepeatNode;
+import ru.chechkin.internal.parser.node.RepeatableUnaryNode;
+import ru.chechkin.internal.parser.node.StringNode;
+
+import java.util.List;
+
+/**
+ * Prints a syntax tree as an unambiguous prefix expression: two trees get the same key exactly
+ * when they have the same shape and contents. Literals are length‑prefixed, so no escaping is
+ * needed.
+ */
+public class NodeKey implements NodeVisitor<Void, StringBuilder> {
+	private static final NodeKey INSTANCE = new NodeKey();
+
+	public static String of(Node node) {
+		StringBuilder builder = new StringBuilder();
+		node.accept(INSTANCE, builder);
+		return builder.toString();
+	}
+
+	@Override
+	public Void visitAlternNode(AlternNode alternNode, StringBuilder key) {
+		return appendAll("(|", alternNode.getAlternatives(), key);
+	}
+
+	@Override
+	public Void visitConcatNode(ConcatNode concatNode, StringBuilder key) {
+		return appendAll("(.", concatNode.getConcatNodes(), key);
+	}
+
+	@Override
+	public Void visitStringNode(StringNode stringNode, StringBuilder key) {
+		String lexeme = stringNode.getLexeme();
+		key.append('"').append(lexeme.length()).append(':').append(lexeme);
+		return null;
+	}
+
+	@Override
+	public Void visitCharClassNode(CharClassNode charClassNode, StringBuilder key) {
+		key.append(charClassNode.getCharClass());
+		return null;
+	}
+
+	@Override
+	public Void visitAtMostOnceUnaryNode(AtMostOnceUnaryNode atMostOnceUnaryNode, StringBuilder key) {
+		return appendAll("(?", List.of(atMostOnceUnaryNode.getNode()), key);
+	}
+
+	@Override
+	public Void visitRepeatableUnaryNode(RepeatableUnaryNode repeatableUnaryNode, StringBuilder key) {
+		return appendAll("(*", List.of(repeatableUnaryNode.getNode()), key);
+	}
+
+	@Override
+	public Void visitAtLeastOnceUnaryNode(AtLeastOnceUnaryNode atLeastOnceUnaryNode, StringBuilder key) {
+		return appendAll("(+", List.of(atLeastOnceUnaryNode.getNode()), key);
+	}
+
+	@Override
+	public Void visitRepeatNode(RepeatNode repeatNode, StringBuilder key) {
+		String bounds = "({" + repeatNode.getMin() + "," + (repeatNode.isUnbounded() ? "" : repeatNode.getMax()) + "}";
+		return appendAll(bounds, List.of(repeatNode.getNode()), key);
+	}
+
+	private Void appendAll(String operator, List<Node> children, StringBuilder key) {
+		key.append(operator);
+		for (Node child : children) {
+			key.append(' ');
+			child.accept(this, key);
+		}
+		key.append(')');
+		return null;
+	}
+}
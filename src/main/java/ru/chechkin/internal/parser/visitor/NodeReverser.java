@@ -0,0 +1,72 @@
+package ru.chechkin.internal.parser.visitor;
+
+import ru.chechkin.internal.parser.node.AlternNode;
+import ru.chechkin.internal.parser.node.AtLeastOnceUnaryNode;
+import ru.chechkin.internal.parser.node.AtMostOnceUnaryNode;
+import ru.chechkin.internal.parser.node.CharClassNode;
+import ru.chechkin.internal.parser.node.ConcatNode;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.node.RepeatNode;
+import ru.chechkin.internal.parser.node.RepeatableUnaryNode;
+import ru.chechkin.internal.parser.node.StringNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mirrors a syntax tree: the result matches exactly the reversed strings of the original.
+ */
+public class NodeReverser implements NodeVisitor<Node, Void> {
+	public static Node reverse(Node node) {
+		return node.accept(new NodeReverser(), null);
+	}
+
+	@Override
+	public Node visitAlternNode(AlternNode alternNode, Void state) {
+		List<Node> alternatives = new ArrayList<>(alternNode.getAlternatives().size());
+		for (Node alternative : alternNode.getAlternatives()) {
+			alternatives.add(alternative.accept(this, null));
+		}
+		return new AlternNode(alternatives);
+	}
+
+	@Override
+	public Node visitConcatNode(ConcatNode concatNode, Void state) {
+		List<Node> children = concatNode.getConcatNodes();
+		List<Node> reversed = new ArrayList<>(children.size());
+		for (int idx = children.size() - 1; idx >= 0; idx--) {
+			reversed.add(children.get(idx).accept(this, null));
+		}
+		return new ConcatNode(reversed);
+	}
+
+	@Override
+	public Node visitStringNode(StringNode stringNode, Void state) {
+		return new StringNode(new StringBuilder(stringNode.getLexeme()).reverse().toString());
+	}
+
+	@Override
+	public Node visitCharClassNode(CharClassNode charClassNode, Void state) {
+		return charClassNode;
+	}
+
+	@Override
+	public Node visitAtMostOnceUnaryNode(AtMostOnceUnaryNode atMostOnceUnaryNode, Void state) {
+		return new AtMostOnceUnaryNode(atMostOnceUnaryNode.getNode().accept(this, null));
+	}
+
+	@Override
+	public Node visitRepeatableUnaryNode(RepeatableUnaryNode repeatableUnaryNode, Void state) {
+		return new RepeatableUnaryNode(repeatableUnaryNode.getNode().accept(this, null));
+	}
+
+	@Override
+	public Node visitAtLeastOnceUnaryNode(AtLeastOnceUnaryNode atLeastOnceUnaryNode, Void state) {
+		return new AtLeastOnceUnaryNode(atLeastOnceUnaryNode.getNode().accept(this, null));
+	}
+
+	@Override
+	public Node visitRepeatNode(RepeatNode repeatNode, Void state) {
+		return new RepeatNode(repeatNode.getNode().accept(this, null), repeatNode.getMin(), repeatNode.getMax());
+	}
+}
@@ -3,7 +3,9 @@ package ru.chechkin.internal.parser.visitor;
 import ru.chechkin.internal.parser.node.AlternNode;
 import ru.chechkin.internal.parser.node.AtLeastOnceUnaryNode;
 import ru.chechkin.internal.parser.node.AtMostOnceUnaryNode;
+import ru.chechkin.internal.parser.node.CharClassNode;
 import ru.chechkin.internal.parser.node.ConcatNode;
+import ru.chechkin.internal.parser.node.RepeatNode;
 import ru.chechkin.internal.parser.node.RepeatableUnaryNode;
 import ru.chechkin.internal.parser.node.StringNode;
 
@@ -14,9 +16,13 @@ public interface NodeVisitor<R, S> {
 
 	R visitStringNode(StringNode stringNode, S state);
 
+	R visitCharClassNode(CharClassNode charClassNode, S state);
+
 	R visitAtMostOnceUnaryNode(AtMostOnceUnaryNode atMostOnceUnaryNode, S state);
 
 	R visitRepeatableUnaryNode(RepeatableUnaryNode repeatableUnaryNode, S state);
 
 	R visitAtLeastOnceUnaryNode(AtLeastOnceUnaryNode atLeastOnceUnaryNode, S state);
+
+	R visitRepeatNode(RepeatNode repeatNode, S state);
 }
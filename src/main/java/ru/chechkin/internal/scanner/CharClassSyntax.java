@@ -0,0 +1,119 @@
+package ru.chechkin.internal.scanner;
+
+import ru.chechkin.internal.charset.CharClass;
+
+/**
+ * Turns the lexeme of a {@link Token.Type#CHAR_CLASS} token into a {@link CharClass}.
+ *
+ * <p>Supported forms:
+ * <ul>
+ *   <li>{@code .} — any character</li>
+ *   <li>{@code \d \w \s} and their negations {@code \D \W \S}</li>
+ *   <li>{@code [...]} and {@code [^...]} with single characters, ranges {@code a-z}, the shorthands
+ *   above, and {@code \} escapes for {@code ] \ - ^} as well as {@code \t \n \r}</li>
+ * </ul>
+ */
+public final class CharClassSyntax {
+	private CharClassSyntax() {
+	}
+
+	/**
+	 * A class as written: the characters and ranges listed, the shorthands ({@code . \w} …) used,
+	 * and whether it is negated. Case folding needs the parts, since only listed characters fold.
+	 */
+	public record Parts(CharClass literals, CharClass shorthands, boolean negated) {
+		public CharClass charClass() {
+			CharClass positive = literals.union(shorthands);
+			return negated ? positive.complement() : positive;
+		}
+	}
+
+	/**
+	 * @throws RegexpScanner.ScannerException if the lexeme is malformed
+	 */
+	public static CharClass parse(String lexeme) {
+		return parseParts(lexeme).charClass();
+	}
+
+	/**
+	 * @throws RegexpScanner.ScannerException if the lexeme is malformed
+	 */
+	public static Parts parseParts(String lexeme) {
+		if (lexeme.equals(".")) {
+			return new Parts(CharClass.EMPTY, CharClass.ANY, false);
+		}
+		if (lexeme.length() == 2 && lexeme.charAt(0) == '\\') {
+			CharClass shorthand = shorthand(lexeme.charAt(1));
+			if (shorthand == null) {
+				throw new RegexpScanner.ScannerException("Unknown character class: " + lexeme);
+			}
+			return new Parts(CharClass.EMPTY, shorthand, false);
+		}
+		if (lexeme.length() < 3 || lexeme.charAt(0) != '[' || lexeme.charAt(lexeme.length() - 1) != ']') {
+			throw new RegexpScanner.ScannerException("Malformed character class: " + lexeme);
+		}
+
+		int end = lexeme.length() - 1;
+		int current = 1;
+		boolean negated = lexeme.charAt(current) == '^';
+		if (negated) {
+			current++;
+		}
+		if (current == end) {
+			throw new RegexpScanner.ScannerException("Empty character class: " + lexeme);
+		}
+
+		CharClass.Builder builder = CharClass.builder();
+		CharClass.Builder shorthands = CharClass.builder();
+		while (current < end) {
+			char lo = lexeme.charAt(current++);
+			if (lo == '\\') {
+				char escaped = lexeme.charAt(current++);
+				CharClass shorthand = shorthand(escaped);
+				if (shorthand != null) {
+					shorthands.addAll(shorthand);
+					continue;
+				}
+				lo = unescape(escaped);
+			}
+
+			char hi = lo;
+			if (current + 1 < end && lexeme.charAt(current) == '-') {
+				current++;
+				hi = lexeme.charAt(current++);
+				if (hi == '\\') {
+					hi = unescape(lexeme.charAt(current++));
+				}
+				if (hi < lo) {
+					throw new RegexpScanner.ScannerException(
+							"Illegal character range " + lo + "-" + hi + " in " + lexeme
+					);
+				}
+			}
+			builder.addRange(lo, hi);
+		}
+
+		return new Parts(builder.build(), shorthands.build(), negated);
+	}
+
+	static CharClass shorthand(char c) {
+		return switch (c) {
+			case 'd' -> CharClass.DIGIT;
+			case 'D' -> CharClass.DIGIT.complement();
+			case 'w' -> CharClass.WORD;
+			case 'W' -> CharClass.WORD.complement();
+			case 's' -> CharClass.SPACE;
+			case 'S' -> CharClass.SPACE.complement();
+			default -> null;
+		};
+	}
+
+	static char unescape(char c) {
+		return switch (c) {
+			case 't' -> '\t';
+			case 'n' -> '\n';
+			case 'r' -> '\r';
+			default -> c;
+		};
+	}
+}
@@ -0,0 +1,37 @@
+package ru.chechkin.internal.scanner;
+
+import java.util.List;
+
+/**
+ * A {@link TokenStream} over an already scanned token list terminated by {@link Token.Type#EOF}.
+ */
+public class ListTokenStream implements TokenStream {
+	private final List<Token> tokens;
+	private int current = 0;
+
+	public ListTokenStream(List<Token> tokens) {
+		this.tokens = tokens;
+	}
+
+	@Override
+	public Token.Type peekType() {
+		return tokens.get(current).getType();
+	}
+
+	@Override
+	public String lexeme() {
+		return tokens.get(current).getLexeme();
+	}
+
+	@Override
+	public void advance() {
+		if (peekType() != Token.Type.EOF) {
+			current++;
+		}
+	}
+
+	@Override
+	public int position() {
+		return current;
+	}
+}
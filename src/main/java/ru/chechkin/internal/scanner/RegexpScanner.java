@@ -1,13 +1,9 @@
 package ru.chechkin.internal.scanner;
 
-import com.google.common.base.CharMatcher;
-import com.google.common.collect.ImmutableList;
-
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-import java.util.Objects;
-
 /**
  * A thread‑safe scanner that tokenizes a regular expression pattern.
  * The token list is computed exactly once, at construction time.
@@ -15,20 +11,19 @@ import java.util.Objects;
  * <p>Recognized tokens:
  * <ul>
  *   <li>Operators: '|' (PIPE), '+' (PLUS), '*' (STAR), '?' (QUESTION_MARK)</li>
+ *   <li>Counted repetition: {@code {n}}, {@code {n,}}, {@code {n,m}} (REPEAT)</li>
  *   <li>Parentheses: '(' (LEFT_PAREN), ')' (RIGHT_PAREN)</li>
- *   <li>Alphanumeric strings (STRING)</li>
+ *   <li>Alphanumeric strings and escaped characters such as {@code \*} (STRING)</li>
+ *   <li>Character classes: {@code [a-z0-9_]}, {@code [^...]}, '.', {@code \d \w \s \D \W \S} (CHAR_CLASS)</li>
  *   <li>End of file (EOF)</li>
  * </ul>
  *
  * <p>Any other character causes a {@link ScannerException} to be thrown.
+ *
+ * <p>Parsers that do not need the whole list should read a {@link RegexpTokenizer} directly.
  */
 public class RegexpScanner implements Scanner {
 
-	private static final CharMatcher ALPHANUMERIC_MATCHER = CharMatcher.inRange('0', '9')
-			.or(CharMatcher.inRange('a', 'z'))
-			.or(CharMatcher.inRange('A', 'Z'));
-
-	private final String pattern;
 	private final List<Token> tokens;
 
 	/**
@@ -39,8 +34,7 @@ public class RegexpScanner implements Scanner {
 	 * @throws ScannerException     if the pattern contains an unrecognized character
 	 */
 	public RegexpScanner(String pattern) {
-		this.pattern = Objects.requireNonNull(pattern, "pattern must not be null");
-		this.tokens = ImmutableList.copyOf(scanAllTokens());
+		this.tokens = Collections.unmodifiableList(scanAllTokens(new RegexpTokenizer(pattern)));
 	}
 
 	/**
@@ -54,87 +48,18 @@ public class RegexpScanner implements Scanner {
 		return tokens;   // already immutable, no need for copying
 	}
 
-	private List<Token> scanAllTokens() {
+	private static List<Token> scanAllTokens(RegexpTokenizer tokenizer) {
 		List<Token> tokens = new ArrayList<>();
-		int current = 0;
 
-		while (current < pattern.length()) {
-			TokenAndIndex tokenAndInde = scanToken(current);
-			tokens.add(tokenAndInde.token);
-			current = tokenAndInde.nextIndex;
+		while (tokenizer.peekType() != Token.Type.EOF) {
+			tokens.add(new Token(tokenizer.peekType(), tokenizer.lexeme()));
+			tokenizer.advance();
 		}
 
-		tokens.add(eofToken());
+		tokens.add(new Token(Token.Type.EOF, null));
 		return tokens;
 	}
 
-
-	private TokenAndIndex scanToken(int currentIndex) {
-		char c = pattern.charAt(currentIndex);
-		int nextIndex = currentIndex + 1;
-
-		return switch (c) {
-			case '|' -> new TokenAndIndex(
-					Token.builder().type(Token.Type.SLASH).build(),
-					nextIndex
-			);
-			case '+' -> new TokenAndIndex(
-					Token.builder().type(Token.Type.PLUS).build(),
-					nextIndex
-			);
-			case '*' -> new TokenAndIndex(
-					Token.builder().type(Token.Type.STAR).build(),
-					nextIndex
-			);
-			case '?' -> new TokenAndIndex(
-					Token.builder().type(Token.Type.QUESTION_MARK).build(),
-					nextIndex
-			);
-			case '(' -> new TokenAndIndex(
-					Token.builder().type(Token.Type.LEFT_PAREN).build(),
-					nextIndex
-			);
-			case ')' -> new TokenAndIndex(
-					Token.builder().type(Token.Type.RIGHT_PAREN).build(),
-					nextIndex
-			);
-			default -> {
-				if (isAlphanumeric(c)) {
-					yield scanString(currentIndex);
-				}
-				throw new ScannerException(
-						"Unrecognized character: '" + c + "' at position " + currentIndex
-				);
-			}
-		};
-	}
-
-	private TokenAndIndex scanString(int currentIndex) {
-		int nextIndex = currentIndex + 1;
-		while (nextIndex < pattern.length() && isAlphanumeric(pattern.charAt(nextIndex))) {
-			nextIndex++;
-		}
-		String lexeme = pattern.substring(currentIndex, nextIndex);
-		Token token = Token.builder()
-				.type(Token.Type.STRING)
-				.lexeme(lexeme)
-				.build();
-		return new TokenAndIndex(token, nextIndex);
-	}
-
-	private static Token eofToken() {
-		return Token.builder()
-				.type(Token.Type.EOF)
-				.build();
-	}
-
-	private static boolean isAlphanumeric(char c) {
-		return ALPHANUMERIC_MATCHER.matches(c);
-	}
-
-	private record TokenAndIndex(Token token, int nextIndex) {
-	}
-
 	public static class ScannerException extends RuntimeException {
 		public ScannerException(String message) {
 			super(message);
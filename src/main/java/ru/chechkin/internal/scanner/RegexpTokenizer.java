@@ -0,0 +1,157 @@
+package ru.chechkin.internal.scanner;
+
+import java.util.Objects;
+
+/**
+ * A lazy, allocation‑free {@link TokenStream} over a regular expression pattern.
+ * Tokens are recognized on demand; only {@link #lexeme()} of a STRING token allocates.
+ *
+ * <p>Recognizes the same tokens as {@link RegexpScanner}, which is built on top of it.
+ * The lexeme of a CHAR_CLASS token is its source text and is interpreted by {@link CharClassSyntax}.
+ * Not thread‑safe.
+ */
+public class RegexpTokenizer implements TokenStream {
+	private final String pattern;
+
+	private Token.Type type;
+	private int start;
+	private int end;
+
+	/**
+	 * @param pattern the regular expression pattern to scan; must not be {@code null}
+	 * @throws NullPointerException if {@code pattern} is {@code null}
+	 * @throws RegexpScanner.ScannerException if the first token is unrecognized
+	 */
+	public RegexpTokenizer(String pattern) {
+		this.pattern = Objects.requireNonNull(pattern, "pattern must not be null");
+		scan(0);
+	}
+
+	@Override
+	public Token.Type peekType() {
+		return type;
+	}
+
+	@Override
+	public String lexeme() {
+		if (type == Token.Type.STRING) {
+			if (pattern.charAt(start) == '\\') {
+				return String.valueOf(CharClassSyntax.unescape(pattern.charAt(start + 1)));
+			}
+			return pattern.substring(start, end);
+		}
+		if (type == Token.Type.CHAR_CLASS || type == Token.Type.REPEAT) {
+			return pattern.substring(start, end);
+		}
+		return null;
+	}
+
+	/**
+	 * @throws RegexpScanner.ScannerException if the next token is unrecognized
+	 */
+	@Override
+	public void advance() {
+		if (type != Token.Type.EOF) {
+			scan(end);
+		}
+	}
+
+	@Override
+	public int position() {
+		return start;
+	}
+
+	private void scan(int index) {
+		start = index;
+
+		if (index >= pattern.length()) {
+			type = Token.Type.EOF;
+			end = index;
+			return;
+		}
+
+		char c = pattern.charAt(index);
+		end = index + 1;
+
+		type = switch (c) {
+			case '|' -> Token.Type.SLASH;
+			case '+' -> Token.Type.PLUS;
+			case '*' -> Token.Type.STAR;
+			case '?' -> Token.Type.QUESTION_MARK;
+			case '(' -> Token.Type.LEFT_PAREN;
+			case ')' -> Token.Type.RIGHT_PAREN;
+			case '.' -> Token.Type.CHAR_CLASS;
+			case '[' -> scanCharClass(index);
+			case '{' -> scanRepeat(index);
+			case '\\' -> scanEscape(index);
+			default -> {
+				if (isAlphanumeric(c)) {
+					while (end < pattern.length() && isAlphanumeric(pattern.charAt(end))) {
+						end++;
+					}
+					yield Token.Type.STRING;
+				}
+				throw new RegexpScanner.ScannerException(
+						"Unrecognized character: '" + c + "' at position " + index
+				);
+			}
+		};
+	}
+
+	private Token.Type scanCharClass(int index) {
+		// a ']' right after '[' or '[^' would make an empty class, so it always closes
+		while (end < pattern.length() && pattern.charAt(end) != ']') {
+			if (pattern.charAt(end) == '\\') {
+				end++;
+			}
+			end++;
+		}
+		if (end >= pattern.length()) {
+			throw new RegexpScanner.ScannerException("Unterminated character class at position " + index);
+		}
+		end++;
+		return Token.Type.CHAR_CLASS;
+	}
+
+	/**
+	 * {@code {n}}, {@code {n,}} or {@code {n,m}}; the bounds are read by the parser.
+	 */
+	private Token.Type scanRepeat(int index) {
+		int digits = end;
+		while (end < pattern.length() && isDigit(pattern.charAt(end))) {
+			end++;
+		}
+		boolean valid = end > digits;
+		if (valid && end < pattern.length() && pattern.charAt(end) == ',') {
+			end++;
+			while (end < pattern.length() && isDigit(pattern.charAt(end))) {
+				end++;
+			}
+		}
+		if (!valid || end >= pattern.length() || pattern.charAt(end) != '}') {
+			throw new RegexpScanner.ScannerException("Malformed repetition at position " + index);
+		}
+		end++;
+		return Token.Type.REPEAT;
+	}
+
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * {@code \d \w \s} and their negations are classes; any other escaped character is a
+	 * one‑character STRING, which is how operator characters are written literally.
+	 */
+	private Token.Type scanEscape(int index) {
+		if (end >= pattern.length()) {
+			throw new RegexpScanner.ScannerException("Dangling escape at position " + index);
+		}
+		char escaped = pattern.charAt(end++);
+		return CharClassSyntax.shorthand(escaped) != null ? Token.Type.CHAR_CLASS : Token.Type.STRING;
+	}
+
+	static boolean isAlphanumeric(char c) {
+		return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+}
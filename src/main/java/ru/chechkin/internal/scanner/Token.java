@@ -11,7 +11,7 @@ import java.util.Optional;
 @AllArgsConstructor
 public class Token {
     public enum Type {
-        SLASH, PLUS, STAR, QUESTION_MARK, STRING, LEFT_PAREN, RIGHT_PAREN, EOF
+        SLASH, PLUS, STAR, QUESTION_MARK, STRING, CHAR_CLASS, REPEAT, LEFT_PAREN, RIGHT_PAREN, EOF
     }
 
     @Getter
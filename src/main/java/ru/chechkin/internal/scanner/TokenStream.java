@@ -0,0 +1,27 @@
+package ru.chechkin.internal.scanner;
+
+/**
+ * A forward‑only cursor over the tokens of a pattern. Unlike {@link Scanner} it exposes one token
+ * at a time, so a parser can consume a pattern without materializing the token list.
+ */
+public interface TokenStream {
+	/**
+	 * @return the type of the current token; {@link Token.Type#EOF} once the input is exhausted
+	 */
+	Token.Type peekType();
+
+	/**
+	 * @return the lexeme of the current token, or {@code null} if the token type carries none
+	 */
+	String lexeme();
+
+	/**
+	 * Moves to the next token. Advancing past {@link Token.Type#EOF} keeps the stream at EOF.
+	 */
+	void advance();
+
+	/**
+	 * @return the position of the current token, used in error messages
+	 */
+	int position();
+}
@@ -0,0 +1,33 @@
+package ru.chechkin.internal.service;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Picks the default executor for {@link MatchService}: one virtual thread per task where the
+ * runtime has them (JDK 21+), otherwise a {@link ForkJoinPool}. The virtual‑thread factory is
+ * looked up reflectively so the library still targets and runs on JDK 17.
+ */
+final class MatchExecutors {
+	private MatchExecutors() {
+	}
+
+	static ExecutorService defaultExecutor() {
+		ExecutorService virtual = virtualThreadExecutor();
+		return virtual != null ? virtual : new ForkJoinPool();
+	}
+
+	/**
+	 * @return a virtual‑thread‑per‑task executor, or {@code null} if the runtime has none
+	 */
+	static ExecutorService virtualThreadExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (ReflectiveOperationException | UnsupportedOperationException e) {
+			return null;
+		}
+	}
+}
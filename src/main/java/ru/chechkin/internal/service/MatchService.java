@@ -0,0 +1,301 @@
+package ru.chechkin.internal.service;
+
+import ru.chechkin.internal.Matcher;
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.metrics.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An in‑process service matching inputs against registered patterns.
+ *
+ * <p>At most {@code queueCapacity} requests are pending at a time, counting both those waiting on
+ * the queue and those handed to the executor but not finished, whose own queue may be unbounded.
+ * {@link #submit} blocks while that many are pending, which pushes back on producers, and
+ * {@link #trySubmit} fails fast instead. A dispatcher thread drains up to
+ * {@code batchSize} requests at a time and groups them by pattern, so each pattern's tables are
+ * walked by one task for the whole group while they are hot in cache. Groups run on the executor,
+ * by default {@linkplain MatchExecutors#defaultExecutor() virtual threads or a ForkJoin pool}.
+ */
+public class MatchService implements AutoCloseable {
+	private static final Duration CLOSE_TIMEOUT = Duration.ofMinutes(1);
+
+	private final Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+	private final BlockingQueue<Request> queue;
+	private final int queueCapacity;
+	/**
+	 * One permit per request that may be pending; taken before queuing, returned on completion.
+	 */
+	private final Semaphore pending;
+	private final int batchSize;
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+	private final Thread dispatcher;
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LongAdder batches = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+
+	private volatile boolean closed;
+
+	private MatchService(Builder builder) {
+		this.queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+		this.queueCapacity = builder.queueCapacity;
+		this.pending = new Semaphore(builder.queueCapacity);
+		this.batchSize = builder.batchSize;
+		this.ownsExecutor = builder.executor == null;
+		this.executor = ownsExecutor ? MatchExecutors.defaultExecutor() : builder.executor;
+
+		this.dispatcher = new Thread(this::dispatch, "regexpm-match-dispatcher");
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	public void register(String patternId, Pattern pattern) {
+		patterns.put(patternId, pattern);
+	}
+
+	/**
+	 * Queues a request, blocking while {@code queueCapacity} requests are pending.
+	 *
+	 * @throws IllegalArgumentException if no pattern is registered under {@code patternId}
+	 * @throws RejectedExecutionException if the service is closed
+	 */
+	public CompletableFuture<Boolean> submit(String patternId, String input) throws InterruptedException {
+		Request request = request(patternId, input);
+		pending.acquire();
+		enqueue(request);
+		return request.result;
+	}
+
+	/**
+	 * Queues a request unless {@code queueCapacity} requests are pending, in which case the result
+	 * fails at once with {@link RejectedExecutionException}.
+	 */
+	public CompletableFuture<Boolean> trySubmit(String patternId, String input) {
+		Request request = request(patternId, input);
+		if (!pending.tryAcquire()) {
+			rejected.increment();
+			request.result.completeExceptionally(new RejectedExecutionException("Match queue is full"));
+		} else {
+			enqueue(request);
+		}
+		return request.result;
+	}
+
+	/**
+	 * Queues a request holding a permit, which is returned however the request completes. The
+	 * queue has a slot for every permit, so it is only full if callers completed queued requests
+	 * themselves.
+	 */
+	private void enqueue(Request request) {
+		request.result.whenComplete((result, error) -> pending.release());
+		if (!queue.offer(request)) {
+			rejected.increment();
+			request.result.completeExceptionally(new RejectedExecutionException("Match queue is full"));
+			return;
+		}
+		failIfAbandoned(request);
+	}
+
+	/**
+	 * Covers a request queued while {@link #close()} ran: once the dispatcher has exited nothing
+	 * else will take it.
+	 */
+	private void failIfAbandoned(Request request) {
+		if (closed && !dispatcher.isAlive() && queue.remove(request)) {
+			request.result.completeExceptionally(new RejectedExecutionException("Match service is closed"));
+		}
+	}
+
+	private Request request(String patternId, String input) {
+		if (closed) {
+			throw new RejectedExecutionException("Match service is closed");
+		}
+		if (!patterns.containsKey(patternId)) {
+			throw new IllegalArgumentException("Unknown pattern: " + patternId);
+		}
+		return new Request(patternId, input, System.nanoTime(), new CompletableFuture<>());
+	}
+
+	private void dispatch() {
+		List<Request> drained = new ArrayList<>(batchSize);
+		while (!closed || !queue.isEmpty()) {
+			try {
+				Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				drained.add(first);
+				queue.drainTo(drained, batchSize - 1);
+			} catch (InterruptedException e) {
+				break;
+			}
+
+			Map<String, List<Request>> groups = new LinkedHashMap<>();
+			for (Request request : drained) {
+				groups.computeIfAbsent(request.patternId, ignored -> new ArrayList<>()).add(request);
+			}
+			drained.clear();
+
+			for (Map.Entry<String, List<Request>> group : groups.entrySet()) {
+				batches.increment();
+				try {
+					executor.execute(() -> run(group.getKey(), group.getValue()));
+				} catch (RejectedExecutionException e) {
+					group.getValue().forEach(request -> request.result.completeExceptionally(e));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Answers a group. Whatever escapes, including a pattern that fails to build its matcher,
+	 * completes the requests not yet answered, so their permits always come back.
+	 */
+	private void run(String patternId, List<Request> group) {
+		int answered = 0;
+		try {
+			Matcher matcher = patterns.get(patternId).matcher();
+			for (; answered < group.size(); answered++) {
+				Request request = group.get(answered);
+				try {
+					boolean matched = matcher.match(request.input);
+					latency.record(System.nanoTime() - request.enqueuedNanos);
+					request.result.complete(matched);
+				} catch (RuntimeException e) {
+					request.result.completeExceptionally(e);
+				}
+			}
+		} catch (Throwable e) {
+			for (Request request : group.subList(answered, group.size())) {
+				request.result.completeExceptionally(e);
+			}
+			if (e instanceof Error error) {
+				throw error;
+			}
+		}
+	}
+
+	/**
+	 * @return the requests accepted but not finished, whether still queued or handed to the executor
+	 */
+	public int queueDepth() {
+		return queueCapacity - pending.availablePermits();
+	}
+
+	/**
+	 * @return time from submission to completion of each request
+	 */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	public long getBatches() {
+		return batches.sum();
+	}
+
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	/**
+	 * Stops accepting requests, finishes the queued ones and, if the service created its executor,
+	 * shuts it down, waiting up to a minute in all. An interrupt does not cut the wait short; the
+	 * thread's interrupt status is restored on return.
+	 */
+	@Override
+	public void close() {
+		long deadline = System.nanoTime() + CLOSE_TIMEOUT.toNanos();
+		boolean interrupted = false;
+		while (true) {
+			try {
+				shutdown(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Like {@link #close()}, but waits at most {@code timeout} and can be interrupted. Requests
+	 * still queued when the wait ends fail with {@link RejectedExecutionException}.
+	 *
+	 * @return whether the dispatcher and, if the service created it, the executor finished in time
+	 */
+	public boolean shutdown(Duration timeout) throws InterruptedException {
+		closed = true;
+		long deadline = System.nanoTime() + timeout.toNanos();
+		TimeUnit.NANOSECONDS.timedJoin(dispatcher, timeout.toNanos());
+		for (Request request; (request = queue.poll()) != null; ) {
+			request.result.completeExceptionally(new RejectedExecutionException("Match service is closed"));
+		}
+		boolean finished = !dispatcher.isAlive();
+		if (ownsExecutor) {
+			executor.shutdown();
+			finished &= executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+		return finished;
+	}
+
+	private record Request(String patternId, String input, long enqueuedNanos, CompletableFuture<Boolean> result) {
+	}
+
+	public static final class Builder {
+		private int queueCapacity = 1024;
+		private int batchSize = 64;
+		private ExecutorService executor;
+
+		private Builder() {
+		}
+
+		public Builder queueCapacity(int queueCapacity) {
+			if (queueCapacity <= 0) {
+				throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+			}
+			this.queueCapacity = queueCapacity;
+			return this;
+		}
+
+		public Builder batchSize(int batchSize) {
+			if (batchSize <= 0) {
+				throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+			}
+			this.batchSize = batchSize;
+			return this;
+		}
+
+		/**
+		 * Runs batches on {@code executor}, which the service does not shut down.
+		 */
+		public Builder executor(ExecutorService executor) {
+			this.executor = executor;
+			return this;
+		}
+
+		public MatchService build() {
+			return new MatchService(this);
+		}
+	}
+}
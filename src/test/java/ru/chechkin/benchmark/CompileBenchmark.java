@@ -0,0 +1,75 @@
+package ru.chechkin.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.parser.RegexpParser;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compile time of keyword‑list patterns {@code (kw0|kw1|...)} with 1k/10k/100k alternatives.
+ *
+ * <p>Run {@link #main} from the IDE, or {@code org.openjdk.jmh.Main CompileBenchmark -prof gc} on the
+ * test classpath to also see allocation per compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompileBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	public int alternatives;
+
+	private String pattern;
+
+	@Setup
+	public void setUp() {
+		pattern = keywordList(alternatives);
+	}
+
+	@Benchmark
+	public Node parse() {
+		return new RegexpParser(new RegexpTokenizer(pattern)).parse();
+	}
+
+	@Benchmark
+	public Pattern compile() {
+		return Pattern.compile(pattern);
+	}
+
+	static String keywordList(int alternatives) {
+		StringBuilder builder = new StringBuilder(alternatives * 8).append('(');
+		for (int idx = 0; idx < alternatives; idx++) {
+			if (idx > 0) {
+				builder.append('|');
+			}
+			builder.append("kw").append(Integer.toString(idx, 36));
+		}
+		return builder.append(")+").toString();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(CompileBenchmark.class.getSimpleName())
+				.build()
+		).run();
+	}
+}
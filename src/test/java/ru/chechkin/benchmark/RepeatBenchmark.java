@@ -0,0 +1,75 @@
+package ru.chechkin.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.chechkin.internal.Matcher;
+import ru.chechkin.internal.Pattern;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compile cost of {@code x(body){3,bound}y} for growing bounds, which should stay flat because the
+ * repeat is a single counter state whether the body is one character wide or several, and the cost
+ * of matching an input of {@code bound} repetitions.
+ *
+ * <p>Run {@link #main} from the IDE, or {@code org.openjdk.jmh.Main RepeatBenchmark -prof gc} on the
+ * test classpath to also see allocation per compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepeatBenchmark {
+
+	@Param({"10", "100", "1000", "10000", "100000"})
+	public int bound;
+
+	/**
+	 * The repeated body and one text it matches.
+	 */
+	@Param({"[a-z]:a", "(a[0-9]):a1"})
+	public String body;
+
+	private String pattern;
+	private Matcher matcher;
+	private String input;
+
+	@Setup
+	public void setUp() {
+		String[] parts = body.split(":");
+		pattern = "x" + parts[0] + "{3," + bound + "}y";
+		matcher = Pattern.compile(pattern).matcher();
+		input = "x" + parts[1].repeat(bound) + "y";
+	}
+
+	@Benchmark
+	public Matcher compile() {
+		return Pattern.compile(pattern).matcher();
+	}
+
+	@Benchmark
+	public boolean match() {
+		return matcher.match(input);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(RepeatBenchmark.class.getSimpleName())
+				.build()
+		).run();
+	}
+}
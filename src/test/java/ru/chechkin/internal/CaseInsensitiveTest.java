@@ -0,0 +1,82 @@
+package ru.chechkin.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaseInsensitiveTest {
+
+	private static List<String> inputs(String alphabet, int maxLength) {
+		List<String> inputs = new ArrayList<>();
+		inputs.add("");
+		int from = 0;
+		for (int length = 1; length <= maxLength; length++) {
+			int to = inputs.size();
+			for (int idx = from; idx < to; idx++) {
+				for (char c : alphabet.toCharArray()) {
+					inputs.add(inputs.get(idx) + c);
+				}
+			}
+			from = to;
+		}
+		return inputs;
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"ab", "(a|\\Ж)1", "[a-b]\\ж*", "[^B]+", "a1(b)?", "(Ab)+(\\ж){1,2}", "\\w1", "[^\\ж]b"})
+	void testAgreesWithJdk(String pattern) {
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(pattern,
+				java.util.regex.Pattern.CASE_INSENSITIVE | java.util.regex.Pattern.UNICODE_CASE);
+		Pattern compiled = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
+		Matcher matcher = compiled.matcher();
+		Searcher searcher = compiled.searcher();
+
+		for (String input : inputs("aAbB1жЖ", 4)) {
+			java.util.regex.Matcher jdk = expected.matcher(input);
+			assertEquals(jdk.matches(), matcher.match(input), pattern + " on '" + input + "'");
+			assertEquals(jdk.find(0), searcher.find(input, 0) != null, pattern + " find on '" + input + "'");
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"[\\Wa]", "[\\Wz]", "[^\\Wa]", "\\W", "[^\\w]", "[a-z\\d]", "[^a\\d]", ".", "\\w"})
+	void testClassesMixingShorthandsAndLiterals(String pattern) {
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(pattern,
+				java.util.regex.Pattern.CASE_INSENSITIVE | java.util.regex.Pattern.UNICODE_CASE);
+		Matcher matcher = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE).matcher();
+
+		for (String input : inputs("aAzZkK\u212A1-", 1)) {
+			assertEquals(expected.matcher(input).matches(), matcher.match(input), pattern + " on '" + input + "'");
+		}
+		assertTrue(Pattern.compile("[\\Wa]", Pattern.CASE_INSENSITIVE).matcher().match("a"));
+		assertTrue(Pattern.compile("[\\Wz]", Pattern.CASE_INSENSITIVE).matcher().match("Z"));
+	}
+
+	@Test
+	void testCaseSensitiveByDefault() {
+		assertFalse(Pattern.compile("error").matcher().match("ERROR"));
+		assertTrue(Pattern.compile("error", Pattern.CASE_INSENSITIVE).matcher().match("ErRoR"));
+		assertEquals(Pattern.CASE_INSENSITIVE, Pattern.compile("x", Pattern.CASE_INSENSITIVE).flags());
+	}
+
+	@Test
+	void testSpecialCaseMappings() {
+		Matcher kelvin = Pattern.compile("k", Pattern.CASE_INSENSITIVE).matcher();
+		assertTrue(kelvin.match("K"));
+		assertTrue(kelvin.match("K"));
+
+		Matcher sigma = Pattern.compile("\\σ", Pattern.CASE_INSENSITIVE).matcher();
+		assertTrue(sigma.match("Σ"));
+		assertTrue(sigma.match("ς"));
+	}
+
+	@Test
+	void testUnknownFlagsAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> Pattern.compile("a", 0x100));
+	}
+}
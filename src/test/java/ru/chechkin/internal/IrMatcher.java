@@ -0,0 +1,166 @@
+package ru.chechkin.internal;
+
+import ru.chechkin.internal.ir.CompactRegexp;
+import ru.chechkin.internal.ir.IrVisitor;
+
+/**
+ * The {@link RegexpMatcher} algorithm running directly over a {@link CompactRegexp}; a test
+ * oracle for the encoding, not an engine.
+ */
+public class IrMatcher implements IrVisitor<Boolean, IrMatcher.IrMatchingContext> {
+
+	public static class IrMatchingContext {
+		private final String text;
+		private int currentIndex;
+
+		public IrMatchingContext(String text, int currentIndex) {
+			this.text = text;
+			this.currentIndex = currentIndex;
+		}
+
+		public int getCurrentIndex() {
+			return currentIndex;
+		}
+	}
+
+	private final CompactRegexp ir;
+
+	public IrMatcher(CompactRegexp ir) {
+		this.ir = ir;
+	}
+
+	public boolean match(String text) {
+		if (text == null) {
+			return false;
+		}
+
+		IrMatchingContext ctx = new IrMatchingContext(text, 0);
+
+		return match(CompactRegexp.ROOT, ctx) && ctx.currentIndex >= ctx.text.length();
+	}
+
+	private boolean match(int pc, IrMatchingContext state) {
+		return ir.accept(this, pc, state);
+	}
+
+	@Override
+	public Boolean visitAltern(int pc, IrMatchingContext state) {
+		int maxLength = -1;
+
+		boolean isAnyMatch = false;
+
+		int prevIndex = state.currentIndex;
+
+		int alternative = ir.firstChild(pc);
+		for (int idx = 0, count = ir.childCount(pc); idx < count; idx++) {
+			boolean isMatch = match(alternative, state);
+
+			isAnyMatch = isAnyMatch || isMatch;
+
+			if (isMatch) {
+				maxLength = Math.max(maxLength, state.currentIndex);
+			}
+
+			state.currentIndex = prevIndex;
+			alternative = ir.nextSibling(alternative);
+		}
+
+		if (isAnyMatch) {
+			state.currentIndex = maxLength;
+		}
+
+		return isAnyMatch;
+	}
+
+	@Override
+	public Boolean visitConcat(int pc, IrMatchingContext state) {
+		int child = ir.firstChild(pc);
+		for (int idx = 0, count = ir.childCount(pc); idx < count; idx++) {
+			if (!match(child, state)) {
+				return false;
+			}
+			child = ir.nextSibling(child);
+		}
+		return true;
+	}
+
+	@Override
+	public Boolean visitString(int pc, IrMatchingContext state) {
+		boolean match = ir.literalMatches(pc, state.text, state.currentIndex);
+
+		state.currentIndex += ir.literalLength(pc);
+
+		return match;
+	}
+
+	@Override
+	public Boolean visitCharClass(int pc, IrMatchingContext state) {
+		boolean match = state.currentIndex < state.text.length()
+				&& ir.charClassContains(pc, state.text.charAt(state.currentIndex));
+
+		state.currentIndex++;
+
+		return match;
+	}
+
+	@Override
+	public Boolean visitAtMostOnce(int pc, IrMatchingContext state) {
+		int prevIndex = state.currentIndex;
+
+		if (match(ir.firstChild(pc), state)) {
+			prevIndex = state.currentIndex;
+		}
+
+		state.currentIndex = prevIndex;
+		return true;
+	}
+
+	@Override
+	public Boolean visitRepeatable(int pc, IrMatchingContext state) {
+		int prevIndex = state.currentIndex;
+
+		int child = ir.firstChild(pc);
+
+		while (match(child, state)) {
+			prevIndex = state.currentIndex;
+		}
+
+		state.currentIndex = prevIndex;
+		return true;
+	}
+
+	@Override
+	public Boolean visitAtLeastOnce(int pc, IrMatchingContext state) {
+		int child = ir.firstChild(pc);
+
+		if (!match(child, state)) {
+			return false;
+		}
+
+		int prevIndex = state.currentIndex;
+
+		while (match(child, state)) {
+			prevIndex = state.currentIndex;
+		}
+
+		state.currentIndex = prevIndex;
+		return true;
+	}
+
+	@Override
+	public Boolean visitRepeat(int pc, IrMatchingContext state) {
+		int child = ir.firstChild(pc);
+		int max = ir.repeatMax(pc);
+
+		int prevIndex = state.currentIndex;
+		int count = 0;
+
+		while ((max < 0 || count < max) && match(child, state)) {
+			prevIndex = state.currentIndex;
+			count++;
+		}
+
+		state.currentIndex = prevIndex;
+		return count >= ir.repeatMin(pc);
+	}
+}
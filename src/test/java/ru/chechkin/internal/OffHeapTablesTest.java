@@ -0,0 +1,115 @@
+package ru.chechkin.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import ru.chechkin.internal.automaton.PrefixMatcher;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapTablesTest {
+
+	@ParameterizedTest
+	@ValueSource(strings = {"(a|b)*b(a|b)", "[^a]*", "((a*)*|b)+c?", "a{20,30}"})
+	void testOffHeapAgreesWithHeap(String pattern) {
+		try (Pattern heap = Pattern.compile(pattern); Pattern offHeap = Pattern.compile(pattern, Pattern.OFF_HEAP_TABLES)) {
+			for (String input : List.of("", "a", "ab", "bba", "abab", "ccc", "bc", "a".repeat(25), "a".repeat(31))) {
+				assertEquals(heap.matcher().match(input), offHeap.matcher().match(input), pattern + " on '" + input + "'");
+				assertEquals(heap.searcher().find(input, 0), offHeap.searcher().find(input, 0), pattern + " find on '" + input + "'");
+			}
+		}
+	}
+
+	@Test
+	void testTablesAreOffHeap() {
+		try (Pattern pattern = Pattern.compile("(a|b)*b(a|b)", Pattern.OFF_HEAP_TABLES)) {
+			assertTrue(pattern.automaton().getDfa().isOffHeap());
+			assertTrue(pattern.searchAutomaton().getForwardDfa().isOffHeap());
+			assertTrue(pattern.searchAutomaton().getReverseDfa().isOffHeap());
+		}
+		assertFalse(Pattern.compile("(a|b)*b(a|b)").automaton().getDfa().isOffHeap());
+	}
+
+	@Test
+	void testClosedPatternRejectsNewMatchers() {
+		Pattern pattern = Pattern.compile("ab", Pattern.OFF_HEAP_TABLES);
+		assertTrue(pattern.matcher().match("ab"));
+		pattern.close();
+		pattern.close();
+
+		assertTrue(pattern.isClosed());
+		assertThrows(IllegalStateException.class, pattern::matcher);
+		assertThrows(IllegalStateException.class, pattern::searcher);
+	}
+
+	@Test
+	void testMatchersObtainedBeforeCloseThrowAfterIt() {
+		Pattern pattern = Pattern.compile("[a-c]*d", Pattern.OFF_HEAP_TABLES);
+		assertTrue(pattern.automaton().getDfa().isOffHeap());
+		Matcher matcher = pattern.matcher();
+		Searcher searcher = pattern.searcher();
+		PrefixMatcher prefixMatcher = pattern.prefixMatcher();
+		assertTrue(matcher.match("abcd"));
+
+		pattern.close();
+		List<ByteBuffer> pressure = new ArrayList<>();
+		for (int idx = 0; idx < 16; idx++) {
+			pressure.add(ByteBuffer.allocateDirect(4096));
+		}
+
+		assertThrows(IllegalStateException.class, () -> matcher.match("abcd"));
+		assertThrows(IllegalStateException.class, () -> searcher.find("xxabcd", 0));
+		assertThrows(IllegalStateException.class, () -> prefixMatcher.append("ab"));
+		assertEquals(16, pressure.size());
+	}
+
+	@Test
+	void testCloseDuringMatchingNeverReadsFreedTables() throws InterruptedException {
+		for (int round = 0; round < 20; round++) {
+			Pattern pattern = Pattern.compile("[a-c]*d", Pattern.OFF_HEAP_TABLES);
+			pattern.automaton();
+			Matcher matcher = pattern.matcher();
+			String input = "abc".repeat(10_000) + "d";
+
+			CountDownLatch started = new CountDownLatch(4);
+			AtomicInteger rejected = new AtomicInteger();
+			AtomicReference<Throwable> failure = new AtomicReference<>();
+			List<Thread> threads = new ArrayList<>();
+			for (int idx = 0; idx < 4; idx++) {
+				Thread thread = new Thread(() -> {
+					started.countDown();
+					try {
+						while (true) {
+							if (!matcher.match(input)) {
+								failure.set(new AssertionError("wrong answer"));
+								return;
+							}
+						}
+					} catch (IllegalStateException e) {
+						rejected.incrementAndGet();
+					} catch (Throwable e) {
+						failure.set(e);
+					}
+				});
+				thread.start();
+				threads.add(thread);
+			}
+
+			started.await();
+			pattern.close();
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			assertNull(failure.get());
+			assertEquals(4, rejected.get());
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package ru.chechkin.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import ru.chechkin.internal.automaton.AutomatonMatcher;
+import ru.chechkin.internal.automaton.CompiledAutomaton;
+import ru.chechkin.internal.automaton.Dfa;
+import ru.chechkin.internal.automaton.DfaBuilder;
+import ru.chechkin.internal.automaton.DfaMinimizer;
+import ru.chechkin.internal.automaton.NfaBuilder;
+import ru.chechkin.internal.metrics.PatternMetrics;
+import ru.chechkin.internal.parser.RegexpParser;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.visitor.NodeCanonicalizer;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatternRegistryTest {
+
+	private static Node parse(String pattern) {
+		return new RegexpParser(new RegexpTokenizer(pattern)).parse();
+	}
+
+	private static String signature(String pattern) {
+		return DfaMinimizer.signature(DfaBuilder.build(NfaBuilder.build(parse(pattern))));
+	}
+
+	private static List<String> inputs(String alphabet, int maxLength) {
+		List<String> inputs = new ArrayList<>(List.of(""));
+		for (int from = 0; inputs.get(from).length() < maxLength; from++) {
+			for (char c : alphabet.toCharArray()) {
+				inputs.add(inputs.get(from) + c);
+			}
+		}
+		return inputs;
+	}
+
+	@ParameterizedTest
+	@CsvSource({
+			"'(a|b)', '(b|a)'",
+			"'(a|b)', '((a)|b)'",
+			"'(a|b)', '[ab]'",
+			"'(a|b|a)c', '[ba]c'",
+			"'(x*)+', 'x*'",
+			"'(x+)?', 'x*'",
+			"'x{0,1}', 'x?'",
+			"'x{1,}', 'x+'",
+			"'x{1}y', 'xy'",
+			"'ab(cd)', 'abcd'",
+			"'(ab|cd)e', '(cd|ab)e'",
+			"'((a|b)|(c|de))', '(de|[a-c])'",
+	})
+	void testSyntacticVariantsHaveSameKey(String first, String second) {
+		assertEquals(NodeCanonicalizer.key(parse(first)), NodeCanonicalizer.key(parse(second)));
+		assertEquals(signature(first), signature(second));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"(a|b)*abb", "((a)|b)+c?", "(x*)+y{1,}", "(ab|a)(c|bc)", "[ab]{0,1}(b|a){2,3}", "(a?)*b|c|(b|a)"})
+	void testCanonicalFormMatchesSameStrings(String pattern) {
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(pattern);
+		Matcher matcher = new AutomatonMatcher(CompiledAutomaton.compile(NodeCanonicalizer.canonicalize(parse(pattern))), PatternMetrics.DISABLED);
+
+		for (String input : inputs("abcxy", 5)) {
+			assertEquals(expected.matcher(input).matches(), matcher.match(input), pattern + " on '" + input + "'");
+		}
+	}
+
+	@Test
+	void testMinimalDfaDecidesEquivalence() {
+		assertNotEquals(NodeCanonicalizer.key(parse("a*a")), NodeCanonicalizer.key(parse("a(a)*")));
+		assertEquals(signature("a*a"), signature("a(a)*"));
+		assertEquals(signature("a+"), signature("a(a)*"));
+		assertEquals(signature("(a|b)*"), signature("(a*b*)*"));
+		assertNotEquals(signature("a*"), signature("a+"));
+		assertNotEquals(signature("[ab]c"), signature("[ac]c"));
+	}
+
+	@Test
+	void testMinimizeMergesEquivalentStates() {
+		Dfa dfa = DfaBuilder.build(NfaBuilder.build(parse("(a|b)*abb")));
+		Dfa minimal = DfaMinimizer.minimize(dfa);
+
+		assertEquals(5, minimal.stateCount(), "four live states and the dead state");
+		assertFalse(minimal.canAccept(Dfa.DEAD));
+		for (String input : inputs("ab", 8)) {
+			assertEquals(dfa.matches(input), minimal.matches(input), input);
+		}
+	}
+
+	@Test
+	void testRegistrySharesEquivalentPatterns() {
+		try (PatternRegistry registry = new PatternRegistry()) {
+			Pattern shared = registry.register("(a|b)");
+			assertSame(shared, registry.register("(b|a)"));
+			assertSame(shared, registry.register("((a)|b)"));
+			assertNotSame(shared, registry.register("(a|b)", Pattern.OFF_HEAP_TABLES));
+			assertNotSame(shared, registry.register("a(a)*"));
+			assertNotSame(shared, registry.register("a*a"));
+
+			assertEquals(6, registry.getRegistrations());
+			assertEquals(4, registry.getCompiled());
+			assertEquals(2.0 / 6, registry.getDedupRatio(), 1e-9);
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"SYNTAX", "LANGUAGE"})
+	void testRegistryKeepsRequestedFlags(PatternRegistry.Equivalence equivalence) {
+		try (PatternRegistry registry = new PatternRegistry(equivalence)) {
+			Pattern folded = registry.register("ab", Pattern.CASE_INSENSITIVE);
+			assertSame(folded, registry.register("AB", Pattern.CASE_INSENSITIVE));
+			assertSame(folded, registry.register("[aA][bB]", Pattern.CASE_INSENSITIVE));
+
+			Pattern plain = registry.register("[aA][bB]");
+			assertNotSame(folded, plain);
+			assertEquals(Pattern.CASE_INSENSITIVE, folded.flags());
+			assertEquals(0, plain.flags());
+			assertEquals(2, registry.getCompiled());
+		}
+	}
+
+	@Test
+	void testLanguageEquivalenceSharesMore() {
+		PatternRegistry registry = new PatternRegistry(PatternRegistry.Equivalence.LANGUAGE);
+		Pattern shared = registry.register("a(a)*");
+		assertSame(shared, registry.register("a*a"));
+		assertSame(shared, registry.register("a+"));
+		assertSame(shared, registry.register("a{1,}"));
+		assertNotSame(shared, registry.register("a*"));
+
+		registry.close();
+		assertTrue(shared.isClosed());
+		assertEquals(0, registry.getCompiled());
+	}
+}
@@ -5,15 +5,22 @@ import lombok.Getter;
 import ru.chechkin.internal.parser.node.AlternNode;
 import ru.chechkin.internal.parser.node.AtLeastOnceUnaryNode;
 import ru.chechkin.internal.parser.node.AtMostOnceUnaryNode;
+import ru.chechkin.internal.parser.node.CharClassNode;
 import ru.chechkin.internal.parser.node.ConcatNode;
 import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.node.RepeatNode;
 import ru.chechkin.internal.parser.node.RepeatableUnaryNode;
 import ru.chechkin.internal.parser.node.StringNode;
 import ru.chechkin.internal.parser.visitor.NodeVisitor;
 
 import java.util.Objects;
 
-public class RegexpMatcher implements Matcher, NodeVisitor<Boolean, RegexpMatcher.RegexpMatchingContext> {
+/**
+ * The original backtracking matcher over the syntax tree, kept as a test oracle; {@link Pattern}
+ * matches with automata. It cannot tell whether a prefix may still match, so it is not a
+ * {@link Matcher}.
+ */
+public class RegexpMatcher implements NodeVisitor<Boolean, RegexpMatcher.RegexpMatchingContext> {
 
 	@AllArgsConstructor
 	public static class RegexpMatchingContext {
@@ -30,7 +37,6 @@ public class RegexpMatcher implements Matcher, NodeVisitor<Boolean, RegexpMatche
 	}
 
 
-	@Override
 	public boolean match(String text) {
 		if (text == null) {
 			return false;
@@ -89,7 +95,10 @@ public class RegexpMatcher implements Matcher, NodeVisitor<Boolean, RegexpMatche
 				match = false;
 				break;
 			}
-			match = Objects.equals(lexeme.charAt(idx), state.text.charAt(state.currentIndex + idx));
+			if (!Objects.equals(lexeme.charAt(idx), state.text.charAt(state.currentIndex + idx))) {
+				match = false;
+				break;
+			}
 		}
 
 		state.currentIndex += lexeme.length();
@@ -97,6 +106,16 @@ public class RegexpMatcher implements Matcher, NodeVisitor<Boolean, RegexpMatche
 		return match;
 	}
 
+	@Override
+	public Boolean visitCharClassNode(CharClassNode charClassNode, RegexpMatchingContext state) {
+		boolean match = state.currentIndex < state.text.length()
+				&& charClassNode.getCharClass().contains(state.text.charAt(state.currentIndex));
+
+		state.currentIndex++;
+
+		return match;
+	}
+
 	@Override
 	public Boolean visitAtMostOnceUnaryNode(AtMostOnceUnaryNode atMostOnceUnaryNode, RegexpMatchingContext state) {
 		Node node = atMostOnceUnaryNode.getNode();
@@ -143,4 +162,20 @@ public class RegexpMatcher implements Matcher, NodeVisitor<Boolean, RegexpMatche
 		return true;
 	}
 
+	@Override
+	public Boolean visitRepeatNode(RepeatNode repeatNode, RegexpMatchingContext state) {
+		Node node = repeatNode.getNode();
+
+		int prevIndex = state.currentIndex;
+		int count = 0;
+
+		while ((repeatNode.isUnbounded() || count < repeatNode.getMax()) && match(node, state)) {
+			prevIndex = state.currentIndex;
+			count++;
+		}
+
+		state.currentIndex = prevIndex;
+		return count >= repeatNode.getMin();
+	}
+
 }
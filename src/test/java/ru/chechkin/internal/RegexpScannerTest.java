@@ -54,6 +54,30 @@ class RegexpScannerTest {
 						Token.builder()
 								.type(Token.Type.EOF)
 								.build()
+				)),
+				Arguments.of("[a-z_]+.\\d\\*", List.of(
+						Token.builder()
+								.type(Token.Type.CHAR_CLASS)
+								.lexeme("[a-z_]")
+								.build(),
+						Token.builder()
+								.type(Token.Type.PLUS)
+								.build(),
+						Token.builder()
+								.type(Token.Type.CHAR_CLASS)
+								.lexeme(".")
+								.build(),
+						Token.builder()
+								.type(Token.Type.CHAR_CLASS)
+								.lexeme("\\d")
+								.build(),
+						Token.builder()
+								.type(Token.Type.STRING)
+								.lexeme("*")
+								.build(),
+						Token.builder()
+								.type(Token.Type.EOF)
+								.build()
 				))
 		);
 	}
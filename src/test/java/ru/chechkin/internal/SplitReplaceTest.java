@@ -0,0 +1,77 @@
+package ru.chechkin.internal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The patterns are chosen so that leftmost‑longest and {@link java.util.regex}'s leftmost‑first
+ * matches coincide.
+ */
+class SplitReplaceTest {
+	private static final List<String> INPUTS = List.of(
+			"", "a", "b", "baaac", "aa,bb, cc,,", ",a, b,", "123abc45", "x", "  lead  trail  ", "a1b22c333");
+
+	@ParameterizedTest
+	@ValueSource(strings = {"a*", "\\,(\\s)*", "[0-9]+", "x", "(\\s)+", "b", "[a-c]"})
+	void testAgreesWithJdk(String pattern) {
+		Pattern compiled = Pattern.compile(pattern);
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(pattern);
+
+		for (String input : INPUTS) {
+			assertEquals(expected.matcher(input).replaceAll("<->"),
+					compiled.replaceAll(input, "<->", new StringBuilder()).toString(), pattern + " replaceAll on '" + input + "'");
+			assertEquals(expected.matcher(input).replaceFirst("#"),
+					compiled.replaceFirst(input, "#", new StringBuilder()).toString(), pattern + " replaceFirst on '" + input + "'");
+			assertEquals(List.of(expected.split(input)),
+					compiled.split(input).stream().map(CharSequence::toString).toList(), pattern + " split on '" + input + "'");
+		}
+	}
+
+	@Test
+	void testSplitReturnsViews() {
+		String input = "alpha, beta,gamma";
+		List<CharSequence> parts = Pattern.compile("\\,(\\s)*").split(input);
+
+		TextSlice beta = (TextSlice) parts.get(1);
+		assertEquals(7, beta.start());
+		assertEquals(11, beta.end());
+		assertEquals("et", beta.subSequence(1, 3).toString());
+		assertEquals('b', beta.charAt(0));
+	}
+
+	@Test
+	void testReplaceIntoCharBuffer() {
+		CharBuffer buffer = CharBuffer.allocate(64);
+		Pattern.compile("[0-9]+").replaceAll("card 4111 exp 12", "*", buffer);
+		buffer.flip();
+		assertEquals("card * exp *", buffer.toString());
+	}
+
+	@Test
+	void testAppendableFailureIsUnchecked() {
+		Writer failing = new Writer() {
+			@Override
+			public void write(char[] buffer, int offset, int length) throws IOException {
+				throw new IOException("disk full");
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		assertThrows(UncheckedIOException.class, () -> Pattern.compile("a").replaceAll("abc", "x", failing));
+	}
+}
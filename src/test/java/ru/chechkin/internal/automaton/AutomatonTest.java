@@ -0,0 +1,106 @@
+package ru.chechkin.internal.automaton;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.parser.RegexpParser;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the NFA simulation, the DFA and {@link Pattern#matcher()} against {@link java.util.regex}
+ * on every string over a small alphabet. The second argument is the same language in JDK syntax,
+ * which differs because a postfix operator here applies to the whole preceding STRING token.
+ */
+class AutomatonTest {
+
+	static Stream<Arguments> patterns() {
+		return Stream.of(
+				Arguments.of("(a*|c)c?", "(a*|c)c?"),
+				Arguments.of("a*a", "a*a"),
+				Arguments.of("(ab)+|c", "(ab)+|c"),
+				Arguments.of("ab+", "(ab)+"),
+				Arguments.of("[a-b]+c", "[a-b]+c"),
+				Arguments.of("[^a]*", "[^a]*"),
+				Arguments.of(".c.", ".c."),
+				Arguments.of("(a|b)*b(a|b)", "(a|b)*b(a|b)"),
+				Arguments.of("((a*)*|b)+c?", "((a*)*|b)+c?"),
+				Arguments.of("\\w\\d?", "\\w\\d?")
+		);
+	}
+
+	@ParameterizedTest
+	@MethodSource("patterns")
+	void testEnginesAgreeWithJdk(String pattern, String jdkPattern) {
+		Node root = new RegexpParser(new RegexpTokenizer(pattern)).parse();
+		Nfa nfa = NfaBuilder.build(root);
+		Dfa dfa = DfaBuilder.build(nfa);
+		assertNotNull(dfa);
+
+		NfaSimulator simulator = new NfaSimulator(nfa);
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(jdkPattern);
+		ru.chechkin.internal.Matcher matcher = Pattern.compile(pattern).matcher();
+
+		for (String input : inputs("abc1", 4)) {
+			boolean matches = expected.matcher(input).matches();
+			assertEquals(matches, simulator.matches(input), pattern + " NFA on '" + input + "'");
+			assertEquals(matches, dfa.matches(input), pattern + " DFA on '" + input + "'");
+			assertEquals(matches, matcher.match(input), pattern + " Pattern on '" + input + "'");
+		}
+	}
+
+	@ParameterizedTest
+	@MethodSource("patterns")
+	void testDfaBudgetFallsBackToNfa(String pattern, String jdkPattern) {
+		Node root = new RegexpParser(new RegexpTokenizer(pattern)).parse();
+		CompiledAutomaton automaton = CompiledAutomaton.compile(root, 1);
+		assertFalse(automaton.hasDfa());
+
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(jdkPattern);
+		AutomatonMatcher matcher = new AutomatonMatcher(automaton, ru.chechkin.internal.metrics.PatternMetrics.DISABLED);
+
+		for (String input : inputs("abc", 3)) {
+			assertEquals(expected.matcher(input).matches(), matcher.match(input), pattern + " on '" + input + "'");
+		}
+	}
+
+	static List<String> inputs(String alphabet, int maxLength) {
+		List<String> inputs = new ArrayList<>();
+		inputs.add("");
+		int from = 0;
+		for (int length = 1; length <= maxLength; length++) {
+			int to = inputs.size();
+			for (int idx = from; idx < to; idx++) {
+				for (char c : alphabet.toCharArray()) {
+					inputs.add(inputs.get(idx) + c);
+				}
+			}
+			from = to;
+		}
+		return inputs;
+	}
+
+	@Test
+	void testReaderHoldsOffHeapTableUntilClosed() {
+		Dfa dfa = DfaBuilder.build(NfaBuilder.build(new RegexpParser(new RegexpTokenizer("[a-c]*d")).parse())).toOffHeap();
+
+		Dfa.Reader reader = dfa.reader();
+		dfa.free();
+		assertTrue(dfa.isFreed());
+		int state = reader.next(reader.next(dfa.start(), 'a'), 'd');
+		assertTrue(dfa.isAccepting(state));
+
+		reader.close();
+		reader.close();
+		assertTrue(dfa.isFreed());
+		assertThrows(IllegalStateException.class, dfa::reader);
+	}
+}
@@ -0,0 +1,95 @@
+package ru.chechkin.internal.automaton;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import ru.chechkin.internal.Pattern;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FuzzyMatcherTest {
+
+	private static int levenshtein(String left, String right) {
+		int[] previous = new int[right.length() + 1];
+		int[] current = new int[right.length() + 1];
+		for (int j = 0; j <= right.length(); j++) {
+			previous[j] = j;
+		}
+		for (int i = 1; i <= left.length(); i++) {
+			current[0] = i;
+			for (int j = 1; j <= right.length(); j++) {
+				int substitution = previous[j - 1] + (left.charAt(i - 1) == right.charAt(j - 1) ? 0 : 1);
+				current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+			}
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+		return previous[right.length()];
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"ab", "a*b", "(ab)+", "a(b|c)a", "[ab]c?", "(a|b)*c", "abca"})
+	void testDistanceAgreesWithBruteForce(String pattern) {
+		int maxErrors = 2;
+		java.util.regex.Pattern language = java.util.regex.Pattern.compile(pattern);
+		List<String> words = AutomatonTest.inputs("abc", 6).stream()
+				.filter(word -> language.matcher(word).matches())
+				.toList();
+		FuzzyMatcher matcher = Pattern.compile(pattern).fuzzyMatcher(maxErrors);
+
+		for (String input : AutomatonTest.inputs("abc", 4)) {
+			int best = words.stream().mapToInt(word -> levenshtein(input, word)).min().orElse(Integer.MAX_VALUE);
+			int expected = best <= maxErrors ? best : -1;
+			assertEquals(expected, matcher.distance(input), pattern + " on '" + input + "'");
+			assertEquals(expected >= 0, matcher.match(input));
+		}
+	}
+
+	@Test
+	void testTypoTolerantRule() {
+		FuzzyMatcher matcher = Pattern.compile("(.)*connection\\ refused(.)*", Pattern.CASE_INSENSITIVE).fuzzyMatcher(2);
+		assertEquals(0, matcher.distance("ERROR: Connection refused by peer"));
+		assertEquals(1, matcher.distance("ERROR: Conection refused by peer"));
+		assertEquals(2, matcher.distance("ERROR: Connectoin refused by peer"));
+		assertEquals(-1, matcher.distance("ERROR: timeout"));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"ab", "a*b", "(ab)+", "a(b|c)a", "abca"})
+	void testPrefixViabilityAgreesWithBruteForce(String pattern) {
+		FuzzyMatcher matcher = Pattern.compile(pattern).fuzzyMatcher(1);
+		List<String> suffixes = AutomatonTest.inputs("abc", 4);
+
+		for (String prefix : AutomatonTest.inputs("abc", 5)) {
+			boolean viable = suffixes.stream().anyMatch(suffix -> matcher.distance(prefix + suffix) >= 0);
+			assertEquals(viable, matcher.canMatchPrefix(prefix), pattern + " on '" + prefix + "'");
+		}
+	}
+
+	@Test
+	void testLongInputIsLinear() {
+		FuzzyMatcher matcher = Pattern.compile("(.)*needle(.)*").fuzzyMatcher(3);
+		String haystack = "hay ".repeat(250_000) + "nedle" + " hay".repeat(250_000);
+		assertEquals(1, matcher.distance(haystack));
+	}
+
+	@Test
+	void testCountersAreUnrolled() {
+		FuzzyMatcher matcher = Pattern.compile("[ab]{17}").fuzzyMatcher(1);
+
+		assertEquals(0, matcher.distance("ab".repeat(8) + "a"));
+		assertEquals(1, matcher.distance("ab".repeat(8)));
+		assertEquals(1, matcher.distance("ab".repeat(8) + "c"));
+		assertEquals(-1, matcher.distance("ab".repeat(9) + "a"));
+		assertEquals(1, Pattern.compile("a{100}").fuzzyMatcher(1).distance("a".repeat(101)));
+	}
+
+	@Test
+	void testOversizedPatternsAreRejected() {
+		assertThrows(IllegalStateException.class, () -> Pattern.compile("[ab]{17,100000}").fuzzyMatcher(1));
+		assertThrows(IllegalArgumentException.class, () -> Pattern.compile("a").fuzzyMatcher(-1));
+	}
+}
@@ -0,0 +1,67 @@
+package ru.chechkin.internal.automaton;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.metrics.PatternMetrics;
+import ru.chechkin.internal.parser.RegexpParser;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalMatcherTest {
+
+	@ParameterizedTest
+	@ValueSource(strings = {"[ab]*", "(a|b)*c(a|b)*", "(ab|ba)*", "[abc]*a[abc]{2}", "a*b*c*", "[ab]*c[ab]{30,40}"})
+	void testRandomEditsAgreeWithFullMatch(String pattern) {
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(pattern);
+		CompiledAutomaton automaton = CompiledAutomaton.compile(new RegexpParser(new RegexpTokenizer(pattern)).parse());
+		Random random = new Random(pattern.hashCode());
+
+		StringBuilder document = new StringBuilder("ab".repeat(50));
+		IncrementalMatcher matcher = new IncrementalMatcher(automaton, PatternMetrics.DISABLED, document, 8);
+
+		for (int edit = 0; edit < 2_000; edit++) {
+			int offset = random.nextInt(document.length() + 1);
+			int removed = random.nextInt(Math.min(10, document.length() - offset) + 1);
+			StringBuilder inserted = new StringBuilder();
+			for (int idx = random.nextInt(10); idx > 0; idx--) {
+				inserted.append("abcc".charAt(random.nextInt(4)));
+			}
+
+			document.replace(offset, offset + removed, inserted.toString());
+			boolean result = matcher.edit(offset, removed, inserted);
+
+			assertEquals(document.toString(), matcher.text());
+			assertEquals(expected.matcher(document).matches(), result, pattern + " after edit " + edit + " on '" + document + "'");
+		}
+	}
+
+	@Test
+	void testRescanIsProportionalToEdit() {
+		String document = "ab".repeat(500_000) + "c" + "ab".repeat(500_000);
+		IncrementalMatcher matcher = Pattern.compile("[ab]*c[ab]*").incrementalMatcher(document);
+		assertTrue(matcher.matches());
+		assertEquals(document.length(), matcher.lastRescanLength());
+
+		assertTrue(matcher.edit(300_000, 2, "ba"));
+		assertTrue(matcher.lastRescanLength() <= 2 * IncrementalMatcher.DEFAULT_INTERVAL);
+
+		assertTrue(matcher.edit(1_900_000, 4, "abab"));
+		assertTrue(matcher.lastRescanLength() <= 2 * IncrementalMatcher.DEFAULT_INTERVAL);
+
+		assertFalse(matcher.edit(1_500_000, 0, "c"));
+		assertTrue(matcher.lastRescanLength() <= 2 * IncrementalMatcher.DEFAULT_INTERVAL);
+	}
+
+	@Test
+	void testDeadStateStopsScan() {
+		IncrementalMatcher matcher = Pattern.compile("a*").incrementalMatcher("a".repeat(100_000));
+		assertFalse(matcher.edit(10, 0, "b"));
+		assertEquals(11, matcher.lastRescanLength(), "scan stops right after entering the dead state");
+		assertTrue(matcher.edit(10, 1, ""));
+	}
+}
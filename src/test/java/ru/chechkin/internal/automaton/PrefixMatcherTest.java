@@ -0,0 +1,121 @@
+package ru.chechkin.internal.automaton;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import ru.chechkin.internal.Matcher;
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.ir.CompactRegexp;
+import ru.chechkin.internal.metrics.PatternMetrics;
+import ru.chechkin.internal.parser.RegexpParser;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixMatcherTest {
+
+	@ParameterizedTest
+	@ValueSource(strings = {"abc", "a*b", "(ab|c)+", "[ab]c?a", "(a|b)*c", "a[ab]{20,30}", "c(.)*"})
+	void testViabilityAgreesWithBruteForce(String pattern) {
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(pattern);
+		List<String> suffixes = AutomatonTest.inputs("abc", 4);
+		Pattern compiled = Pattern.compile(pattern);
+		Matcher matcher = compiled.matcher();
+		Matcher derivatives = compiled.derivativeMatcher();
+		Matcher exactFuzzy = compiled.fuzzyMatcher(0);
+
+		for (String prefix : AutomatonTest.inputs("abc", 4)) {
+			boolean viable = pattern.contains("{")
+					? !prefix.startsWith("b") && !prefix.startsWith("c") && !prefix.contains("c")
+					: suffixes.stream().anyMatch(suffix -> expected.matcher(prefix + suffix).matches());
+
+			assertEquals(viable, matcher.canMatchPrefix(prefix), pattern + " on '" + prefix + "'");
+			assertEquals(viable, derivatives.canMatchPrefix(prefix), pattern + " derivative on '" + prefix + "'");
+			assertEquals(viable, exactFuzzy.canMatchPrefix(prefix), pattern + " fuzzy on '" + prefix + "'");
+
+			PrefixMatcher streaming = compiled.prefixMatcher();
+			for (char c : prefix.toCharArray()) {
+				streaming.append(c);
+			}
+			assertEquals(viable, streaming.canMatch());
+			assertEquals(expected.matcher(prefix).matches(), streaming.matches(), pattern + " matches '" + prefix + "'");
+		}
+	}
+
+	@Test
+	void testRejectsWithoutReadingTheRest() {
+		PrefixMatcher matcher = Pattern.compile("GET(\\s)(.)*").prefixMatcher();
+		assertFalse(matcher.append("POST /index.html HTTP/1.1" + "x".repeat(100_000)));
+		assertEquals(1, matcher.consumed());
+
+		matcher.reset();
+		assertTrue(matcher.append("GE"));
+		assertFalse(matcher.matches());
+		assertTrue(matcher.hitEnd());
+	}
+
+	@Test
+	void testHitEndAndRequireEnd() {
+		PrefixMatcher exact = Pattern.compile("ab").prefixMatcher();
+		exact.append("ab");
+		assertTrue(exact.matches());
+		assertTrue(exact.requireEnd(), "more input loses the match");
+		assertTrue(exact.hitEnd());
+
+		PrefixMatcher open = Pattern.compile("ab(.)*").prefixMatcher();
+		open.append("abzzz");
+		assertTrue(open.matches());
+		assertFalse(open.requireEnd());
+		assertFalse(open.hitEnd(), "more input cannot change the outcome");
+	}
+
+	@Test
+	void testColdPatternIsMatchedOnNfaWithoutPromotion() {
+		TieredAutomaton tiered = tiered("GET(\\s)(.)*", task -> fail("not hot"), 1_000);
+		PrefixMatcher matcher = new PrefixMatcher(tiered, PatternMetrics.DISABLED);
+
+		assertFalse(matcher.append("POST"));
+		assertEquals(1, matcher.consumed());
+		matcher.reset();
+		assertTrue(matcher.append("GET /"));
+		assertTrue(matcher.matches());
+		assertFalse(matcher.hitEnd(), "(.)* accepts every continuation");
+		assertFalse(tiered.isPromoted());
+	}
+
+	@Test
+	void testNfaTierRejectsSetsThatCannotReachMatch() {
+		TieredAutomaton tiered = tiered("a[^\\w\\W]|b", task -> fail("not hot"), 1_000);
+		PrefixMatcher matcher = new PrefixMatcher(tiered, PatternMetrics.DISABLED);
+
+		assertFalse(matcher.append("a"), "the only thread left waits for an empty class");
+		assertFalse(tiered.isPromoted());
+	}
+
+	@Test
+	void testResetPicksUpThePromotedDfa() {
+		List<Runnable> queued = new ArrayList<>();
+		TieredAutomaton tiered = tiered("(a|b)*abb", queued::add, 1);
+		PrefixMatcher matcher = new PrefixMatcher(tiered, PatternMetrics.DISABLED);
+		assertTrue(matcher.append("abab"));
+		assertEquals(1, queued.size(), "one session reaches the threshold of one call");
+
+		queued.get(0).run();
+		assertTrue(matcher.append("b"), "a session keeps its tier");
+		assertTrue(matcher.matches());
+
+		matcher.reset();
+		assertTrue(matcher.append("aabb"));
+		assertTrue(matcher.matches());
+		assertTrue(tiered.isPromoted());
+	}
+
+	private static TieredAutomaton tiered(String pattern, Executor executor, int promoteCalls) {
+		CompactRegexp ir = CompactRegexp.from(new RegexpParser(new RegexpTokenizer(pattern)).parse());
+		return new TieredAutomaton(ir, PatternMetrics.DISABLED, false, executor, promoteCalls, 1 << 20);
+	}
+}
@@ -0,0 +1,147 @@
+package ru.chechkin.internal.automaton;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.metrics.PatternMetrics;
+import ru.chechkin.internal.parser.RegexpParser;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.parser.node.RepeatNode;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RepeatTest {
+
+	private static Node parse(String pattern) {
+		return new RegexpParser(new RegexpTokenizer(pattern)).parse();
+	}
+
+	@Test
+	void testParseBounds() {
+		RepeatNode exact = (RepeatNode) parse("a{3}");
+		assertEquals(3, exact.getMin());
+		assertEquals(3, exact.getMax());
+
+		RepeatNode open = (RepeatNode) parse("a{3,}");
+		assertEquals(3, open.getMin());
+		assertTrue(open.isUnbounded());
+
+		RepeatNode range = (RepeatNode) parse("(ab){0,500}");
+		assertEquals(0, range.getMin());
+		assertEquals(500, range.getMax());
+
+		assertThrows(IllegalStateException.class, () -> parse("a{5,3}"));
+		assertThrows(IllegalStateException.class, () -> parse("{3}"));
+	}
+
+	@ParameterizedTest
+	@CsvSource({
+			"'a{2,3}', 'a{2,3}'",
+			"'(ab){2,4}c?', '(ab){2,4}c?'",
+			"'[ab]{20,30}c', '[ab]{20,30}c'",
+			"'a{0,40}b', 'a{0,40}b'",
+			"'[^c]{18,}c', '[^c]{18,}c'",
+			"'(a|b)*a[ab]{17}', '(a|b)*a[ab]{17}'",
+			"'a{70,130}', 'a{70,130}'",
+			"'a{0}b', 'b'",
+			"'(a|b){20,30}c', '(a|b){20,30}c'",
+			"'(a|[bc]){18,}', '(a|[bc]){18,}'",
+			"'(ab){17,30}c', '(ab){17,30}c'",
+			"'(ab){0,40}', '(ab){0,40}'",
+			"'([ab]a){18,}', '([ab]a){18,}'",
+			"'(a[ab]){20,65}', '(a[ab]){20,65}'",
+			"'b(a|b)a{17}', 'b[ab]a{17}'",
+	})
+	void testAgreesWithJdk(String pattern, String jdkPattern) {
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(jdkPattern);
+		ru.chechkin.internal.Matcher matcher = Pattern.compile(pattern).matcher();
+
+		for (String input : inputs()) {
+			assertEquals(expected.matcher(input).matches(), matcher.match(input), pattern + " on '" + input + "'");
+		}
+	}
+
+	@Test
+	void testCounterKeepsAutomatonSizeConstant() {
+		int small = NfaBuilder.build(parse("x[a-z]{3,500}y")).stateCount();
+		int large = NfaBuilder.build(parse("x[a-z]{3,5000000}y")).stateCount();
+		int unbounded = NfaBuilder.build(parse("x[a-z]{3000,}y")).stateCount();
+
+		assertEquals(small, large);
+		assertEquals(small, unbounded);
+	}
+
+	@Test
+	void testAlternationOfSingleCharactersUsesCounter() {
+		int small = NfaBuilder.build(parse("x(a|b|[c-e]){3,50}y")).stateCount();
+		int large = NfaBuilder.build(parse("x(a|b|[c-e]){3,50000}y")).stateCount();
+
+		assertEquals(small, large);
+		assertEquals(1, NfaBuilder.build(parse("(a|b){3,50000}")).counterCount());
+		assertEquals(0, NfaBuilder.build(parse("(ab|c){3,50}")).counterCount());
+	}
+
+	@Test
+	void testFixedWidthBodyUsesCounter() {
+		int small = NfaBuilder.build(parse("x(ab){3,500}y")).stateCount();
+		int large = NfaBuilder.build(parse("x(ab){3,5000000}y")).stateCount();
+
+		assertEquals(small, large);
+		assertEquals(1, NfaBuilder.build(parse("(a[bc](d|e)){20}")).counterCount());
+		assertEquals(3, NfaBuilder.build(parse("(a[bc](d|e)){20}")).counterWidth(0));
+	}
+
+	@Test
+	void testSmallRepeatsStayDeterministic() {
+		assertTrue(CompiledAutomaton.compile(parse("(ab){2,5}[0-9]{4}")).hasDfa());
+		assertTrue(CompiledAutomaton.compile(parse("[0-9]{4,100}")).hasDfa());
+		assertTrue(SearchAutomaton.compile(parse("[ab]{17}c")).hasDfa());
+		assertFalse(CompiledAutomaton.compile(parse("[0-9]{4,100000}")).hasDfa());
+	}
+
+	@ParameterizedTest
+	@CsvSource({
+			"'[ab]{17}', '[ab]{17}'",
+			"'(a|b){20,30}c', '(a|b){20,30}c'",
+			"'a[^c]{18,}c', 'a[^c]{18,}c'",
+			"'(ab){17,20}c', '(ab){17,20}c'",
+			"'(a[ab]){18,}', '(a[ab]){18,}'",
+	})
+	void testUnrolledCountersAgreeWithJdk(String pattern, String jdkPattern) {
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(jdkPattern);
+		CompiledAutomaton automaton = CompiledAutomaton.compile(parse(pattern));
+		assertTrue(automaton.hasDfa(), pattern);
+		AutomatonMatcher matcher = new AutomatonMatcher(automaton, PatternMetrics.DISABLED);
+
+		for (String input : inputs()) {
+			assertEquals(expected.matcher(input).matches(), matcher.match(input), pattern + " on '" + input + "'");
+		}
+	}
+
+	@Test
+	void testHugeUnrollIsRejected() {
+		assertThrows(IllegalStateException.class, () -> NfaBuilder.build(parse("(abc|def){100000,2000000}")));
+		assertThrows(IllegalStateException.class, () -> Pattern.compile("(abc|def){100000,2000000}"));
+		assertThrows(IllegalStateException.class, () -> Pattern.compile("((abc|def){1000}){1000}"));
+		assertThrows(IllegalStateException.class, () -> Pattern.compile("(a|b(ab|c){20,}){100000}"));
+		assertDoesNotThrow(() -> Pattern.compile("(ab){100000,2000000}"));
+	}
+
+	private static List<String> inputs() {
+		List<String> inputs = new ArrayList<>(AutomatonTest.inputs("abc", 4));
+		for (int length : new int[] {15, 16, 17, 18, 19, 20, 21, 29, 30, 31, 40, 41, 63, 64, 65, 69, 70, 71, 129, 130, 131}) {
+			inputs.add("a".repeat(length));
+			inputs.add("a".repeat(length) + "b");
+			inputs.add("a".repeat(length) + "c");
+			inputs.add("ab".repeat(length / 2) + "c");
+			inputs.add("b" + "a".repeat(length));
+			inputs.add("ba".repeat(length / 2) + "bb");
+		}
+		return inputs;
+	}
+}
@@ -0,0 +1,132 @@
+package ru.chechkin.internal.automaton;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import ru.chechkin.internal.MatchSpan;
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.Searcher;
+import ru.chechkin.internal.metrics.PatternMetrics;
+import ru.chechkin.internal.parser.RegexpParser;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchTest {
+
+	private static MatchSpan leftmostLongest(java.util.regex.Pattern pattern, String text, int from) {
+		for (int start = from; start <= text.length(); start++) {
+			for (int end = text.length(); end >= start; end--) {
+				if (pattern.matcher(text.substring(start, end)).matches()) {
+					return new MatchSpan(start, end);
+				}
+			}
+		}
+		return null;
+	}
+
+	private static void assertAgreesWithOracle(String pattern, Searcher searcher, List<String> inputs) {
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(pattern);
+		for (String input : inputs) {
+			for (int from = 0; from <= input.length(); from++) {
+				assertEquals(leftmostLongest(expected, input, from), searcher.find(input, from),
+						pattern + " on '" + input + "' from " + from);
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"ab", "a*", "a+b", "(a|ab)(c|bcd)", "b*a?", "(ab|a)*b", "(a|b)?c*", "[ab]c?", "(a|b)*a(a|b)"})
+	void testDfaAgreesWithOracle(String pattern) {
+		SearchAutomaton automaton = SearchAutomaton.compile(new RegexpParser(new RegexpTokenizer(pattern)).parse());
+		assertTrue(automaton.hasDfa());
+
+		Searcher searcher = new DfaSearcher(automaton.getForwardDfa(), automaton.getReverseDfa());
+		assertAgreesWithOracle(pattern, searcher, AutomatonTest.inputs("abcd", 5));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"ab", "a*", "(a|ab)(c|bcd)", "(ab|a)*b", "(a|b)?c*", "(a|b)*a(a|b)",
+			"a{2,3}", "[ab]{1,3}c", "b[ab]{1,2}|ca", "[ab]{2,}c?", "a{0,2}b", "(aaa|a)[ab]{2,3}c", "c?[ab]{2,}d|ab", "(abc|b)[bc]{0,1}"})
+	void testNfaAgreesWithOracle(String pattern) {
+		Nfa nfa = NfaBuilder.build(new RegexpParser(new RegexpTokenizer(pattern)).parse());
+		assertAgreesWithOracle(pattern, new NfaSearcher(nfa), AutomatonTest.inputs("abcd", 5));
+	}
+
+	@Test
+	void testCounterPatternFallsBackToNfa() {
+		String pattern = "b[ab]{17,20}c";
+		Pattern compiled = Pattern.compile(pattern);
+		assertFalse(SearchAutomaton.compile(new RegexpParser(new RegexpTokenizer(pattern)).parse()).hasDfa());
+
+		String text = "xx" + "b".repeat(25) + "cab";
+		assertEquals(new MatchSpan(6, 28), compiled.searcher().find(text, 0));
+		assertNull(compiled.searcher().find(text, 10));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"(aaa|a)[ab]{2,17}c", "(ab|b)[ab]{1,17}(c|ab)", "c?[ab]{17,}(ca|b)", "[abc]{0,17}c", "b[ab]{3,18}|a{17,}",
+			"(ab){0,17}c", "(a[bc]){1,17}a", "b(ba){17,}|(ab){2,20}", "(abc){0,20}(ab)?"})
+	void testNfaCountersAgreeWithOracle(String pattern) {
+		Nfa nfa = NfaBuilder.build(new RegexpParser(new RegexpTokenizer(pattern)).parse());
+		assertTrue(nfa.counterCount() > 0);
+
+		Random random = new Random(pattern.hashCode());
+		List<String> inputs = new ArrayList<>();
+		for (int idx = 0; idx < 100; idx++) {
+			StringBuilder input = new StringBuilder();
+			for (int length = random.nextInt(25); length > 0; length--) {
+				input.append("aaabbc".charAt(random.nextInt(6)));
+			}
+			inputs.add(input.toString());
+		}
+		assertAgreesWithOracle(pattern, new NfaSearcher(nfa), inputs);
+	}
+
+	@Test
+	void testUnboundedCounterKeepsEarliestStart() {
+		Nfa nfa = NfaBuilder.build(new RegexpParser(new RegexpTokenizer("a{17,}|b[a]{20}c")).parse());
+		assertEquals(new MatchSpan(1, 31), new NfaSearcher(nfa).find("b" + "a".repeat(30), 0));
+		assertEquals(new MatchSpan(0, 22), new NfaSearcher(nfa).find("b" + "a".repeat(20) + "c", 0));
+	}
+
+	@Test
+	@Timeout(10)
+	void testNfaSearchIsLinear() {
+		String pattern = "[ab]{20,100000}c|d";
+		Pattern compiled = Pattern.compile(pattern);
+		assertFalse(SearchAutomaton.compile(new RegexpParser(new RegexpTokenizer(pattern)).parse()).hasDfa());
+
+		String text = "ab".repeat(40_000) + "d";
+		assertEquals(new MatchSpan(text.length() - 1, text.length()), compiled.searcher().find(text, 0));
+
+		String matches = ("ab".repeat(1_000) + "d").repeat(20) + "ab";
+		assertEquals(21, compiled.split(matches).size());
+	}
+
+	@Test
+	void testFallbackIsCounted() {
+		Pattern compiled = Pattern.compile("a{20}");
+		PatternMetrics metrics = compiled.metrics();
+		compiled.searcher().find("aaa", 0);
+		assertEquals(metrics.isEnabled() ? 1 : 0, metrics.getFallbacks());
+	}
+
+	@Test
+	void testEmptyMatchAtEnd() {
+		assertEquals(new MatchSpan(3, 3), Pattern.compile("a*").searcher().find("bbb", 3));
+		assertThrows(IndexOutOfBoundsException.class, () -> Pattern.compile("a").searcher().find("bbb", 4));
+	}
+
+	@Test
+	void testLongTextIsLinear() {
+		String text = "a".repeat(200_000) + "b";
+		assertEquals(new MatchSpan(0, text.length()), Pattern.compile("a*b").searcher().find(text, 0));
+		assertEquals(new MatchSpan(text.length() - 1, text.length()), Pattern.compile("b").searcher().find(text, 0));
+	}
+}
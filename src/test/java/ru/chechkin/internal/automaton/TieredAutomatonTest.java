@@ -0,0 +1,117 @@
+package ru.chechkin.internal.automaton;
+
+import org.junit.jupiter.api.Test;
+import ru.chechkin.internal.Matcher;
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.ir.CompactRegexp;
+import ru.chechkin.internal.metrics.PatternMetrics;
+import ru.chechkin.internal.parser.RegexpParser;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TieredAutomatonTest {
+
+	private static CompactRegexp parse(String pattern) {
+		return CompactRegexp.from(new RegexpParser(new RegexpTokenizer(pattern)).parse());
+	}
+
+	@Test
+	void testColdPatternStaysOnNfa() {
+		TieredAutomaton tiered = new TieredAutomaton(parse("(a|b)*abb"), PatternMetrics.DISABLED, false, Runnable::run, 10, 1_000);
+		Matcher matcher = new TieredMatcher(tiered, PatternMetrics.DISABLED);
+
+		for (int idx = 0; idx < 9; idx++) {
+			assertTrue(matcher.match("ababb"));
+		}
+
+		assertFalse(tiered.isPromoted());
+		assertFalse(tiered.current().hasDfa());
+		assertEquals(9, tiered.interpretedCalls());
+		assertEquals(45, tiered.interpretedChars());
+	}
+
+	@Test
+	void testHotPatternIsPromotedByCallsOrChars() {
+		PatternMetrics metrics = PatternMetrics.collecting();
+		TieredAutomaton byCalls = new TieredAutomaton(parse("(a|b)*abb"), metrics, false, Runnable::run, 10, 1_000);
+		Matcher matcher = new TieredMatcher(byCalls, metrics);
+		for (int idx = 0; idx < 10; idx++) {
+			assertFalse(matcher.match("abab"));
+		}
+		assertTrue(byCalls.isPromoted());
+		assertTrue(byCalls.current().hasDfa());
+		assertTrue(matcher.match("aabb"));
+		assertEquals(10, byCalls.interpretedCalls(), "nothing is counted after promotion");
+		assertEquals(1, metrics.getPromotions());
+
+		TieredAutomaton byChars = new TieredAutomaton(parse("a*"), PatternMetrics.DISABLED, false, Runnable::run, 10, 1_000);
+		assertTrue(new TieredMatcher(byChars, PatternMetrics.DISABLED).match("a".repeat(1_000)));
+		assertTrue(byChars.isPromoted());
+	}
+
+	@Test
+	void testPromotionRunsOnExecutor() {
+		List<Runnable> queued = new ArrayList<>();
+		TieredAutomaton tiered = new TieredAutomaton(parse("[ab]*c"), PatternMetrics.DISABLED, false, queued::add, 1, 1_000);
+		Matcher matcher = new TieredMatcher(tiered, PatternMetrics.DISABLED);
+
+		assertTrue(matcher.match("abc"));
+		assertTrue(matcher.match("bac"));
+		assertEquals(1, queued.size(), "promotion is scheduled once");
+		assertFalse(tiered.isPromoted());
+
+		queued.get(0).run();
+		assertTrue(tiered.isPromoted());
+		assertTrue(matcher.match("aaac"));
+		assertFalse(matcher.match("aaa"));
+	}
+
+	@Test
+	void testPatternOverDfaBudgetKeepsSimulating() {
+		PatternMetrics metrics = PatternMetrics.collecting();
+		TieredAutomaton tiered = new TieredAutomaton(parse("[ab]*a[ab]{20}"), metrics, false, Runnable::run, 1, 1_000);
+		Matcher matcher = new TieredMatcher(tiered, metrics);
+
+		assertTrue(matcher.match("a" + "b".repeat(20)));
+		assertTrue(tiered.isPromoted());
+		assertFalse(tiered.current().hasDfa());
+		assertFalse(matcher.match("b".repeat(21)));
+		assertEquals(1, metrics.getFallbacks());
+	}
+
+	@Test
+	void testCompiledPromotesOnCallingThread() {
+		TieredAutomaton tiered = new TieredAutomaton(parse("ab*"), PatternMetrics.DISABLED, false, task -> fail("not hot"), 1_000, 1_000);
+		assertTrue(tiered.compiled().hasDfa());
+		assertTrue(tiered.isPromoted());
+	}
+
+	@Test
+	void testPatternMatcherAgreesAcrossPromotion() {
+		String regexp = "(ab|ba)*c?";
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(regexp);
+		Pattern pattern = Pattern.compile(regexp);
+		Matcher matcher = pattern.matcher();
+
+		for (int round = 0; round < 3; round++) {
+			for (String input : AutomatonTest.inputs("abc", 6)) {
+				assertEquals(expected.matcher(input).matches(), matcher.match(input), input);
+			}
+		}
+	}
+
+	@Test
+	void testClosedPatternIsNotPromoted() {
+		List<Runnable> queued = new ArrayList<>();
+		TieredAutomaton tiered = new TieredAutomaton(parse("a+"), PatternMetrics.DISABLED, true, queued::add, 1, 1_000);
+		assertTrue(new TieredMatcher(tiered, PatternMetrics.DISABLED).match("aa"));
+
+		tiered.free();
+		queued.get(0).run();
+		assertFalse(tiered.isPromoted());
+	}
+}
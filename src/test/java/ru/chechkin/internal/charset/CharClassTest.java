@@ -0,0 +1,71 @@
+package ru.chechkin.internal.charset;
+
+import org.junit.jupiter.api.Test;
+import ru.chechkin.internal.scanner.CharClassSyntax;
+import ru.chechkin.internal.scanner.RegexpScanner;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CharClassTest {
+
+	@Test
+	void testBuilderMergesOverlappingAndAdjacentRanges() {
+		CharClass charClass = CharClass.builder()
+				.addRange('m', 'z')
+				.addRange('a', 'f')
+				.addRange('g', 'k')
+				.addChar('一')
+				.addRange('e', 'h')
+				.build();
+
+		assertEquals(3, charClass.rangeCount());
+		assertEquals("[a-km-z\\u4E00]", charClass.toString());
+		assertTrue(charClass.contains('j'));
+		assertFalse(charClass.contains('l'));
+		assertTrue(charClass.contains('一'));
+		assertFalse(charClass.contains('丁'));
+	}
+
+	@Test
+	void testComplement() {
+		CharClass digits = CharClass.DIGIT;
+		CharClass notDigits = digits.complement();
+
+		for (char c : new char[] {'0', '5', '9', 'a', '/', ':', '￿', '\0'}) {
+			assertNotEquals(digits.contains(c), notDigits.contains(c), "char " + (int) c);
+		}
+		assertEquals(CharClass.ANY, digits.union(notDigits));
+		assertEquals(digits, notDigits.complement());
+	}
+
+	@Test
+	void testSyntax() {
+		assertEquals(CharClass.ANY, CharClassSyntax.parse("."));
+		assertEquals(CharClass.WORD, CharClassSyntax.parse("[a-z0-9_A-Z]"));
+		assertEquals(CharClass.WORD, CharClassSyntax.parse("\\w"));
+		assertEquals(CharClass.of('-').union(CharClass.of('a')), CharClassSyntax.parse("[a-]"));
+		assertEquals(CharClass.of(']'), CharClassSyntax.parse("[\\]]"));
+		assertEquals(CharClass.range('a', 'c').complement(), CharClassSyntax.parse("[^a-c]"));
+		assertThrows(RegexpScanner.ScannerException.class, () -> CharClassSyntax.parse("[z-a]"));
+	}
+
+	@Test
+	void testPartitionCompressesAlphabet() {
+		AlphabetPartition partition = AlphabetPartition.of(List.of(
+				CharClassSyntax.parse("[a-z0-9_]"),
+				CharClass.of('x'),
+				CharClass.of('y')
+		));
+
+		// [a-wz0-9_], x, y and everything else
+		assertEquals(4, partition.classCount());
+		assertEquals(partition.classOf('a'), partition.classOf('_'));
+		assertEquals(partition.classOf('a'), partition.classOf('z'));
+		assertNotEquals(partition.classOf('a'), partition.classOf('x'));
+		assertNotEquals(partition.classOf('x'), partition.classOf('y'));
+		assertEquals(partition.classOf('-'), partition.classOf('一'));
+		assertEquals(partition.classOf('-'), partition.classOf('￿'));
+	}
+}
@@ -0,0 +1,107 @@
+package ru.chechkin.internal.derivative;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import ru.chechkin.internal.Matcher;
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.parser.RegexpParser;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DerivativeMatcherTest {
+
+	private static Node parse(String pattern) {
+		return new RegexpParser(new RegexpTokenizer(pattern)).parse();
+	}
+
+	private static List<String> inputs(String alphabet, int maxLength) {
+		List<String> inputs = new ArrayList<>();
+		inputs.add("");
+		int from = 0;
+		for (int length = 1; length <= maxLength; length++) {
+			int to = inputs.size();
+			for (int idx = from; idx < to; idx++) {
+				for (char c : alphabet.toCharArray()) {
+					inputs.add(inputs.get(idx) + c);
+				}
+			}
+			from = to;
+		}
+		return inputs;
+	}
+
+	@ParameterizedTest
+	@CsvSource({
+			"'(a*|c)c?', '(a*|c)c?'",
+			"'ab+', '(ab)+'",
+			"'((a*)*|b)+c?', '((a*)*|b)+c?'",
+			"'(a|b)*b(a|b)', '(a|b)*b(a|b)'",
+			"'[^a]*', '[^a]*'",
+			"'(ab){2,4}c?', '(ab){2,4}c?'",
+			"'[ab]{2,}c', '[ab]{2,}c'",
+			"'(a?){3}b', '(a?){3}b'",
+			"'\\w\\d?', '\\w\\d?'",
+	})
+	void testAgreesWithJdk(String pattern, String jdkPattern) {
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(jdkPattern);
+		Matcher matcher = new DerivativeMatcher(parse(pattern));
+		Matcher tiny = new DerivativeMatcher(parse(pattern), 2);
+
+		for (String input : inputs("abc1", 5)) {
+			boolean matches = expected.matcher(input).matches();
+			assertEquals(matches, matcher.match(input), pattern + " on '" + input + "'");
+			assertEquals(matches, tiny.match(input), pattern + " with a 2-state cache on '" + input + "'");
+		}
+	}
+
+	@Test
+	void testDerivativesAreHashConsed() {
+		TermFactory terms = new TermFactory();
+		Term left = terms.fromNode(parse("(a|b|a)*c"));
+		Term right = terms.fromNode(parse("(b|a)*c"));
+		assertSame(left, right);
+
+		Term derivative = terms.derivative(left, 'a');
+		assertSame(left, derivative, "(a|b)*c by a is itself");
+		assertSame(terms.epsilon, terms.derivative(derivative, 'c'));
+		assertSame(terms.empty, terms.derivative(terms.epsilon, 'c'));
+	}
+
+	@Test
+	void testDfaIsBuiltOnlyWhereVisited() {
+		DerivativeMatcher matcher = new DerivativeMatcher(parse("(a|b)*a[ab]{14}"));
+		assertTrue(matcher.match("b".repeat(100) + "a" + "b".repeat(14)));
+		assertTrue(matcher.cachedStates() < 100, "an eager DFA would have 2^15 states");
+	}
+
+	@Test
+	void testLargeCountsAreNotUnrolled() {
+		DerivativeMatcher matcher = new DerivativeMatcher(parse("(ab){1000,2000}c"));
+		assertTrue(matcher.match("ab".repeat(1500) + "c"));
+		assertFalse(matcher.match("ab".repeat(999) + "c"));
+		assertFalse(matcher.match("ab".repeat(2001) + "c"));
+	}
+
+	@Test
+	void testCacheResetKeepsResults() {
+		DerivativeMatcher matcher = new DerivativeMatcher(parse("(a|b)*a[ab]{10}"), 64);
+		Random random = new Random(1);
+		StringBuilder text = new StringBuilder();
+		for (int idx = 0; idx < 10_000; idx++) {
+			text.append(random.nextBoolean() ? 'a' : 'b');
+		}
+		String input = text.append("a").append("b".repeat(10)).toString();
+		assertTrue(matcher.match(input));
+		assertTrue(matcher.cacheResets() > 0);
+		// the 2^11 derivatives would otherwise all stay interned
+		assertTrue(matcher.internedTerms() < 1_000, "interned " + matcher.internedTerms());
+		assertTrue(Pattern.compile("(a|b)*a[ab]{10}").derivativeMatcher().match(input));
+	}
+}
@@ -0,0 +1,101 @@
+package ru.chechkin.internal.index;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.parser.RegexpParser;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrigramIndexTest {
+
+	private static String plan(String pattern) {
+		return TrigramQueryPlanner.plan(new RegexpParser(new RegexpTokenizer(pattern)).parse()).toString();
+	}
+
+	@ParameterizedTest
+	@CsvSource(delimiter = ';', value = {
+			"abcd; \"abc\" AND \"bcd\"",
+			"ab; ALL",
+			"a(bc|de)f; (\"abc\" AND \"bcf\") OR (\"ade\" AND \"def\")",
+			"[ab]cd; \"acd\" OR \"bcd\"",
+			"abc*def; \"def\"",
+			"(abc)+x*; \"abc\"",
+			"abc.*xyz; \"abc\" AND \"xyz\"",
+			"(abc|x*)yz; ALL",
+			"x{0,3}abcd; \"abc\" AND \"bcd\"",
+	})
+	void testPlan(String pattern, String expected) {
+		assertEquals(expected, plan(pattern));
+	}
+
+	@Test
+	void testLargeClassesFallBackToQuery() {
+		assertEquals("\"abc\"", plan("..abc"));
+		assertTrue(plan("abc[0-9][0-9][0-9]xyz").startsWith("\"abc\" AND (\"bc0\" OR "));
+		assertEquals("\"abc\" AND (\"xab\" OR \"yab\")", plan("[xy]abc"));
+	}
+
+	private static List<String> corpus() {
+		Random random = new Random(7);
+		List<String> documents = new ArrayList<>();
+		for (int id = 0; id < 500; id++) {
+			StringBuilder document = new StringBuilder();
+			for (int idx = random.nextInt(60); idx > 0; idx--) {
+				document.append("abcdexyz ".charAt(random.nextInt(9)));
+			}
+			documents.add(document.toString());
+		}
+		return documents;
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"abc", "a(bc|de)", "[ab]cd", "x+yz", "de(x)?y", "(abc|xyz)[ab]{2,3}", "e.*ab", "zz", "q"})
+	void testSearchAgreesWithFullScan(String pattern) {
+		List<String> documents = corpus();
+		IndexedCorpus corpus = IndexedCorpus.of(documents);
+		java.util.regex.Pattern expected = java.util.regex.Pattern.compile(pattern);
+
+		List<Integer> fullScan = new ArrayList<>();
+		for (int id = 0; id < documents.size(); id++) {
+			if (expected.matcher(documents.get(id)).find()) {
+				fullScan.add(id);
+			}
+		}
+
+		Pattern compiled = Pattern.compile(pattern);
+		assertEquals(fullScan, corpus.search(compiled));
+		assertTrue(corpus.candidates(compiled).length >= fullScan.size());
+	}
+
+	@Test
+	void testIndexPrunesCandidates() {
+		IndexedCorpus corpus = IndexedCorpus.of(corpus());
+		assertTrue(corpus.candidates(Pattern.compile("abcde")).length < corpus.index().documentCount() / 10);
+		assertEquals(0, corpus.candidates(Pattern.compile("qqq")).length);
+	}
+
+	@Test
+	void testMappedIndexMatchesInMemory(@TempDir Path directory) throws IOException {
+		IndexedCorpus corpus = IndexedCorpus.of(corpus());
+		Path file = directory.resolve("corpus.tri");
+		corpus.index().writeTo(file);
+
+		TrigramIndex mapped = TrigramIndex.map(file);
+		assertEquals(corpus.index().documentCount(), mapped.documentCount());
+		assertEquals(corpus.index().trigramCount(), mapped.trigramCount());
+		for (String trigram : List.of("abc", "xyz", "e a", "qqq")) {
+			assertArrayEquals(corpus.index().postings(trigram), mapped.postings(trigram), trigram);
+		}
+	}
+}
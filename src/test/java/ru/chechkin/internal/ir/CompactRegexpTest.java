@@ -0,0 +1,75 @@
+package ru.chechkin.internal.ir;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import ru.chechkin.internal.IrMatcher;
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.RegexpMatcher;
+import ru.chechkin.internal.parser.RegexpParser;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.scanner.RegexpScanner;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactRegexpTest {
+
+	private static final List<String> INPUTS = List.of(
+			"", "a", "aa", "aaa", "ab", "abc", "abcabc", "c", "ac", "cc", "qwerty", "qwertyqwerty", "xb"
+	);
+
+	private static Node parse(String pattern) {
+		return new RegexpParser(new RegexpScanner(pattern).getTokens()).parse();
+	}
+
+	@Test
+	void testLayout() {
+		CompactRegexp ir = CompactRegexp.from(parse("(ab|c)*d"));
+
+		assertEquals(Opcode.CONCAT, ir.opcode(CompactRegexp.ROOT));
+		assertEquals(2, ir.childCount(CompactRegexp.ROOT));
+		assertEquals(ir.codeLength(), ir.size(CompactRegexp.ROOT));
+
+		int star = ir.firstChild(CompactRegexp.ROOT);
+		assertEquals(Opcode.REPEATABLE, ir.opcode(star));
+
+		int altern = ir.firstChild(star);
+		assertEquals(Opcode.ALTERN, ir.opcode(altern));
+		int ab = ir.firstChild(altern);
+		assertEquals("ab", ir.literal(ab));
+		assertEquals("c", ir.literal(ir.nextSibling(ab)));
+
+		int d = ir.nextSibling(star);
+		assertEquals("d", ir.literal(d));
+		assertEquals("abcd", new String(new char[] {
+				ir.literalAt(ab, 0), ir.literalAt(ab, 1), ir.literalAt(ir.nextSibling(ab), 0), ir.literalAt(d, 0)
+		}));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"a", "abc", "a*", "(a*|c)c?", "(abc)+", "a?b*c+", "qwerty+|(a|b|c)*"})
+	void testIrMatcherAgreesWithTreeMatcher(String pattern) {
+		Node root = parse(pattern);
+		CompactRegexp ir = CompactRegexp.from(root);
+
+		RegexpMatcher treeMatcher = new RegexpMatcher(root);
+		IrMatcher irMatcher = new IrMatcher(ir);
+		RegexpMatcher roundTripMatcher = new RegexpMatcher(ir.toNode());
+
+		for (String input : INPUTS) {
+			boolean expected = treeMatcher.match(input);
+			assertEquals(expected, irMatcher.match(input), pattern + " on '" + input + "'");
+			assertEquals(expected, roundTripMatcher.match(input), pattern + " on '" + input + "'");
+		}
+	}
+
+	@Test
+	void testMemoryFootprintShowsSaving() {
+		MemoryFootprint footprint = Pattern.compile("(alpha|beta|gamma|delta)+(x|y)*z?").memoryFootprint();
+
+		assertTrue(footprint.compactBytes() > 0);
+		assertTrue(footprint.treeBytes() > footprint.compactBytes(), footprint.toString());
+	}
+}
@@ -0,0 +1,146 @@
+package ru.chechkin.internal.lexer;
+
+import org.junit.jupiter.api.Test;
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.scanner.RegexpScanner;
+import ru.chechkin.internal.scanner.Token;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LexerTest {
+
+	private static List<String> render(Lexer lexer, String input) {
+		return lexer.tokenize(input).stream()
+				.map(token -> token.name() + ":" + token.text(input))
+				.toList();
+	}
+
+	@Test
+	void testLongestMatchThenEarliestRule() {
+		Lexer lexer = Lexer.builder()
+				.rule("IF", "if")
+				.rule("IDENT", "[a-z]\\w*")
+				.rule("NUMBER", "\\d+(\\.\\d+)?")
+				.rule("OP", "[+*=]|\\=\\=")
+				.rule("SPACE", "\\s+")
+				.build();
+
+		assertEquals(
+				List.of("IF:if", "SPACE: ", "IDENT:iffy", "OP:==", "NUMBER:3.25", "OP:+", "IDENT:x1"),
+				render(lexer, "if iffy==3.25+x1")
+		);
+	}
+
+	@Test
+	void testUnrecognizedInput() {
+		Lexer lexer = Lexer.builder().rule("A", "a+").build();
+		assertEquals(List.of("A:aa"), render(lexer, "aa"));
+
+		RegexpScanner.ScannerException error = assertThrows(RegexpScanner.ScannerException.class, () -> lexer.tokenize("aab"));
+		assertEquals("Unrecognized character: 'b' at position 2", error.getMessage());
+	}
+
+	@Test
+	void testEmptyMatchesProduceNoTokens() {
+		Lexer lexer = Lexer.builder().rule("AS", "a*").rule("B", "b").build();
+		assertEquals(List.of("AS:aa", "B:b", "AS:a"), render(lexer, "aaba"));
+		assertThrows(RegexpScanner.ScannerException.class, () -> lexer.tokenize("c"));
+	}
+
+	@Test
+	void testFailedRunsAreNotRepeated() {
+		Lexer lexer = Lexer.builder().rule("A", "a").rule("AB", "a(a)*b").build();
+		String input = "a".repeat(200_000);
+
+		List<TokenSpan> tokens = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> lexer.tokenize(input));
+		assertEquals(200_000, tokens.size());
+		assertEquals(List.of("AB:aaaab"), render(lexer, "aaaab"));
+		assertEquals(List.of("AB:aab", "A:a", "A:a"), render(lexer, "aabaa"));
+	}
+
+	@Test
+	void testMemoAgreesWithBruteForce() {
+		List<String> rules = List.of("a", "a(a)*b", "ab(c)?", "(b|c)(a)*", "c");
+		Lexer.Builder builder = Lexer.builder();
+		for (String rule : rules) {
+			builder.rule(rule, rule);
+		}
+		Lexer lexer = builder.build();
+		List<java.util.regex.Pattern> expected = rules.stream().map(java.util.regex.Pattern::compile).toList();
+
+		Random random = new Random(7);
+		for (int round = 0; round < 500; round++) {
+			StringBuilder input = new StringBuilder();
+			for (int idx = random.nextInt(30); idx > 0; idx--) {
+				input.append("aaabc".charAt(random.nextInt(5)));
+			}
+			assertEquals(bruteForce(expected, input.toString()), render(lexer, input.toString()), input.toString());
+		}
+	}
+
+	private static List<String> bruteForce(List<java.util.regex.Pattern> rules, String input) {
+		List<String> tokens = new ArrayList<>();
+		for (int start = 0; start < input.length(); ) {
+			String token = null;
+			for (int end = input.length(); end > start && token == null; end--) {
+				for (java.util.regex.Pattern rule : rules) {
+					if (rule.matcher(input.substring(start, end)).matches()) {
+						token = rule.pattern() + ":" + input.substring(start, end);
+						start = end;
+						break;
+					}
+				}
+			}
+			if (token == null) {
+				return tokens;
+			}
+			tokens.add(token);
+		}
+		return tokens;
+	}
+
+	@Test
+	void testReproducesRegexpScanner() {
+		Lexer lexer = Lexer.builder()
+				.rule("STRING", "[a-zA-Z0-9]+")
+				.rule("SLASH", "\\|")
+				.rule("LEFT_PAREN", "\\(")
+				.rule("RIGHT_PAREN", "\\)")
+				.rule("QUESTION_MARK", "\\?")
+				.rule("STAR", "\\*")
+				.rule("PLUS", "\\+")
+				.build();
+
+		String pattern = "(ab|c1)*d?(e)+";
+		List<String> expected = new RegexpScanner(pattern).getTokens().stream()
+				.filter(token -> token.getType() != Token.Type.EOF)
+				.map(token -> token.getType() + (token.getLexeme() == null ? "" : ":" + token.getLexeme()))
+				.toList();
+		List<String> actual = lexer.tokenize(pattern).stream()
+				.map(token -> token.name() + (token.name().equals("STRING") ? ":" + token.text(pattern) : ""))
+				.toList();
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	void testFlags() {
+		Lexer heap = Lexer.builder().rule("IF", "if").rule("ID", "[a-z]+").rule("SEP", "[_]").build();
+		try (Lexer offHeap = Lexer.builder().rule("IF", "if").rule("ID", "[a-z]+").rule("SEP", "[_]")
+				.flags(Pattern.OFF_HEAP_TABLES | Pattern.CASE_INSENSITIVE)
+				.build()) {
+			assertFalse(heap.isOffHeap());
+			assertTrue(offHeap.isOffHeap());
+			assertEquals(render(heap, "if_ifx_x"), render(offHeap, "if_ifx_x"));
+			assertEquals(List.of("IF:If", "SEP:_", "ID:IFX"), render(offHeap, "If_IFX"));
+
+			offHeap.close();
+			assertThrows(IllegalStateException.class, () -> offHeap.tokenize("if"));
+		}
+		assertThrows(IllegalArgumentException.class, () -> Lexer.builder().flags(0x01));
+	}
+}
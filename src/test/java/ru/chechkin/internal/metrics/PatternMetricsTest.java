@@ -0,0 +1,131 @@
+package ru.chechkin.internal.metrics;
+
+import org.junit.jupiter.api.Test;
+import ru.chechkin.internal.Matcher;
+import ru.chechkin.internal.automaton.AutomatonMatcher;
+import ru.chechkin.internal.automaton.CompiledAutomaton;
+import ru.chechkin.internal.automaton.FuzzyMatcher;
+import ru.chechkin.internal.automaton.PrefixMatcher;
+import ru.chechkin.internal.derivative.DerivativeMatcher;
+import ru.chechkin.internal.parser.RegexpParser;
+import ru.chechkin.internal.parser.node.Node;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatternMetricsTest {
+
+	@Test
+	void testDisabledMetricsRecordNothing() {
+		PatternMetrics metrics = PatternMetrics.DISABLED;
+
+		metrics.recordMatch(true, 100);
+		metrics.recordScanned(10);
+		metrics.recordFallback();
+
+		assertFalse(metrics.isEnabled());
+		assertEquals(0, metrics.getMatchCalls());
+		assertEquals(0, metrics.getCharsScanned());
+		assertEquals(0, metrics.getFallbacks());
+		assertEquals(0, metrics.getMatchLatency().getCount());
+	}
+
+	@Test
+	void testInstrumentedMatcherCountsCalls() {
+		PatternMetrics metrics = PatternMetrics.collecting();
+		Matcher delegate = new Matcher() {
+			@Override
+			public boolean match(String text) {
+				return text.startsWith("a");
+			}
+
+			@Override
+			public boolean canMatchPrefix(String prefix) {
+				return prefix.isEmpty() || prefix.startsWith("a");
+			}
+		};
+		Matcher matcher = new InstrumentedMatcher(delegate, "a", metrics);
+
+		assertTrue(matcher.match("abc"));
+		assertFalse(matcher.match("bc"));
+
+		assertEquals(2, metrics.getMatchCalls());
+		assertEquals(1, metrics.getMatches());
+		assertEquals(0, metrics.getCharsScanned());
+		assertEquals(2, metrics.getMatchLatency().getCount());
+	}
+
+	@Test
+	void testEnginesRecordCharsActuallyScanned() {
+		String rejected = "x" + "a".repeat(100_000);
+		Node root = new RegexpParser(new RegexpTokenizer("a(.)*")).parse();
+		List<Function<PatternMetrics, Matcher>> engines = List.of(
+				metrics -> new AutomatonMatcher(CompiledAutomaton.compile(root), metrics),
+				metrics -> new AutomatonMatcher(CompiledAutomaton.compile(root, 1), metrics),
+				metrics -> new DerivativeMatcher(root, DerivativeMatcher.DEFAULT_MAX_STATES, metrics));
+
+		for (Function<PatternMetrics, Matcher> engine : engines) {
+			PatternMetrics metrics = PatternMetrics.collecting();
+			Matcher matcher = engine.apply(metrics);
+
+			assertFalse(matcher.match(rejected));
+			assertEquals(1, metrics.getCharsScanned());
+
+			assertTrue(matcher.match("abc"));
+			assertEquals(4, metrics.getCharsScanned());
+		}
+	}
+
+	@Test
+	void testFuzzyMatcherRecordsCallsAndCharsScanned() {
+		Node root = new RegexpParser(new RegexpTokenizer("abc")).parse();
+		PatternMetrics metrics = PatternMetrics.collecting();
+		FuzzyMatcher matcher = new FuzzyMatcher(CompiledAutomaton.compile(root).getNfa(), 1, metrics);
+
+		assertTrue(matcher.match("abd"));
+		assertFalse(matcher.match("xyz" + "a".repeat(100_000)));
+		assertEquals(1, matcher.distance("ab"));
+		assertTrue(matcher.canMatchPrefix("ab"));
+
+		assertEquals(3, metrics.getMatchCalls());
+		assertEquals(2, metrics.getMatches());
+		assertEquals(3 + 2 + 2, metrics.getCharsScanned());
+		assertEquals(3, metrics.getMatchLatency().getCount());
+	}
+
+	@Test
+	void testPrefixMatcherRecordsCharsScanned() {
+		Node root = new RegexpParser(new RegexpTokenizer("ab(.)*")).parse();
+		for (CompiledAutomaton automaton : List.of(CompiledAutomaton.compile(root), CompiledAutomaton.compile(root, 1))) {
+			PatternMetrics metrics = PatternMetrics.collecting();
+			PrefixMatcher matcher = new PrefixMatcher(automaton, metrics);
+
+			assertTrue(matcher.append("abc"));
+			assertTrue(matcher.append('d'));
+			assertEquals(4, metrics.getCharsScanned());
+
+			matcher.reset();
+			assertFalse(matcher.append("x" + "a".repeat(100_000)));
+			assertFalse(matcher.append('a'));
+			assertEquals(5, metrics.getCharsScanned());
+		}
+	}
+
+	@Test
+	void testHistogramPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		for (int idx = 0; idx < 99; idx++) {
+			histogram.record(100);
+		}
+		histogram.record(1_000_000);
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(127, histogram.getPercentile(50));
+		assertEquals(127, histogram.getPercentile(99));
+		assertEquals((1L << 20) - 1, histogram.getPercentile(100));
+	}
+}
@@ -4,6 +4,11 @@ import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import ru.chechkin.internal.MatchSpan;
+import ru.chechkin.internal.Pattern;
+import ru.chechkin.internal.PatternRegistry;
+import ru.chechkin.internal.lexer.Lexer;
+import ru.chechkin.internal.lexer.TokenSpan;
 import ru.chechkin.internal.parser.node.AlternNode;
 import ru.chechkin.internal.parser.node.AtLeastOnceUnaryNode;
 import ru.chechkin.internal.parser.node.AtMostOnceUnaryNode;
@@ -11,6 +16,7 @@ import ru.chechkin.internal.parser.node.ConcatNode;
 import ru.chechkin.internal.parser.node.Node;
 import ru.chechkin.internal.parser.node.RepeatableUnaryNode;
 import ru.chechkin.internal.parser.node.StringNode;
+import ru.chechkin.internal.scanner.RegexpTokenizer;
 import ru.chechkin.internal.scanner.Token;
 
 import java.util.List;
@@ -330,4 +336,109 @@ public class RegexpParserTest {
 		assertStringNode(altChildren.get(0), "a");
 		assertStringNode(altChildren.get(1), "b");
 	}
-}
\ No newline at end of file
+
+	@Test
+	void testUnbalancedRightParen() {
+		List<Token> tokens = tokens("a", Token.Type.RIGHT_PAREN);
+		assertThrows(IllegalStateException.class,
+				() -> new RegexpParser(tokens)
+		);
+	}
+
+	@Test
+	void testCollapsingParenthesesDoNotCountAsNesting() {
+		int depth = 100_000;
+		String pattern = "(".repeat(depth) + "a" + ")".repeat(depth);
+
+		Node root = new RegexpParser(new RegexpTokenizer(pattern)).parse();
+
+		assertStringNode(root, "a");
+	}
+
+	@Test
+	void testTooDeepTreeIsRejected() {
+		for (String pattern : List.of(
+				"(a".repeat(100_000) + ")".repeat(100_000),
+				"(a".repeat(RegexpParser.MAX_DEPTH + 1) + ")".repeat(RegexpParser.MAX_DEPTH + 1),
+				"((a".repeat(600) + ")*)".repeat(600)
+		)) {
+			IllegalStateException error = assertThrows(IllegalStateException.class, () -> Pattern.compile(pattern));
+			assertTrue(error.getMessage().startsWith("Pattern nesting is deeper than " + RegexpParser.MAX_DEPTH), error.getMessage());
+		}
+	}
+
+	@Test
+	void testDeepestTreeWorksEverywhereOnSmallThreadStack() throws InterruptedException {
+		int depth = RegexpParser.MAX_DEPTH;
+		int half = depth / 2;
+		// the deepest accepted tree of each shape, with a text it matches and one it does not
+		List<List<String>> shapes = List.of(
+				List.of("(a".repeat(depth) + ")".repeat(depth), "a".repeat(depth), "a".repeat(depth - 1)),
+				List.of("((a".repeat(half) + ")*)".repeat(half), "aaa", "ab"),
+				List.of("(a|(b".repeat(half) + "))".repeat(half), "b".repeat(half), "ab"),
+				List.of("(".repeat(depth - 1) + "a" + ")+".repeat(depth - 1), "aaa", "")
+		);
+		List<Throwable> failures = new ArrayList<>();
+		// the tree walkers recurse once per level; MAX_DEPTH is chosen so that every entry point
+		// fits in this stack even with interpreted frames
+		Thread thread = new Thread(null, () -> {
+			try {
+				for (List<String> shape : shapes) {
+					assertDeepPatternWorks(shape.get(0), shape.get(1), shape.get(2));
+				}
+			} catch (Throwable e) {
+				failures.add(e);
+			}
+		}, "small-stack", 256 * 1024);
+		thread.start();
+		thread.join();
+
+		assertEquals(List.of(), failures);
+	}
+
+	private static void assertDeepPatternWorks(String pattern, String match, String mismatch) {
+		for (int flags : new int[]{0, Pattern.CASE_INSENSITIVE}) {
+			String text = flags == 0 ? match : match.toUpperCase();
+			try (Pattern compiled = Pattern.compile(pattern, flags)) {
+				assertTrue(compiled.matcher().match(text), pattern);
+				assertFalse(compiled.matcher().match(mismatch), pattern);
+				assertTrue(compiled.derivativeMatcher().match(text), pattern);
+				assertFalse(compiled.derivativeMatcher().match(mismatch), pattern);
+				assertTrue(compiled.fuzzyMatcher(1).match(text), pattern);
+				assertEquals(new MatchSpan(1, text.length() + 1), compiled.searcher().find("c" + text + "c", 1));
+				assertTrue(compiled.prefixMatcher().append(text));
+				assertTrue(compiled.incrementalMatcher(mismatch).edit(0, mismatch.length(), text));
+				assertNotNull(compiled.trigramQuery());
+				assertTrue(compiled.memoryFootprint().treeBytes() > 0);
+				assertFalse(compiled.toString().isEmpty());
+			}
+		}
+		for (PatternRegistry.Equivalence equivalence : PatternRegistry.Equivalence.values()) {
+			try (PatternRegistry registry = new PatternRegistry(equivalence)) {
+				Pattern registered = registry.register(pattern);
+				assertSame(registered, registry.register(pattern));
+				assertTrue(registered.matcher().match(match));
+			}
+		}
+		try (Lexer lexer = Lexer.builder().rule("DEEP", pattern).build()) {
+			assertEquals(List.of(new TokenSpan(0, "DEEP", 0, match.length())), lexer.tokenize(match));
+		}
+	}
+
+	@Test
+	void testManyAlternativesKeepOrder() {
+		int count = 100_000;
+		StringBuilder pattern = new StringBuilder("k0");
+		for (int idx = 1; idx < count; idx++) {
+			pattern.append("|k").append(idx);
+		}
+
+		Node root = new RegexpParser(new RegexpTokenizer(pattern.toString())).parse();
+
+		assertTrue(root instanceof AlternNode);
+		List<Node> alternatives = ((AlternNode) root).getAlternatives();
+		assertEquals(count, alternatives.size());
+		assertStringNode(alternatives.get(0), "k0");
+		assertStringNode(alternatives.get(count - 1), "k" + (count - 1));
+	}
+}
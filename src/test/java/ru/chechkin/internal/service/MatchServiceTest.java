@@ -0,0 +1,241 @@
+package ru.chechkin.internal.service;
+
+import org.junit.jupiter.api.Test;
+import ru.chechkin.internal.Pattern;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchServiceTest {
+
+	@Test
+	void testConcurrentRequestsAreAnsweredCorrectly() throws Exception {
+		try (MatchService service = MatchService.builder().queueCapacity(16).batchSize(8).build()) {
+			service.register("digits", Pattern.compile("\\d+"));
+			service.register("error", Pattern.compile("(.)*error(.)*", Pattern.CASE_INSENSITIVE));
+
+			List<Thread> producers = new ArrayList<>();
+			List<CompletableFuture<Boolean>> results = new ArrayList<>();
+			List<Boolean> expected = new ArrayList<>();
+			for (int producer = 0; producer < 4; producer++) {
+				producers.add(new Thread(() -> {
+					for (int idx = 0; idx < 500; idx++) {
+						try {
+							synchronized (results) {
+								boolean digits = idx % 2 == 0;
+								String input = idx % 3 == 0 ? "12" + idx : "an ERROR " + idx;
+								results.add(service.submit(digits ? "digits" : "error", input));
+								expected.add(digits ? input.matches("\\d+") : input.toLowerCase().contains("error"));
+							}
+						} catch (InterruptedException e) {
+							throw new IllegalStateException(e);
+						}
+					}
+				}));
+			}
+			producers.forEach(Thread::start);
+			for (Thread producer : producers) {
+				producer.join();
+			}
+
+			for (int idx = 0; idx < results.size(); idx++) {
+				assertEquals(expected.get(idx), results.get(idx).get(10, TimeUnit.SECONDS), "request " + idx);
+			}
+			assertEquals(2_000, service.getLatency().getCount());
+			assertTrue(service.getBatches() <= 2_000);
+		}
+	}
+
+	@Test
+	void testFullQueueRejectsTrySubmit() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService blocking = new AbstractExecutorService() {
+			private final ExecutorService delegate = new ForkJoinPool(1);
+
+			@Override
+			public void execute(Runnable command) {
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					throw new RejectedExecutionException(e);
+				}
+				delegate.execute(command);
+			}
+
+			@Override
+			public void shutdown() {
+				delegate.shutdown();
+			}
+
+			@Override
+			public List<Runnable> shutdownNow() {
+				return delegate.shutdownNow();
+			}
+
+			@Override
+			public boolean isShutdown() {
+				return delegate.isShutdown();
+			}
+
+			@Override
+			public boolean isTerminated() {
+				return delegate.isTerminated();
+			}
+
+			@Override
+			public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+				return delegate.awaitTermination(timeout, unit);
+			}
+		};
+
+		try (MatchService service = MatchService.builder().queueCapacity(2).batchSize(1).executor(blocking).build()) {
+			service.register("a", Pattern.compile("a"));
+
+			List<CompletableFuture<Boolean>> accepted = new ArrayList<>();
+			CompletableFuture<Boolean> rejected = null;
+			for (int idx = 0; idx < 10 && rejected == null; idx++) {
+				CompletableFuture<Boolean> result = service.trySubmit("a", "a");
+				if (result.isCompletedExceptionally()) {
+					rejected = result;
+				} else {
+					accepted.add(result);
+				}
+			}
+
+			assertNotNull(rejected);
+			assertEquals(2, service.queueDepth());
+			assertEquals(1, service.getRejected());
+			ExecutionException error = assertThrows(ExecutionException.class, rejected::get);
+			assertInstanceOf(RejectedExecutionException.class, error.getCause());
+
+			release.countDown();
+			for (CompletableFuture<Boolean> result : accepted) {
+				assertTrue(result.get(10, TimeUnit.SECONDS));
+			}
+		} finally {
+			blocking.shutdown();
+		}
+	}
+
+	@Test
+	void testExecutorBacklogCountsTowardsCapacity() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService worker = Executors.newFixedThreadPool(1);
+		worker.execute(() -> {
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		try (MatchService service = MatchService.builder().queueCapacity(4).batchSize(1).executor(worker).build()) {
+			service.register("a", Pattern.compile("a+"));
+
+			List<CompletableFuture<Boolean>> accepted = new ArrayList<>();
+			for (int idx = 0; idx < 200; idx++) {
+				CompletableFuture<Boolean> result = service.trySubmit("a", "aaa");
+				if (!result.isCompletedExceptionally()) {
+					accepted.add(result);
+				}
+			}
+
+			assertEquals(4, accepted.size());
+			assertEquals(196, service.getRejected());
+			assertEquals(4, service.queueDepth());
+
+			release.countDown();
+			for (CompletableFuture<Boolean> result : accepted) {
+				assertTrue(result.get(10, TimeUnit.SECONDS));
+			}
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (service.queueDepth() > 0 && System.nanoTime() < deadline) {
+				Thread.yield();
+			}
+			assertEquals(0, service.queueDepth(), "permits come back as requests complete");
+		} finally {
+			worker.shutdown();
+		}
+	}
+
+	@Test
+	void testUnknownPatternAndClosedService() throws Exception {
+		MatchService service = MatchService.builder().build();
+		assertThrows(IllegalArgumentException.class, () -> service.trySubmit("missing", "x"));
+
+		service.register("a", Pattern.compile("a"));
+		CompletableFuture<Boolean> queued = service.submit("a", "a");
+		service.close();
+
+		assertTrue(queued.get(10, TimeUnit.SECONDS));
+		assertThrows(RejectedExecutionException.class, () -> service.submit("a", "a"));
+	}
+
+	@Test
+	void testMatcherFailureCompletesTheGroup() throws Exception {
+		try (MatchService service = MatchService.builder().queueCapacity(2).build()) {
+			Pattern closed = Pattern.compile("a");
+			closed.close();
+			service.register("closed", closed);
+			service.register("a", Pattern.compile("a"));
+
+			List<CompletableFuture<Boolean>> failed = List.of(service.submit("closed", "a"), service.submit("closed", "a"));
+			for (CompletableFuture<Boolean> result : failed) {
+				ExecutionException error = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+				assertInstanceOf(IllegalStateException.class, error.getCause());
+			}
+
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+			while (service.queueDepth() > 0 && System.nanoTime() < deadline) {
+				Thread.yield();
+			}
+			assertEquals(0, service.queueDepth());
+			assertTrue(service.trySubmit("a", "a").get(10, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	void testCloseIsNotInterruptible() throws Exception {
+		MatchService service = MatchService.builder().build();
+		service.register("a", Pattern.compile("a"));
+		CompletableFuture<Boolean> queued = service.submit("a", "a");
+
+		Thread.currentThread().interrupt();
+		service.close();
+
+		assertTrue(Thread.interrupted(), "interrupt status is restored");
+		assertTrue(queued.get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void testShutdownWithTimeout() throws Exception {
+		MatchService service = MatchService.builder().build();
+		service.register("a", Pattern.compile("a"));
+		CompletableFuture<Boolean> queued = service.submit("a", "a");
+
+		assertTrue(service.shutdown(Duration.ofSeconds(10)));
+		assertTrue(queued.get(10, TimeUnit.SECONDS));
+		assertThrows(RejectedExecutionException.class, () -> service.trySubmit("a", "a"));
+	}
+
+	@Test
+	void testVirtualThreadsWhereSupported() {
+		ExecutorService virtual = MatchExecutors.virtualThreadExecutor();
+		assertEquals(Runtime.version().feature() >= 21, virtual != null);
+		if (virtual != null) {
+			virtual.shutdown();
+		}
+	}
+}